@@ -3,6 +3,8 @@ package com.chinagoods.bigdata.connectors.http.internal;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import org.apache.flink.api.connector.sink2.Sink;
+
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkInternal;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkWriter;
@@ -25,4 +27,19 @@ public interface SinkHttpClient {
         List<HttpSinkRequestEntry> requestEntries,
         String endpointUrl
     );
+
+    /**
+     * Called by {@link HttpSinkWriter} before any request is sent. Lets the client register its
+     * metrics and adjust to the sink's parallelism.
+     *
+     * @param context init context of the {@link HttpSinkWriter} using this client.
+     */
+    default void open(Sink.InitContext context) {
+    }
+
+    /**
+     * Called by {@link HttpSinkWriter} when it is closed. Lets the client release its threads.
+     */
+    default void close() {
+    }
 }
@@ -11,7 +11,8 @@ import com.chinagoods.bigdata.connectors.http.internal.sink.httpclient.HttpReque
 
 /**
  * Data class holding {@link HttpSinkRequestEntry} instances that {@link SinkHttpClient} attempted
- * to write, divided into two lists &mdash; successful and failed ones.
+ * to write, divided into two lists &mdash; successful and failed ones. Failed requests that are
+ * worth another attempt are additionally listed as retryable.
  */
 @Data
 @ToString
@@ -28,4 +29,10 @@ public class SinkHttpClientResponse {
      */
     @NonNull
     private final List<HttpRequest> failedRequests;
+
+    /**
+     * A subset of {@link #failedRequests} that failed for a reason that is considered transient.
+     */
+    @NonNull
+    private final List<HttpRequest> retryableRequests;
 }
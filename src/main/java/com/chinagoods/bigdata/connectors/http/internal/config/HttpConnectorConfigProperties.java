@@ -92,6 +92,9 @@ public final class HttpConnectorConfigProperties {
     public static final String SINK_HTTP_REQUEST_ENCRYPTION_XSYK_APP_ID =
             GID_CONNECTOR_HTTP + "sink.writer.request.encryption.xsyk.app.id";
 
+    public static final String SINK_HTTP_REQUEST_ENCRYPTION_THREAD_POOL_SIZE =
+            GID_CONNECTOR_HTTP + "sink.writer.request.encryption.thread-pool.size";
+
     public static final String HTTP_CLIENT_THREAD_POOL_SIZE =
             GID_CONNECTOR_HTTP + "client.thread.pool.size";
     // -----------------------------------------------------
@@ -104,5 +107,77 @@ public final class HttpConnectorConfigProperties {
     public static final String SINK_HTTP_BATCH_REQUEST_SIZE =
         GID_CONNECTOR_HTTP + "sink.request.batch.size";
 
+    public static final String SINK_HTTP_BATCH_REQUEST_ADAPTIVE =
+        GID_CONNECTOR_HTTP + "sink.request.batch.adaptive";
+
+    public static final String SINK_HTTP_BATCH_REQUEST_MIN_SIZE =
+        GID_CONNECTOR_HTTP + "sink.request.batch.min-size";
+
+    public static final String SINK_HTTP_BATCH_REQUEST_MAX_SIZE =
+        GID_CONNECTOR_HTTP + "sink.request.batch.max-size";
+
+    public static final String SINK_HTTP_BATCH_REQUEST_TARGET_LATENCY_MS =
+        GID_CONNECTOR_HTTP + "sink.request.batch.target-latency.ms";
+
+    public static final String SINK_HTTP_BATCH_REQUEST_LATENCY_WINDOW =
+        GID_CONNECTOR_HTTP + "sink.request.batch.latency-window";
+
+    public static final String SINK_HTTP_REQUEST_CONCURRENCY_ADAPTIVE =
+        GID_CONNECTOR_HTTP + "sink.request.concurrency.adaptive";
+
+    public static final String SINK_HTTP_REQUEST_CONCURRENCY_INITIAL_LIMIT =
+        GID_CONNECTOR_HTTP + "sink.request.concurrency.initial-limit";
+
+    public static final String SINK_HTTP_REQUEST_CONCURRENCY_MIN_LIMIT =
+        GID_CONNECTOR_HTTP + "sink.request.concurrency.min-limit";
+
+    public static final String SINK_HTTP_REQUEST_CONCURRENCY_MAX_LIMIT =
+        GID_CONNECTOR_HTTP + "sink.request.concurrency.max-limit";
+
+    public static final String SINK_HTTP_REQUEST_LANES =
+        GID_CONNECTOR_HTTP + "sink.request.lanes";
+
+    public static final String SINK_HTTP_REQUEST_PARTITION_KEY =
+        GID_CONNECTOR_HTTP + "sink.request.partition.key";
+
+    // ---------------------------------------------
+
+    // --------- Sink rate limit settings ----------
+    public static final String SINK_HTTP_RATE_LIMIT_REQUESTS_PER_SECOND =
+        GID_CONNECTOR_HTTP + "sink.rate-limit.requests-per-second";
+
+    public static final String SINK_HTTP_RATE_LIMIT_RECORDS_PER_SECOND =
+        GID_CONNECTOR_HTTP + "sink.rate-limit.records-per-second";
+
+    public static final String SINK_HTTP_RATE_LIMIT_SCOPE =
+        GID_CONNECTOR_HTTP + "sink.rate-limit.scope";
+
+    // ---------------------------------------------
+
+    // ------------ Sink retry settings ------------
+    public static final String SINK_HTTP_RETRY_MAX_ATTEMPTS =
+        GID_CONNECTOR_HTTP + "sink.retry.max-attempts";
+
+    public static final String SINK_HTTP_RETRY_INITIAL_BACKOFF_MS =
+        GID_CONNECTOR_HTTP + "sink.retry.initial-backoff.ms";
+
+    public static final String SINK_HTTP_RETRY_MAX_BACKOFF_MS =
+        GID_CONNECTOR_HTTP + "sink.retry.max-backoff.ms";
+
+    public static final String SINK_HTTP_RETRY_BACKOFF_MULTIPLIER =
+        GID_CONNECTOR_HTTP + "sink.retry.backoff.multiplier";
+
+    public static final String SINK_HTTP_RETRY_BACKOFF_JITTER =
+        GID_CONNECTOR_HTTP + "sink.retry.backoff.jitter";
+
+    public static final String SINK_HTTP_RETRY_CODES_LIST =
+        GID_CONNECTOR_HTTP + "sink.retry.code";
+
+    public static final String SINK_HTTP_RETRY_CODE_WHITE_LIST =
+        GID_CONNECTOR_HTTP + "sink.retry.code.exclude";
+
+    public static final String SINK_HTTP_RETRY_IO_ERROR =
+        GID_CONNECTOR_HTTP + "sink.retry.io-error";
+
     // ---------------------------------------------
 }
@@ -0,0 +1,17 @@
+package com.chinagoods.bigdata.connectors.http.internal.config;
+
+public enum SinkRateLimitScope {
+
+    SUBTASK("subtask"),
+    GLOBAL("global");
+
+    private final String scope;
+
+    SinkRateLimitScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+}
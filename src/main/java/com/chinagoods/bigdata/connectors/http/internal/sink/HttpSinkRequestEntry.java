@@ -4,14 +4,12 @@ import java.io.Serializable;
 
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
 /**
  * Represents a single {@link com.chinagoods.bigdata.connectors.http.HttpSink} request. Contains the HTTP
  * method name, Content-Type header value, and byte representation of the body of the request.
  */
-@RequiredArgsConstructor
 @EqualsAndHashCode
 @ToString
 public final class HttpSinkRequestEntry implements Serializable {
@@ -27,10 +25,34 @@ public final class HttpSinkRequestEntry implements Serializable {
      */
     public final byte[] element;
 
+    /**
+     * Number of the submission attempt this entry is used for, starting from 1. It is not a part
+     * of the writer's state, hence it starts over when the entry is restored from a checkpoint.
+     */
+    @EqualsAndHashCode.Exclude
+    public final int attempt;
+
+    public HttpSinkRequestEntry(@NonNull String method, byte[] element) {
+        this(method, element, 1);
+    }
+
+    private HttpSinkRequestEntry(@NonNull String method, byte[] element, int attempt) {
+        this.method = method;
+        this.element = element;
+        this.attempt = attempt;
+    }
+
     /**
      * @return the size of the {@link HttpSinkRequestEntry#element}
      */
     public long getSizeInBytes() {
         return element.length;
     }
+
+    /**
+     * @return a copy of this entry to be used for the next submission attempt.
+     */
+    public HttpSinkRequestEntry nextAttempt() {
+        return new HttpSinkRequestEntry(method, element, attempt + 1);
+    }
 }
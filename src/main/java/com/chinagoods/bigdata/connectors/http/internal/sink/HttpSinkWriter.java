@@ -1,5 +1,6 @@
 package com.chinagoods.bigdata.connectors.http.internal.sink;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -7,6 +8,8 @@ import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.chinagoods.bigdata.connectors.http.internal.SinkHttpClientResponse;
@@ -21,6 +24,8 @@ import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 
 import com.chinagoods.bigdata.connectors.http.internal.SinkHttpClient;
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
+import com.chinagoods.bigdata.connectors.http.internal.sink.httpclient.HttpRequest;
+import com.chinagoods.bigdata.connectors.http.internal.sink.retry.SinkRetryPolicy;
 import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
 
 /**
@@ -30,6 +35,11 @@ import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
  * <p>More details on the internals of this sink writer may be found in {@link AsyncSinkWriter}
  * documentation.
  *
+ * <p>Failed requests are retried according to {@link SinkRetryPolicy}. Entries that are worth
+ * another attempt are handed back to {@link AsyncSinkWriter} once their backoff elapses, so they
+ * go through the same buffering, checkpointing and backpressure as any new entry. The request is
+ * considered in flight until then.
+ *
  * @param <InputT> type of the elements that should be sent through HTTP request.
  */
 @Slf4j
@@ -46,8 +56,18 @@ public class HttpSinkWriter<InputT> extends AsyncSinkWriter<InputT, HttpSinkRequ
 
     private final SinkHttpClient sinkHttpClient;
 
+    /**
+     * Scheduler delaying the hand back of retried entries, so that the backoff does not block
+     * {@link #sinkWriterThreadPool}.
+     */
+    private final ScheduledExecutorService retryScheduler;
+
+    private final SinkRetryPolicy retryPolicy;
+
     private final Counter numRecordsSendErrorsCounter;
 
+    private final Counter numRecordsSendRetriesCounter;
+
     public HttpSinkWriter(
             ElementConverter<InputT, HttpSinkRequestEntry> elementConverter,
             Sink.InitContext context,
@@ -69,6 +89,9 @@ public class HttpSinkWriter<InputT> extends AsyncSinkWriter<InputT, HttpSinkRequ
 
         SinkWriterMetricGroup metrics = context.metricGroup();
         this.numRecordsSendErrorsCounter = metrics.getNumRecordsSendErrorsCounter();
+        this.numRecordsSendRetriesCounter = metrics.counter("numRecordsSendRetries");
+        this.retryPolicy = SinkRetryPolicy.fromProperties(properties);
+        this.sinkHttpClient.open(context);
 
         int sinkWriterThreadPollSize = Integer.parseInt(properties.getProperty(
             HttpConnectorConfigProperties.SINK_HTTP_WRITER_THREAD_POOL_SIZE,
@@ -80,9 +103,13 @@ public class HttpSinkWriter<InputT> extends AsyncSinkWriter<InputT, HttpSinkRequ
                 sinkWriterThreadPollSize,
                 new ExecutorThreadFactory(
                     "http-sink-writer-worker", ThreadUtils.LOGGING_EXCEPTION_HANDLER));
+
+        this.retryScheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ExecutorThreadFactory(
+                    "http-sink-writer-retry-scheduler", ThreadUtils.LOGGING_EXCEPTION_HANDLER));
     }
 
-    // TODO: Reintroduce retries by adding backoff policy
     @Override
     protected void submitRequestEntries(
             List<HttpSinkRequestEntry> requestEntries,
@@ -96,29 +123,61 @@ public class HttpSinkWriter<InputT> extends AsyncSinkWriter<InputT, HttpSinkRequ
                     failedRequestsNumber, err);
                 numRecordsSendErrorsCounter.inc(failedRequestsNumber);
 
-                // TODO: Make `HttpSinkInternal` retry the failed requests.
-                //  Currently, it does not retry those at all, only adds their count
-                //  to the `numRecordsSendErrors` metric. It is due to the fact we do not have
-                //  a clear image how we want to do it, so it would be both efficient and correct.
-                //requestResult.accept(requestEntries);
+                completeRequest(
+                    retryPolicy.isRetryable(err) ? requestEntries : Collections.emptyList(),
+                    requestResult
+                );
             } else if (!response.getFailedRequests().isEmpty()) {
                 int failedRequestsNumber = response.getFailedRequests().size();
-                log.error("Http Sink failed to write and will retry {} requests",
-                    failedRequestsNumber);
+                log.error("Http Sink failed to write {} requests, {} of them are retryable",
+                    failedRequestsNumber, response.getRetryableRequests().size());
                 numRecordsSendErrorsCounter.inc(failedRequestsNumber);
 
-                // TODO: Make `HttpSinkInternal` retry the failed requests. Currently,
-                //  it does not retry those at all, only adds their count to the
-                //  `numRecordsSendErrors` metric. It is due to the fact we do not have
-                //  a clear image how we want to do it, so it would be both efficient and correct.
+                List<HttpSinkRequestEntry> retryableEntries = new ArrayList<>();
+                for (HttpRequest retryableRequest : response.getRetryableRequests()) {
+                    retryableEntries.addAll(retryableRequest.getRequestEntries());
+                }
+                completeRequest(retryableEntries, requestResult);
+            } else {
+                requestResult.accept(Collections.emptyList());
+            }
+        }, sinkWriterThreadPool);
+    }
+
+    /**
+     * Completes the request, handing entries that still have attempts left back to
+     * {@link AsyncSinkWriter} after the backoff. Entries that used all of their attempts are
+     * dropped.
+     */
+    private void completeRequest(
+            List<HttpSinkRequestEntry> retryableEntries,
+            Consumer<List<HttpSinkRequestEntry>> requestResult) {
 
-                //requestResult.accept(response.getFailedRequests());
-                //} else {
-                //requestResult.accept(Collections.emptyList());
-                //}
+        List<HttpSinkRequestEntry> entriesToRetry = new ArrayList<>(retryableEntries.size());
+        int lastAttempt = 0;
+        for (HttpSinkRequestEntry entry : retryableEntries) {
+            if (retryPolicy.canRetry(entry.attempt)) {
+                entriesToRetry.add(entry.nextAttempt());
+                lastAttempt = Math.max(lastAttempt, entry.attempt);
             }
+        }
+
+        int droppedEntries = retryableEntries.size() - entriesToRetry.size();
+        if (droppedEntries > 0) {
+            log.error("Http Sink dropped {} requests that reached the limit of {} attempts",
+                droppedEntries, retryPolicy.getMaxAttempts());
+        }
+
+        if (entriesToRetry.isEmpty()) {
             requestResult.accept(Collections.emptyList());
-        }, sinkWriterThreadPool);
+            return;
+        }
+
+        numRecordsSendRetriesCounter.inc(entriesToRetry.size());
+        long backoffMs = retryPolicy.getBackoffMs(lastAttempt);
+        log.warn("Http Sink will retry {} requests in {} ms", entriesToRetry.size(), backoffMs);
+        retryScheduler.schedule(
+            () -> requestResult.accept(entriesToRetry), backoffMs, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -129,6 +188,8 @@ public class HttpSinkWriter<InputT> extends AsyncSinkWriter<InputT, HttpSinkRequ
     @Override
     public void close() {
         sinkWriterThreadPool.shutdownNow();
+        retryScheduler.shutdownNow();
+        sinkHttpClient.close();
         super.close();
     }
 }
@@ -1,5 +1,6 @@
 package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.List;
 import java.util.Properties;
@@ -9,12 +10,20 @@ import java.util.concurrent.Executors;
 
 import com.chinagoods.bigdata.connectors.http.internal.config.SinkRequestEncryptionMode;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.apache.flink.api.connector.sink2.Sink;
 import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.jetbrains.annotations.NotNull;
 
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
 import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
 
+@Slf4j
 public abstract class AbstractRequestSubmitter implements RequestSubmitter {
 
     protected static final int HTTP_CLIENT_PUBLISHING_THREAD_POOL_SIZE = 1;
@@ -34,6 +43,16 @@ public abstract class AbstractRequestSubmitter implements RequestSubmitter {
 
     protected final OkHttpClient httpClient;
 
+    /**
+     * Limiter of outstanding HTTP calls, null if the number of calls is not limited.
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * Limiter of HTTP calls and events rate, null if the rate is not limited.
+     */
+    private final RequestRateLimiter rateLimiter;
+
     public AbstractRequestSubmitter(
             Properties properties,
             String[] headersAndValues,
@@ -52,7 +71,103 @@ public abstract class AbstractRequestSubmitter implements RequestSubmitter {
         );
 
         this.httpClient = httpClient;
+        this.concurrencyLimiter = ConcurrencyLimiter.fromProperties(properties);
+        this.rateLimiter = RequestRateLimiter.fromProperties(properties);
+        if (concurrencyLimiter != null) {
+            // Let the limiter be the one deciding how many calls go to the endpoint.
+            Dispatcher dispatcher = httpClient.dispatcher();
+            int maxLimit = concurrencyLimiter.getMaxLimit();
+            dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), maxLimit));
+            dispatcher.setMaxRequestsPerHost(Math.max(dispatcher.getMaxRequestsPerHost(), maxLimit));
+        }
     }
 
     public abstract List<CompletableFuture<JavaNetHttpResponseWrapper>> submit(String endpointUrl, List<HttpSinkRequestEntry> requestsToSubmit);
+
+    /**
+     * Enqueues given request in {@link OkHttpClient}. Returned future is always completed normally,
+     * an exception that prevented the request from getting a response is passed to {@link
+     * JavaNetHttpResponseWrapper} so the request can be reported as failed on its own.
+     */
+    protected CompletableFuture<JavaNetHttpResponseWrapper> enqueue(HttpRequest httpRequest) {
+        return enqueue(httpClient, httpRequest);
+    }
+
+    /**
+     * Enqueues given request in provided {@link OkHttpClient}, see {@link #enqueue(HttpRequest)}.
+     * The request may first wait in {@link RequestRateLimiter} and then in {@link
+     * ConcurrencyLimiter} queue, if these are enabled, before it gets to the client.
+     */
+    protected CompletableFuture<JavaNetHttpResponseWrapper> enqueue(
+            OkHttpClient client,
+            HttpRequest httpRequest) {
+        CompletableFuture<JavaNetHttpResponseWrapper> future = new CompletableFuture<>();
+        if (rateLimiter == null) {
+            startCall(client, httpRequest, future);
+        } else {
+            rateLimiter.execute(
+                httpRequest.getRequestEntries().size(),
+                () -> startCall(client, httpRequest, future)
+            );
+        }
+        return future;
+    }
+
+    @Override
+    public void onResponse(JavaNetHttpResponseWrapper response, boolean transientFailure) {
+        if (rateLimiter != null) {
+            response.getResponse().ifPresent(rateLimiter::onResponse);
+        }
+    }
+
+    @Override
+    public void open(Sink.InitContext context) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.registerMetrics(context.metricGroup());
+        }
+        if (rateLimiter != null) {
+            rateLimiter.open(context.getNumberOfParallelSubtasks());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (rateLimiter != null) {
+            rateLimiter.close();
+        }
+    }
+
+    private void startCall(
+            OkHttpClient client,
+            HttpRequest httpRequest,
+            CompletableFuture<JavaNetHttpResponseWrapper> future) {
+        if (concurrencyLimiter == null) {
+            client.newCall(httpRequest.getHttpRequest()).enqueue(callback(httpRequest, future));
+            return;
+        }
+
+        concurrencyLimiter.execute(() -> {
+            long startNanos = System.nanoTime();
+            future.whenComplete((response, err) -> concurrencyLimiter.release(
+                System.nanoTime() - startNanos, !response.getResponse().isPresent()));
+            client.newCall(httpRequest.getHttpRequest()).enqueue(callback(httpRequest, future));
+        });
+    }
+
+    private Callback callback(
+            HttpRequest httpRequest,
+            CompletableFuture<JavaNetHttpResponseWrapper> future) {
+        return new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                log.error("Request fatally failed because of an exception", e);
+                future.complete(new JavaNetHttpResponseWrapper(httpRequest, null, e));
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                future.complete(new JavaNetHttpResponseWrapper(httpRequest, response));
+            }
+        };
+    }
 }
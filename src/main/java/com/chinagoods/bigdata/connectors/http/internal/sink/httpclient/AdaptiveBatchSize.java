@@ -0,0 +1,156 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import lombok.Getter;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ConfigUtils;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+/**
+ * Adjusts the number of events sent in one HTTP request based on observed endpoint latency. Both
+ * directions are multiplicative, but the increase is gentle and the decrease is sharp, so the batch
+ * size probes upwards slowly and backs off quickly, much like TCP congestion control.
+ *
+ * <p>Latencies of the last {@code windowSize} requests are kept. After every {@code windowSize /
+ * 10} requests the p99 of that window is compared with {@code targetLatencyMs}. When it is below
+ * the target, the batch size grows by 10% (at least by one). When it is above the target, the batch
+ * size is halved. A transient failure, for example a timeout or a {@code 503} response, halves the
+ * batch size immediately. Batch size always stays between {@code minBatchSize} and {@code
+ * maxBatchSize}. Samples are dropped whenever the batch size is decreased, since they describe
+ * bigger batches.
+ */
+final class AdaptiveBatchSize {
+
+    private static final String DEFAULT_MIN_BATCH_SIZE = "1";
+
+    private static final String DEFAULT_TARGET_LATENCY_MS = "1000";
+
+    private static final String DEFAULT_WINDOW_SIZE = "100";
+
+    private static final int MIN_WINDOW_SIZE = 10;
+
+    private static final double PERCENTILE = 0.99;
+
+    @Getter
+    private final int minBatchSize;
+
+    @Getter
+    private final int maxBatchSize;
+
+    @Getter
+    private final long targetLatencyMs;
+
+    private final long[] latencies;
+
+    private final int samplesPerDecision;
+
+    private int samplesInWindow;
+
+    private int nextSampleIndex;
+
+    private int samplesSinceDecision;
+
+    private volatile int batchSize;
+
+    AdaptiveBatchSize(
+            int initialBatchSize,
+            int minBatchSize,
+            int maxBatchSize,
+            long targetLatencyMs,
+            int windowSize) {
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyMs = targetLatencyMs;
+        this.latencies = new long[windowSize];
+        this.samplesPerDecision = Math.max(1, windowSize / 10);
+        this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+    }
+
+    /**
+     * Creates {@link AdaptiveBatchSize} based on HTTP connector properties.
+     *
+     * @param properties HTTP connector properties.
+     * @param initialBatchSize batch size to start with, it is also the default upper bound.
+     * @return new {@link AdaptiveBatchSize} instance or null if adaptive batch size is not enabled.
+     */
+    static AdaptiveBatchSize fromProperties(Properties properties, int initialBatchSize) {
+        if (!Boolean.parseBoolean(
+                properties.getProperty(SINK_HTTP_BATCH_REQUEST_ADAPTIVE, "false"))) {
+            return null;
+        }
+
+        int minBatchSize = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_BATCH_REQUEST_MIN_SIZE, DEFAULT_MIN_BATCH_SIZE, 1);
+        int maxBatchSize = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_BATCH_REQUEST_MAX_SIZE, String.valueOf(initialBatchSize), 1);
+        if (maxBatchSize < minBatchSize) {
+            throw new ConfigException(SINK_HTTP_BATCH_REQUEST_MAX_SIZE, maxBatchSize,
+                "Value must be greater than or equal to " + SINK_HTTP_BATCH_REQUEST_MIN_SIZE);
+        }
+        long targetLatencyMs = ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_BATCH_REQUEST_TARGET_LATENCY_MS, DEFAULT_TARGET_LATENCY_MS, 1);
+        int windowSize = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_BATCH_REQUEST_LATENCY_WINDOW, DEFAULT_WINDOW_SIZE, MIN_WINDOW_SIZE);
+
+        return new AdaptiveBatchSize(
+            initialBatchSize,
+            minBatchSize,
+            maxBatchSize,
+            targetLatencyMs,
+            windowSize
+        );
+    }
+
+    /**
+     * @return current batch size.
+     */
+    int get() {
+        return batchSize;
+    }
+
+    /**
+     * Records latency of a request that got a response.
+     *
+     * @param latencyMs time between sending the request and receiving the response.
+     */
+    synchronized void onLatency(long latencyMs) {
+        latencies[nextSampleIndex] = latencyMs;
+        nextSampleIndex = (nextSampleIndex + 1) % latencies.length;
+        samplesInWindow = Math.min(samplesInWindow + 1, latencies.length);
+
+        if (++samplesSinceDecision < samplesPerDecision) {
+            return;
+        }
+        samplesSinceDecision = 0;
+
+        if (percentileLatency() > targetLatencyMs) {
+            decrease();
+        } else {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 10));
+        }
+    }
+
+    /**
+     * Records a request that failed because of a reason that may be caused by endpoint overload.
+     */
+    synchronized void onTransientFailure() {
+        decrease();
+    }
+
+    private void decrease() {
+        batchSize = Math.max(minBatchSize, batchSize / 2);
+        samplesInWindow = 0;
+        nextSampleIndex = 0;
+        samplesSinceDecision = 0;
+    }
+
+    private long percentileLatency() {
+        long[] window = Arrays.copyOf(latencies, samplesInWindow);
+        Arrays.sort(window);
+        int index = (int) Math.ceil(PERCENTILE * window.length) - 1;
+        return window[Math.max(0, index)];
+    }
+}
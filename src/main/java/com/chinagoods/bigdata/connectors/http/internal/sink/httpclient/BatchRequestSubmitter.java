@@ -1,6 +1,5 @@
 package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
 
-import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -12,21 +11,32 @@ import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.connector.sink2.Sink;
+import org.apache.flink.metrics.Gauge;
 
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
-import org.apache.logging.log4j.util.Strings;
-import org.jetbrains.annotations.NotNull;
 
 import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.PROP_DELIM;
 
 /**
  * This implementation groups received events in batches and submits each batch as individual HTTP
  * requests. Batch is created based on batch size or based on HTTP method type.
+ *
+ * <p>By default, all batches are sent through a single {@link OkHttpClient} lane, one after
+ * another. When more lanes are given, events are first split between lanes by {@link
+ * JsonFieldRequestPartitioner} and every lane is batched and sent on its own. The order of events
+ * is then preserved only for events with the same partition key.
+ *
+ * <p>Batch size may be adjusted at runtime based on endpoint latency, see {@link
+ * AdaptiveBatchSize}.
  */
 @Slf4j
 public class BatchRequestSubmitter extends AbstractRequestSubmitter {
 
+    private static final MediaType JSON_MEDIA_TYPE =
+        MediaType.parse("application/json; charset=utf-8");
+
     private static final byte[] BATCH_START_BYTES = "[".getBytes(StandardCharsets.UTF_8);
 
     private static final byte[] BATCH_END_BYTES = "]".getBytes(StandardCharsets.UTF_8);
@@ -35,67 +45,89 @@ public class BatchRequestSubmitter extends AbstractRequestSubmitter {
 
     private final int httpRequestBatchSize;
 
+    /**
+     * Clients used to send batches, one per lane. The first one is the {@link #httpClient}.
+     */
+    private final List<OkHttpClient> laneClients;
+
+    private final JsonFieldRequestPartitioner partitioner;
+
+    /**
+     * Adaptive batch size, null if batch size is fixed to {@link #httpRequestBatchSize}.
+     */
+    private final AdaptiveBatchSize adaptiveBatchSize;
+
     public BatchRequestSubmitter(
             Properties properties,
             String[] headersAndValue,
             OkHttpClient httpClient) {
 
-        super(properties, headersAndValue, httpClient);
+        this(properties, headersAndValue, Collections.singletonList(httpClient), null);
+    }
+
+    public BatchRequestSubmitter(
+            Properties properties,
+            String[] headersAndValue,
+            List<OkHttpClient> laneClients,
+            JsonFieldRequestPartitioner partitioner) {
+
+        super(properties, headersAndValue, laneClients.get(0));
+
+        if (laneClients.size() > 1 && partitioner == null) {
+            throw new IllegalArgumentException(
+                "Batch Request submitter with more than one lane requires a partitioner.");
+        }
 
         this.httpRequestBatchSize = Integer.parseInt(
             properties.getProperty(HttpConnectorConfigProperties.SINK_HTTP_BATCH_REQUEST_SIZE)
         );
+        this.laneClients = laneClients;
+        this.partitioner = partitioner;
+        this.adaptiveBatchSize = AdaptiveBatchSize.fromProperties(properties, httpRequestBatchSize);
     }
 
 
     @VisibleForTesting
     int getBatchSize() {
-        return httpRequestBatchSize;
+        return (adaptiveBatchSize == null) ? httpRequestBatchSize : adaptiveBatchSize.get();
+    }
+
+    @VisibleForTesting
+    int getNumberOfLanes() {
+        return laneClients.size();
+    }
+
+    @VisibleForTesting
+    List<OkHttpClient> getLaneClients() {
+        return laneClients;
     }
 
     private CompletableFuture<JavaNetHttpResponseWrapper> sendBatch(
+            OkHttpClient laneClient,
             String endpointUrl,
             List<HttpSinkRequestEntry> requestBatch) {
 
         HttpRequest httpRequest = buildHttpRequest(requestBatch, URI.create(endpointUrl));
-
-        CompletableFuture<JavaNetHttpResponseWrapper> future = new CompletableFuture<>();
-
-        httpClient
-            .newCall(httpRequest.getHttpRequest())
-                .enqueue(new Callback() {
-                    @Override
-                    public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                        log.error("Request fatally failed because of an exception", e);
-                        future.completeExceptionally(e);
-                    }
-
-                    @Override
-                    public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                        future.complete(new JavaNetHttpResponseWrapper(httpRequest, response));
-                    }
-                });
-        return future;
+        return enqueue(laneClient, httpRequest);
     }
 
     private HttpRequest buildHttpRequest(List<HttpSinkRequestEntry> requestBatch, URI endpointUri) {
-        MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
-
         try {
             String method = requestBatch.get(0).method;
             List<byte[]> elements = new ArrayList<>(requestBatch.size());
 
-            // By default, Java's BodyPublishers.ofByteArrays(elements) will just put Jsons
-            // into the HTTP body without any context.
+            // By default, the elements would be just put one after another into the HTTP body
+            // without any context.
             // What we do here is we pack every Json/byteArray into Json Array hence '[' and ']'
             // at the end, and we separate every element with comma.
+            // The elements are streamed into the request as they are, without joining them first.
             elements.add(BATCH_START_BYTES);
             for (HttpSinkRequestEntry entry : requestBatch) {
                 elements.add(entry.element);
                 elements.add(BATCH_ELEMENT_DELIM_BYTES);
             }
             elements.set(elements.size() - 1, BATCH_END_BYTES);
-            RequestBody body = RequestBody.create(Strings.join(elements, ' '), mediaType);
+            RequestBody body = new ByteArraysRequestBody(JSON_MEDIA_TYPE, elements);
 
             Headers.Builder headersBuilder = new Headers.Builder()
                     .add("Authorization", "Bearer your_token")
@@ -110,7 +142,7 @@ public class BatchRequestSubmitter extends AbstractRequestSubmitter {
                     .post(body)
                     .headers(headersBuilder.build())
                     .build();
-            return new HttpRequest(request, elements, method);
+            return new HttpRequest(request, elements, method, new ArrayList<>(requestBatch));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -123,14 +155,42 @@ public class BatchRequestSubmitter extends AbstractRequestSubmitter {
         }
 
         List<CompletableFuture<JavaNetHttpResponseWrapper>> responseFutures = new ArrayList<>();
+        if (laneClients.size() == 1) {
+            submitLane(httpClient, endpointUrl, requestsToSubmit, responseFutures);
+            return responseFutures;
+        }
+
+        List<List<HttpSinkRequestEntry>> lanes = new ArrayList<>(laneClients.size());
+        for (int i = 0; i < laneClients.size(); i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (HttpSinkRequestEntry entry : requestsToSubmit) {
+            lanes.get(partitioner.partition(entry, laneClients.size())).add(entry);
+        }
+
+        for (int i = 0; i < laneClients.size(); i++) {
+            if (!lanes.get(i).isEmpty()) {
+                submitLane(laneClients.get(i), endpointUrl, lanes.get(i), responseFutures);
+            }
+        }
+        return responseFutures;
+    }
+
+    private void submitLane(
+            OkHttpClient laneClient,
+            String endpointUrl,
+            List<HttpSinkRequestEntry> requestsToSubmit,
+            List<CompletableFuture<JavaNetHttpResponseWrapper>> responseFutures) {
+
+        int batchSize = getBatchSize();
         String previousReqeustMethod = requestsToSubmit.get(0).method;
-        List<HttpSinkRequestEntry> requestBatch = new ArrayList<>(httpRequestBatchSize);
+        List<HttpSinkRequestEntry> requestBatch = new ArrayList<>(batchSize);
 
         for (HttpSinkRequestEntry entry : requestsToSubmit) {
-            if (requestBatch.size() == httpRequestBatchSize
+            if (requestBatch.size() == batchSize
                     || !previousReqeustMethod.equalsIgnoreCase(entry.method)) {
                 // break batch and submit
-                responseFutures.add(sendBatch(endpointUrl, requestBatch));
+                responseFutures.add(sendBatch(laneClient, endpointUrl, requestBatch));
                 requestBatch.clear();
             }
             requestBatch.add(entry);
@@ -138,7 +198,39 @@ public class BatchRequestSubmitter extends AbstractRequestSubmitter {
         }
 
         // submit anything that left
-        responseFutures.add(sendBatch(endpointUrl, requestBatch));
-        return responseFutures;
+        responseFutures.add(sendBatch(laneClient, endpointUrl, requestBatch));
+    }
+
+    @Override
+    public void onResponse(JavaNetHttpResponseWrapper response, boolean transientFailure) {
+        super.onResponse(response, transientFailure);
+        if (adaptiveBatchSize == null) {
+            return;
+        }
+
+        if (transientFailure) {
+            adaptiveBatchSize.onTransientFailure();
+        } else {
+            response.getResponse().ifPresent(httpResponse -> adaptiveBatchSize.onLatency(
+                httpResponse.receivedResponseAtMillis() - httpResponse.sentRequestAtMillis()));
+        }
+    }
+
+    @Override
+    public void open(Sink.InitContext context) {
+        super.open(context);
+        context.metricGroup().gauge("currentHttpRequestBatchSize", (Gauge<Integer>) this::getBatchSize);
+    }
+
+    /**
+     * Shuts down dispatcher executors of all lanes. Calls that are already running are let to
+     * finish, after that lane threads exit.
+     */
+    @Override
+    public void close() {
+        super.close();
+        for (OkHttpClient laneClient : laneClients) {
+            laneClient.dispatcher().executorService().shutdown();
+        }
     }
 }
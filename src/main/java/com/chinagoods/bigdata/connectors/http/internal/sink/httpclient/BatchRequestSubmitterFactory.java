@@ -1,23 +1,30 @@
 package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.apache.flink.util.StringUtils;
 import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 
 import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ConfigUtils;
 import com.chinagoods.bigdata.connectors.http.internal.utils.JavaNetHttpClientFactory;
 import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
 
 public class BatchRequestSubmitterFactory implements RequestSubmitterFactory {
 
-    // TODO Add this property to config. Make sure to add note in README.md that will describe that
-    //  any value greater than one will break order of messages.
+    // Every lane uses a single thread, any value greater than one would break order of messages
+    // within the lane. Throughput is scaled with the number of lanes instead.
     int HTTP_CLIENT_THREAD_POOL_SIZE = 1;
 
+    private static final String DEFAULT_REQUEST_LANES = "1";
+
     private final String maxBatchSize;
 
     public BatchRequestSubmitterFactory(int maxBatchSize) {
@@ -59,18 +66,60 @@ public class BatchRequestSubmitterFactory implements RequestSubmitterFactory {
             }
         }
 
-        ExecutorService httpClientExecutor =
-            Executors.newFixedThreadPool(
-                HTTP_CLIENT_THREAD_POOL_SIZE,
-                new ExecutorThreadFactory(
-                    "http-sink-client-batch-request-worker",
-                    ThreadUtils.LOGGING_EXCEPTION_HANDLER)
-            );
+        int numberOfLanes = (int) ConfigUtils.getLongProperty(
+            properties,
+            HttpConnectorConfigProperties.SINK_HTTP_REQUEST_LANES,
+            DEFAULT_REQUEST_LANES,
+            1
+        );
 
-        return new BatchRequestSubmitter(
+        if (numberOfLanes == 1) {
+            return new BatchRequestSubmitter(
                 properties,
                 headersAndValues,
-                JavaNetHttpClientFactory.createClient(properties, httpClientExecutor)
+                JavaNetHttpClientFactory.createClient(
+                    properties,
+                    createHttpClientExecutor("http-sink-client-batch-request-worker"))
             );
+        }
+
+        String partitionKey =
+            properties.getProperty(HttpConnectorConfigProperties.SINK_HTTP_REQUEST_PARTITION_KEY);
+        if (StringUtils.isNullOrWhitespaceOnly(partitionKey)) {
+            throw new ConfigException(
+                HttpConnectorConfigProperties.SINK_HTTP_REQUEST_PARTITION_KEY,
+                partitionKey,
+                String.format("Partition key is required when %s is greater than 1.",
+                    HttpConnectorConfigProperties.SINK_HTTP_REQUEST_LANES)
+            );
+        }
+
+        // All lanes share connection pool of the first client, each has its own dispatcher.
+        List<OkHttpClient> laneClients = new ArrayList<>(numberOfLanes);
+        OkHttpClient firstLaneClient = JavaNetHttpClientFactory.createClient(
+            properties,
+            createHttpClientExecutor("http-sink-client-batch-request-lane-0-worker")
+        );
+        laneClients.add(firstLaneClient);
+        for (int lane = 1; lane < numberOfLanes; lane++) {
+            ExecutorService laneExecutor = createHttpClientExecutor(
+                "http-sink-client-batch-request-lane-" + lane + "-worker");
+            laneClients.add(
+                firstLaneClient.newBuilder().dispatcher(new Dispatcher(laneExecutor)).build());
+        }
+
+        return new BatchRequestSubmitter(
+            properties,
+            headersAndValues,
+            laneClients,
+            new JsonFieldRequestPartitioner(partitionKey.trim())
+        );
+    }
+
+    private ExecutorService createHttpClientExecutor(String poolName) {
+        return Executors.newFixedThreadPool(
+            HTTP_CLIENT_THREAD_POOL_SIZE,
+            new ExecutorThreadFactory(poolName, ThreadUtils.LOGGING_EXCEPTION_HANDLER)
+        );
     }
 }
@@ -0,0 +1,54 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.io.IOException;
+import java.util.List;
+
+import lombok.NonNull;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * A {@link RequestBody} that writes a sequence of byte arrays one after another directly to the
+ * request's {@link BufferedSink}. Unlike {@link RequestBody#create(byte[], MediaType)} it does not
+ * require concatenating the arrays into a single one first, which for big batches saves copying
+ * the whole request body.
+ *
+ * <p>The byte arrays are not copied, hence they must not be modified until the request is sent.
+ */
+final class ByteArraysRequestBody extends RequestBody {
+
+    private final MediaType mediaType;
+
+    private final List<byte[]> byteArrays;
+
+    private final long contentLength;
+
+    ByteArraysRequestBody(MediaType mediaType, @NonNull List<byte[]> byteArrays) {
+        this.mediaType = mediaType;
+        this.byteArrays = byteArrays;
+
+        long length = 0;
+        for (byte[] byteArray : byteArrays) {
+            length += byteArray.length;
+        }
+        this.contentLength = length;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        for (byte[] byteArray : byteArrays) {
+            sink.write(byteArray);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ConfigUtils;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+/**
+ * Caps the number of outstanding HTTP calls of a request submitter to the limit estimated by
+ * {@link GradientConcurrencyLimit}. Calls over the limit are queued in order and started as soon
+ * as other calls complete, so the caller is never blocked.
+ *
+ * <p>Queued calls keep their {@code HttpSinkWriter} requests in flight. When the limit goes down,
+ * the writer reaches its maximum number of in flight requests sooner and backpressure is applied
+ * upstream.
+ */
+final class ConcurrencyLimiter {
+
+    private static final String DEFAULT_INITIAL_LIMIT = "4";
+
+    private static final String DEFAULT_MIN_LIMIT = "1";
+
+    private static final String DEFAULT_MAX_LIMIT = "64";
+
+    private final GradientConcurrencyLimit limit;
+
+    private final Queue<Runnable> queuedCalls = new ArrayDeque<>();
+
+    private int inFlight;
+
+    ConcurrencyLimiter(GradientConcurrencyLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Creates {@link ConcurrencyLimiter} based on HTTP connector properties.
+     *
+     * @param properties HTTP connector properties.
+     * @return new {@link ConcurrencyLimiter} instance or null if adaptive concurrency is not
+     * enabled.
+     */
+    static ConcurrencyLimiter fromProperties(Properties properties) {
+        if (!Boolean.parseBoolean(
+                properties.getProperty(SINK_HTTP_REQUEST_CONCURRENCY_ADAPTIVE, "false"))) {
+            return null;
+        }
+
+        int minLimit = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_REQUEST_CONCURRENCY_MIN_LIMIT, DEFAULT_MIN_LIMIT, 1);
+        int maxLimit = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_REQUEST_CONCURRENCY_MAX_LIMIT, DEFAULT_MAX_LIMIT, 1);
+        if (maxLimit < minLimit) {
+            throw new ConfigException(SINK_HTTP_REQUEST_CONCURRENCY_MAX_LIMIT, maxLimit,
+                "Value must be greater than or equal to " + SINK_HTTP_REQUEST_CONCURRENCY_MIN_LIMIT);
+        }
+        int initialLimit = (int) ConfigUtils.getLongProperty(properties,
+            SINK_HTTP_REQUEST_CONCURRENCY_INITIAL_LIMIT, DEFAULT_INITIAL_LIMIT, 1);
+
+        return new ConcurrencyLimiter(
+            new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit));
+    }
+
+    /**
+     * Starts the call right away if the limit allows it, otherwise queues it. Every started call
+     * must be followed by {@link #release(long, boolean)}.
+     *
+     * @param call action starting an HTTP call.
+     */
+    void execute(Runnable call) {
+        synchronized (this) {
+            if (inFlight >= limit.getLimit()) {
+                queuedCalls.add(call);
+                return;
+            }
+            inFlight++;
+        }
+        call.run();
+    }
+
+    /**
+     * Marks a call as completed, updates the limit and starts queued calls the new limit allows.
+     *
+     * @param rttNanos time from starting the call until its completion.
+     * @param dropped true if the call did not get a response.
+     */
+    void release(long rttNanos, boolean dropped) {
+        List<Runnable> callsToStart = new ArrayList<>();
+        synchronized (this) {
+            int currentLimit = limit.onSample(rttNanos, inFlight, dropped);
+            inFlight--;
+            while (inFlight < currentLimit && !queuedCalls.isEmpty()) {
+                callsToStart.add(queuedCalls.poll());
+                inFlight++;
+            }
+        }
+        callsToStart.forEach(Runnable::run);
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getQueued() {
+        return queuedCalls.size();
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getMaxLimit() {
+        return limit.getMaxLimit();
+    }
+
+    void registerMetrics(MetricGroup metricGroup) {
+        metricGroup.gauge("currentHttpRequestConcurrencyLimit", (Gauge<Integer>) this::getLimit);
+        metricGroup.gauge("numHttpRequestsInFlight", (Gauge<Integer>) this::getInFlight);
+        metricGroup.gauge("numHttpRequestsQueued", (Gauge<Integer>) this::getQueued);
+    }
+}
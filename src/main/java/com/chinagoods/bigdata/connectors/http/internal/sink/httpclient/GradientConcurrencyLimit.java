@@ -0,0 +1,96 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import lombok.Getter;
+
+/**
+ * Estimates how many HTTP requests may be outstanding at once without queueing up in the endpoint,
+ * based on the gradient between the long term and the current round trip time (RTT).
+ *
+ * <p>The long term RTT is an exponential moving average of all samples and approximates the RTT of
+ * an endpoint that is not overloaded. For every sample the limit is multiplied by {@code
+ * longRtt / rtt} (tolerating RTT growth up to {@link #RTT_TOLERANCE} and never shrinking by more
+ * than half) and increased by a square root of the limit, which allows it to grow while latency
+ * stays flat. New limit is smoothed with the previous one. Dropped requests, for example timed
+ * out, multiply the limit by {@link #DROP_BACKOFF_RATIO}.
+ *
+ * <p>The limit is not increased when less than half of it is used, since such samples do not
+ * tell how the endpoint behaves under the current limit.
+ */
+final class GradientConcurrencyLimit {
+
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double DROP_BACKOFF_RATIO = 0.9;
+
+    private static final double LONG_RTT_DECAY = 0.95;
+
+    private static final int LONG_RTT_WINDOW = 600;
+
+    private static final double LONG_RTT_ALPHA = 2.0 / (LONG_RTT_WINDOW + 1);
+
+    @Getter
+    private final int minLimit;
+
+    @Getter
+    private final int maxLimit;
+
+    private double estimatedLimit;
+
+    private double longRttNanos;
+
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return current limit of outstanding requests.
+     */
+    synchronized int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    /**
+     * Updates the limit with a completed request.
+     *
+     * @param rttNanos round trip time of the request.
+     * @param inFlight number of requests that were outstanding when the request completed.
+     * @param dropped true if the request did not get a response.
+     * @return new limit.
+     */
+    synchronized int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * DROP_BACKOFF_RATIO);
+            return getLimit();
+        }
+
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_ALPHA;
+        }
+
+        // Let the long term RTT catch up faster when the endpoint recovers from a slow period.
+        if (longRttNanos > 2.0 * rttNanos) {
+            longRttNanos *= LONG_RTT_DECAY;
+        }
+
+        if (inFlight < estimatedLimit / 2) {
+            return getLimit();
+        }
+
+        double gradient = Math.max(
+            MIN_GRADIENT,
+            Math.min(1.0, RTT_TOLERANCE * longRttNanos / Math.max(1, rttNanos))
+        );
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        return getLimit();
+    }
+}
@@ -4,6 +4,8 @@ import java.util.List;
 
 import lombok.Data;
 
+import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+
 @Data
 public class HttpRequest {
 
@@ -13,4 +15,9 @@ public class HttpRequest {
 
     public final String method;
 
+    /**
+     * Sink request entries that were sent with this request.
+     */
+    public final List<HttpSinkRequestEntry> requestEntries;
+
 }
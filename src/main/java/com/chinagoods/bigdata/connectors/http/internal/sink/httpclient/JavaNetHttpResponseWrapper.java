@@ -26,7 +26,53 @@ final class JavaNetHttpResponseWrapper {
      */
     private final okhttp3.Response response;
 
+    /**
+     * An exception that prevented the HTTP request from getting a response.
+     */
+    private final Throwable exception;
+
+    /**
+     * True if the request failed in a way that sending it again cannot fix, for example when it
+     * could not be built from its {@link HttpSinkRequestEntry}. Such request is never retried.
+     */
+    private final boolean permanentFailure;
+
+    JavaNetHttpResponseWrapper(@NonNull HttpRequest httpRequest, okhttp3.Response response) {
+        this(httpRequest, response, null);
+    }
+
+    JavaNetHttpResponseWrapper(
+            @NonNull HttpRequest httpRequest,
+            okhttp3.Response response,
+            Throwable exception) {
+        this(httpRequest, response, exception, false);
+    }
+
+    private JavaNetHttpResponseWrapper(
+            @NonNull HttpRequest httpRequest,
+            okhttp3.Response response,
+            Throwable exception,
+            boolean permanentFailure) {
+        this.httpRequest = httpRequest;
+        this.response = response;
+        this.exception = exception;
+        this.permanentFailure = permanentFailure;
+    }
+
+    /**
+     * @return a wrapper of a request that failed with given exception and must not be retried.
+     */
+    static JavaNetHttpResponseWrapper permanentFailure(
+            @NonNull HttpRequest httpRequest,
+            @NonNull Throwable exception) {
+        return new JavaNetHttpResponseWrapper(httpRequest, null, exception, true);
+    }
+
     public Optional<okhttp3.Response> getResponse() {
         return Optional.ofNullable(response);
     }
+
+    public Optional<Throwable> getException() {
+        return Optional.ofNullable(exception);
+    }
 }
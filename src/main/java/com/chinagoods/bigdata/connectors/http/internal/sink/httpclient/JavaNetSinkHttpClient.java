@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.connector.sink2.Sink;
 
 import com.chinagoods.bigdata.connectors.http.HttpPostRequestCallback;
 import com.chinagoods.bigdata.connectors.http.internal.HeaderPreprocessor;
@@ -15,6 +16,7 @@ import com.chinagoods.bigdata.connectors.http.internal.SinkHttpClient;
 import com.chinagoods.bigdata.connectors.http.internal.SinkHttpClientResponse;
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+import com.chinagoods.bigdata.connectors.http.internal.sink.retry.SinkRetryPolicy;
 import com.chinagoods.bigdata.connectors.http.internal.status.ComposeHttpStatusCodeChecker;
 import com.chinagoods.bigdata.connectors.http.internal.status.ComposeHttpStatusCodeChecker.ComposeHttpStatusCodeCheckerConfig;
 import com.chinagoods.bigdata.connectors.http.internal.status.HttpStatusCodeChecker;
@@ -33,6 +35,8 @@ public class JavaNetSinkHttpClient implements SinkHttpClient {
 
     private final HttpStatusCodeChecker statusCodeChecker;
 
+    private final SinkRetryPolicy retryPolicy;
+
     private final HttpPostRequestCallback<HttpRequest> httpPostRequestCallback;
 
     private final RequestSubmitter requestSubmitter;
@@ -60,6 +64,7 @@ public class JavaNetSinkHttpClient implements SinkHttpClient {
                 .build();
 
         this.statusCodeChecker = new ComposeHttpStatusCodeChecker(checkerConfig);
+        this.retryPolicy = SinkRetryPolicy.fromProperties(properties);
 
         this.headersAndValues = HttpHeaderUtils.toHeaderAndValueArray(this.headerMap);
         this.requestSubmitter = requestSubmitterFactory.createSubmitter(
@@ -93,6 +98,7 @@ public class JavaNetSinkHttpClient implements SinkHttpClient {
         String endpointUrl) {
         List<HttpRequest> successfulResponses = new ArrayList<>();
         List<HttpRequest> failedResponses = new ArrayList<>();
+        List<HttpRequest> retryableResponses = new ArrayList<>();
 
         for (JavaNetHttpResponseWrapper response : responses) {
             HttpRequest sinkRequestEntry = response.getHttpRequest();
@@ -110,7 +116,13 @@ public class JavaNetSinkHttpClient implements SinkHttpClient {
             if (!optResponse.isPresent() ||
                 statusCodeChecker.isErrorCode(optResponse.get().code())) {
                 failedResponses.add(sinkRequestEntry);
+                boolean retryable = isRetryable(response);
+                if (retryable) {
+                    retryableResponses.add(sinkRequestEntry);
+                }
+                requestSubmitter.onResponse(response, retryable);
             } else {
+                requestSubmitter.onResponse(response, false);
                 try {
                     log.info("请求返回内容为： {}", Objects.requireNonNull(optResponse.get().peekBody(Long.MAX_VALUE)).string());
                 } catch (IOException ignored) {
@@ -119,7 +131,27 @@ public class JavaNetSinkHttpClient implements SinkHttpClient {
             }
         }
 
-        return new SinkHttpClientResponse(successfulResponses, failedResponses);
+        return new SinkHttpClientResponse(successfulResponses, failedResponses, retryableResponses);
+    }
+
+    private boolean isRetryable(JavaNetHttpResponseWrapper response) {
+        if (response.isPermanentFailure()) {
+            return false;
+        }
+        if (response.getResponse().isPresent()) {
+            return retryPolicy.isRetryable(response.getResponse().get().code());
+        }
+        return response.getException().map(retryPolicy::isRetryable).orElse(false);
+    }
+
+    @Override
+    public void open(Sink.InitContext context) {
+        requestSubmitter.open(context);
+    }
+
+    @Override
+    public void close() {
+        requestSubmitter.close();
     }
 
     @VisibleForTesting
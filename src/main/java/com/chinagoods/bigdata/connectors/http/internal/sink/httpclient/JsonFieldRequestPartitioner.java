@@ -0,0 +1,64 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.NonNull;
+import org.apache.flink.util.MathUtils;
+
+import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+import com.chinagoods.bigdata.util.JacksonBuilder;
+
+/**
+ * Assigns {@link HttpSinkRequestEntry} to one of the dispatch lanes based on the value of a top
+ * level field of its JSON body. Entries with the same value of that field always go to the same
+ * lane, hence their relative order is kept.
+ *
+ * <p>The body is read with a streaming parser which stops as soon as the key field is found.
+ * Entries that are not JSON objects or do not contain the key field are all assigned to the first
+ * lane.
+ */
+final class JsonFieldRequestPartitioner {
+
+    private static final JsonFactory JSON_FACTORY = JacksonBuilder.mapper.getFactory();
+
+    private final String keyField;
+
+    JsonFieldRequestPartitioner(@NonNull String keyField) {
+        this.keyField = keyField;
+    }
+
+    /**
+     * @param entry request entry to assign.
+     * @param numberOfLanes number of available lanes.
+     * @return index of the lane, from 0 to numberOfLanes - 1.
+     */
+    int partition(HttpSinkRequestEntry entry, int numberOfLanes) {
+        String key = extractKey(entry.element);
+        if (key == null) {
+            return 0;
+        }
+        return MathUtils.murmurHash(key.hashCode()) % numberOfLanes;
+    }
+
+    private String extractKey(byte[] element) {
+        try (JsonParser parser = JSON_FACTORY.createParser(element)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (keyField.equals(fieldName)) {
+                    return valueToken.isScalarValue() ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
 import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
 import com.chinagoods.bigdata.connectors.http.internal.config.SinkRequestEncryptionMode;
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
 import com.chinagoods.bigdata.util.Base64Utils;
 import com.chinagoods.bigdata.util.JacksonBuilder;
 import com.chinagoods.bigdata.util.RSAUtils;
@@ -11,7 +12,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
-import org.jetbrains.annotations.NotNull;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -22,21 +24,34 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.PROP_DELIM;
 
 /**
  * This implementation creates HTTP requests for every processed event.
+ *
+ * <p>In {@code xsyk} encryption mode, requests are built on a separate thread pool, so that
+ * encrypting an event overlaps with sending the previous ones. Requests are still passed to the
+ * HTTP client in the order of events.
  */
 @Slf4j
 public class PerRequestSubmitter extends AbstractRequestSubmitter {
 
+    private static final String DEFAULT_ENCRYPTION_THREAD_POOL_SIZE = "4";
+
     public String encryptionMode;
 
     public String encryptionXsykPubKey;
 
     public String encryptionXsykAppId;
 
+    /**
+     * Thread pool to build encrypted requests, null if requests are not encrypted.
+     */
+    private final ExecutorService encryptionThreadPool;
+
     public PerRequestSubmitter(
             Properties properties,
             String[] headersAndValues,
@@ -51,6 +66,18 @@ public class PerRequestSubmitter extends AbstractRequestSubmitter {
 
         encryptionXsykAppId = properties.getProperty(HttpConnectorConfigProperties.SINK_HTTP_REQUEST_ENCRYPTION_XSYK_APP_ID,
                 "CG001");
+
+        if (SinkRequestEncryptionMode.XSYK.getMode().equals(encryptionMode)) {
+            int encryptionThreadPoolSize = Integer.parseInt(properties.getProperty(
+                    HttpConnectorConfigProperties.SINK_HTTP_REQUEST_ENCRYPTION_THREAD_POOL_SIZE,
+                    DEFAULT_ENCRYPTION_THREAD_POOL_SIZE));
+            encryptionThreadPool = Executors.newFixedThreadPool(
+                    encryptionThreadPoolSize,
+                    new ExecutorThreadFactory(
+                            "http-sink-client-encryption-worker", ThreadUtils.LOGGING_EXCEPTION_HANDLER));
+        } else {
+            encryptionThreadPool = null;
+        }
     }
 
     @Override
@@ -61,28 +88,54 @@ public class PerRequestSubmitter extends AbstractRequestSubmitter {
         URI endpointUri = URI.create(endpointUrl);
         List<CompletableFuture<JavaNetHttpResponseWrapper>> responseFutures = new ArrayList<CompletableFuture<JavaNetHttpResponseWrapper>>();
 
-        for (HttpSinkRequestEntry entry : requestsToSubmit) {
-            HttpRequest httpRequest = buildHttpRequest(entry, endpointUri);
-            CompletableFuture<JavaNetHttpResponseWrapper> future = new CompletableFuture<>();
-            httpClient
-                    .newCall(httpRequest.getHttpRequest())
-                    .enqueue(new Callback() {
-                        @Override
-                        public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                            log.error("Request fatally failed because of an exception", e);
-                            future.completeExceptionally(e);
-                        }
+        if (encryptionThreadPool == null) {
+            for (HttpSinkRequestEntry entry : requestsToSubmit) {
+                HttpRequest httpRequest = buildHttpRequest(entry, endpointUri);
+                responseFutures.add(enqueue(httpRequest));
+            }
+            return responseFutures;
+        }
 
-                        @Override
-                        public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                            future.complete(new JavaNetHttpResponseWrapper(httpRequest, response));
+        // Requests are built in parallel, but every request is enqueued only after the previous
+        // one, to keep the order of events.
+        CompletableFuture<Void> previousEnqueued = CompletableFuture.completedFuture(null);
+        for (HttpSinkRequestEntry entry : requestsToSubmit) {
+            CompletableFuture<HttpRequest> httpRequestFuture = CompletableFuture.supplyAsync(
+                    () -> buildHttpRequest(entry, endpointUri), encryptionThreadPool);
+            CompletableFuture<JavaNetHttpResponseWrapper> responseFuture = new CompletableFuture<>();
+
+            previousEnqueued = previousEnqueued
+                    .thenCompose(ignored -> httpRequestFuture)
+                    .handle((httpRequest, err) -> {
+                        if (err != null) {
+                            // Fail only this entry, other requests of the batch are still sent
+                            // and a request that cannot be built is not retried.
+                            log.error("Failed to build a request for an event", err);
+                            responseFuture.complete(JavaNetHttpResponseWrapper.permanentFailure(
+                                    failedHttpRequest(entry), err));
+                        } else {
+                            enqueue(httpRequest).thenAccept(responseFuture::complete);
                         }
+                        return null;
                     });
-            responseFutures.add(future);
+            responseFutures.add(responseFuture);
         }
         return responseFutures;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (encryptionThreadPool != null) {
+            encryptionThreadPool.shutdownNow();
+        }
+    }
+
+    @VisibleForTesting
+    ExecutorService getEncryptionThreadPool() {
+        return encryptionThreadPool;
+    }
+
     public String xsykEncryption(byte[] bodyElement) {
         String timestamp = String.valueOf(System.currentTimeMillis());
         JsonNode paramsData = null;
@@ -122,6 +175,18 @@ public class PerRequestSubmitter extends AbstractRequestSubmitter {
         }
     }
 
+    /**
+     * @return request without an HTTP call, reported for an entry that failed to be built.
+     */
+    private static HttpRequest failedHttpRequest(HttpSinkRequestEntry requestEntry) {
+        return new HttpRequest(
+                null,
+                Collections.singletonList(requestEntry.element),
+                requestEntry.method,
+                Collections.singletonList(requestEntry)
+        );
+    }
+
     private HttpRequest buildHttpRequest(HttpSinkRequestEntry requestEntry, URI endpointUri) {
         MediaType mediaType = MediaType.parse("application/json; charset=utf-8");
         RequestBody body;
@@ -150,6 +215,11 @@ public class PerRequestSubmitter extends AbstractRequestSubmitter {
                 .headers(headersBuilder.build())
                 .build();
 
-        return new HttpRequest(request, Collections.singletonList(requestEntry.element), requestEntry.method);
+        return new HttpRequest(
+                request,
+                Collections.singletonList(requestEntry.element),
+                requestEntry.method,
+                Collections.singletonList(requestEntry)
+        );
     }
 }
@@ -0,0 +1,265 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.config.SinkRateLimitScope;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ConfigUtils;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ThreadUtils;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+/**
+ * Limits the rate of HTTP calls and of events sent in them with {@link TokenBucket}s. Calls are
+ * never rejected and the caller is never blocked. A call that exceeds the rate is queued and
+ * started by a scheduler once its tokens are available. Calls are started in the order they were
+ * passed to {@link #execute(int, Runnable)}.
+ *
+ * <p>With {@link SinkRateLimitScope#GLOBAL} scope, the configured rates are split evenly between
+ * all sink subtasks.
+ *
+ * <p>A {@code 429 Too Many Requests} response halves the rates and, if the response has a {@code
+ * Retry-After} header, holds all calls until the given time. Every successful response moves the
+ * rates a step back towards the configured ones.
+ */
+@Slf4j
+final class RequestRateLimiter {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private static final String DEFAULT_RATE = "0";
+
+    private final double requestsPerSecond;
+
+    private final double recordsPerSecond;
+
+    private final SinkRateLimitScope scope;
+
+    private final Queue<QueuedCall> queuedCalls = new ArrayDeque<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private boolean closed;
+
+    private volatile TokenBucket requestBucket;
+
+    private volatile TokenBucket recordBucket;
+
+    RequestRateLimiter(
+            double requestsPerSecond,
+            double recordsPerSecond,
+            SinkRateLimitScope scope) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.recordsPerSecond = recordsPerSecond;
+        this.scope = scope;
+        createBuckets(1);
+    }
+
+    /**
+     * Creates {@link RequestRateLimiter} based on HTTP connector properties.
+     *
+     * @param properties HTTP connector properties.
+     * @return new {@link RequestRateLimiter} instance or null if neither requests nor records rate
+     * limit is set.
+     */
+    static RequestRateLimiter fromProperties(Properties properties) {
+        double requestsPerSecond = ConfigUtils.getDoubleProperty(properties,
+            SINK_HTTP_RATE_LIMIT_REQUESTS_PER_SECOND, DEFAULT_RATE, 0, Double.MAX_VALUE);
+        double recordsPerSecond = ConfigUtils.getDoubleProperty(properties,
+            SINK_HTTP_RATE_LIMIT_RECORDS_PER_SECOND, DEFAULT_RATE, 0, Double.MAX_VALUE);
+        if (requestsPerSecond == 0 && recordsPerSecond == 0) {
+            return null;
+        }
+
+        String scopeValue = properties.getProperty(
+            SINK_HTTP_RATE_LIMIT_SCOPE, SinkRateLimitScope.SUBTASK.getScope());
+        SinkRateLimitScope scope = null;
+        for (SinkRateLimitScope rateLimitScope : SinkRateLimitScope.values()) {
+            if (rateLimitScope.getScope().equalsIgnoreCase(scopeValue.trim())) {
+                scope = rateLimitScope;
+            }
+        }
+        if (scope == null) {
+            throw new ConfigException(SINK_HTTP_RATE_LIMIT_SCOPE, scopeValue,
+                "Supported values are: subtask, global");
+        }
+
+        return new RequestRateLimiter(requestsPerSecond, recordsPerSecond, scope);
+    }
+
+    /**
+     * Adjusts the rates to the number of sink subtasks.
+     *
+     * @param numberOfSubtasks parallelism of the sink.
+     */
+    void open(int numberOfSubtasks) {
+        if (scope == SinkRateLimitScope.GLOBAL) {
+            createBuckets(Math.max(1, numberOfSubtasks));
+        }
+    }
+
+    /**
+     * Starts the call as soon as the rate limits allow it.
+     *
+     * @param records number of events sent by the call.
+     * @param call action starting an HTTP call.
+     */
+    void execute(int records, Runnable call) {
+        synchronized (this) {
+            long nowNanos = System.nanoTime();
+            long startAtNanos = reserve(records, nowNanos);
+            if (!queuedCalls.isEmpty() || startAtNanos > nowNanos) {
+                queuedCalls.add(new QueuedCall(startAtNanos, call));
+                if (queuedCalls.size() == 1) {
+                    scheduleStart(startAtNanos - nowNanos);
+                }
+                return;
+            }
+        }
+        call.run();
+    }
+
+    /**
+     * Adjusts the rates to the endpoint's response.
+     *
+     * @param response response to one of the calls.
+     */
+    void onResponse(Response response) {
+        List<TokenBucket> buckets = getBuckets();
+        if (response.code() == TOO_MANY_REQUESTS) {
+            long retryAfterNanos = getRetryAfter(response).toNanos();
+            log.warn("Endpoint is throttling requests, lowering request rate.");
+            long untilNanos = System.nanoTime() + retryAfterNanos;
+            buckets.forEach(bucket -> bucket.throttle(untilNanos));
+        } else if (response.isSuccessful()) {
+            buckets.forEach(TokenBucket::recover);
+        }
+    }
+
+    /**
+     * Stops the scheduler thread. Calls still waiting for their tokens are dropped.
+     */
+    synchronized void close() {
+        closed = true;
+        queuedCalls.clear();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getQueued() {
+        return queuedCalls.size();
+    }
+
+    @VisibleForTesting
+    List<TokenBucket> getBuckets() {
+        List<TokenBucket> buckets = new ArrayList<>(2);
+        if (requestBucket != null) {
+            buckets.add(requestBucket);
+        }
+        if (recordBucket != null) {
+            buckets.add(recordBucket);
+        }
+        return buckets;
+    }
+
+    private void createBuckets(int numberOfSubtasks) {
+        long nowNanos = System.nanoTime();
+        this.requestBucket = (requestsPerSecond > 0)
+            ? new TokenBucket(requestsPerSecond / numberOfSubtasks, nowNanos) : null;
+        this.recordBucket = (recordsPerSecond > 0)
+            ? new TokenBucket(recordsPerSecond / numberOfSubtasks, nowNanos) : null;
+    }
+
+    private long reserve(int records, long nowNanos) {
+        long startAtNanos = nowNanos;
+        TokenBucket requests = requestBucket;
+        if (requests != null) {
+            startAtNanos = Math.max(startAtNanos, requests.reserve(1, nowNanos));
+        }
+        TokenBucket recordsBucket = recordBucket;
+        if (recordsBucket != null) {
+            startAtNanos = Math.max(startAtNanos, recordsBucket.reserve(records, nowNanos));
+        }
+        return startAtNanos;
+    }
+
+    private void startDueCalls() {
+        List<Runnable> callsToStart = new ArrayList<>();
+        synchronized (this) {
+            long nowNanos = System.nanoTime();
+            while (!queuedCalls.isEmpty() && queuedCalls.peek().startAtNanos <= nowNanos) {
+                callsToStart.add(queuedCalls.poll().call);
+            }
+            if (!queuedCalls.isEmpty()) {
+                scheduleStart(queuedCalls.peek().startAtNanos - nowNanos);
+            }
+        }
+        callsToStart.forEach(Runnable::run);
+    }
+
+    private void scheduleStart(long delayNanos) {
+        if (closed) {
+            queuedCalls.clear();
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ExecutorThreadFactory(
+                    "http-sink-client-rate-limiter", ThreadUtils.LOGGING_EXCEPTION_HANDLER));
+        }
+        scheduler.schedule(this::startDueCalls, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Duration getRetryAfter(Response response) {
+        String retryAfter = response.header(RETRY_AFTER_HEADER);
+        if (retryAfter == null) {
+            return Duration.ZERO;
+        }
+
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt =
+                    ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration duration = Duration.between(ZonedDateTime.now(), retryAt);
+                return duration.isNegative() ? Duration.ZERO : duration;
+            } catch (DateTimeParseException ex) {
+                log.warn("Ignoring invalid {} header value: {}", RETRY_AFTER_HEADER, retryAfter);
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    private static final class QueuedCall {
+
+        private final long startAtNanos;
+
+        private final Runnable call;
+
+        private QueuedCall(long startAtNanos, Runnable call) {
+            this.startAtNanos = startAtNanos;
+            this.call = call;
+        }
+    }
+}
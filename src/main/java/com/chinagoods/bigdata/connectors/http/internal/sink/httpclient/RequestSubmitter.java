@@ -4,6 +4,8 @@ import java.net.MalformedURLException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import org.apache.flink.api.connector.sink2.Sink;
+
 import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
 
 /**
@@ -14,4 +16,31 @@ public interface RequestSubmitter {
     List<CompletableFuture<JavaNetHttpResponseWrapper>> submit(
         String endpointUrl,
         List<HttpSinkRequestEntry> requestToSubmit);
+
+    /**
+     * Called for every completed request, so the submitter can adjust to the endpoint's
+     * behaviour.
+     *
+     * @param response wrapped response of the request.
+     * @param transientFailure true if the request failed for a reason that is likely to go away,
+     *                         for example because of the endpoint being overloaded.
+     */
+    default void onResponse(JavaNetHttpResponseWrapper response, boolean transientFailure) {
+    }
+
+    /**
+     * Called before any request is submitted, see {@link
+     * com.chinagoods.bigdata.connectors.http.internal.SinkHttpClient#open(Sink.InitContext)}.
+     *
+     * @param context sink writer's init context.
+     */
+    default void open(Sink.InitContext context) {
+    }
+
+    /**
+     * Called when the sink writer is closed, see {@link
+     * com.chinagoods.bigdata.connectors.http.internal.SinkHttpClient#close()}.
+     */
+    default void close() {
+    }
 }
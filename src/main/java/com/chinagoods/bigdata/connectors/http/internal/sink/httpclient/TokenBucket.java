@@ -0,0 +1,90 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket handing out reservations instead of blocking. A caller reserves tokens and gets
+ * the time at which it may use them. Tokens that were not used for a while are stored up to one
+ * second worth of the rate, which allows short bursts.
+ *
+ * <p>A reservation bigger than the bucket is allowed, its cost is paid by the following
+ * reservations. This way a single big batch is not delayed forever.
+ *
+ * <p>The rate may be temporarily lowered, for example when the endpoint signals that it is
+ * overloaded, and it recovers step by step up to the configured rate.
+ */
+final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final double MIN_RATE_RATIO = 0.01;
+
+    private static final double RECOVERY_STEP_RATIO = 0.05;
+
+    private final double maxRatePerSecond;
+
+    private double ratePerSecond;
+
+    private double storedTokens;
+
+    private long nextFreeNanos;
+
+    TokenBucket(double ratePerSecond, long nowNanos) {
+        this.maxRatePerSecond = ratePerSecond;
+        this.ratePerSecond = ratePerSecond;
+        this.nextFreeNanos = nowNanos;
+    }
+
+    /**
+     * Reserves tokens.
+     *
+     * @param tokens number of tokens to reserve.
+     * @param nowNanos current time, as returned by {@link System#nanoTime()}.
+     * @return time, comparable with {@link System#nanoTime()}, at which reserved tokens may be used.
+     */
+    synchronized long reserve(double tokens, long nowNanos) {
+        refill(nowNanos);
+        long availableAtNanos = Math.max(nowNanos, nextFreeNanos);
+
+        double tokensFromStore = Math.min(tokens, storedTokens);
+        storedTokens -= tokensFromStore;
+        nextFreeNanos = availableAtNanos + toNanos(tokens - tokensFromStore);
+        return availableAtNanos;
+    }
+
+    /**
+     * Stops handing out tokens until given time and halves the rate.
+     *
+     * @param untilNanos time, comparable with {@link System#nanoTime()}, until which no tokens
+     *                   should be handed out.
+     */
+    synchronized void throttle(long untilNanos) {
+        storedTokens = 0;
+        nextFreeNanos = Math.max(nextFreeNanos, untilNanos);
+        ratePerSecond = Math.max(maxRatePerSecond * MIN_RATE_RATIO, ratePerSecond / 2);
+    }
+
+    /**
+     * Moves the rate one step back towards the configured rate.
+     */
+    synchronized void recover() {
+        ratePerSecond =
+            Math.min(maxRatePerSecond, ratePerSecond + maxRatePerSecond * RECOVERY_STEP_RATIO);
+    }
+
+    synchronized double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill(long nowNanos) {
+        if (nowNanos > nextFreeNanos) {
+            double newTokens = (nowNanos - nextFreeNanos) * ratePerSecond / NANOS_PER_SECOND;
+            storedTokens = Math.min(ratePerSecond, storedTokens + newTokens);
+            nextFreeNanos = nowNanos;
+        }
+    }
+
+    private long toNanos(double tokens) {
+        return (long) (tokens * NANOS_PER_SECOND / ratePerSecond);
+    }
+}
@@ -0,0 +1,171 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.retry;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.StringUtils;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.status.ComposeHttpStatusCodeChecker;
+import com.chinagoods.bigdata.connectors.http.internal.status.ComposeHttpStatusCodeChecker.ComposeHttpStatusCodeCheckerConfig;
+import com.chinagoods.bigdata.connectors.http.internal.status.HttpStatusCodeChecker;
+import com.chinagoods.bigdata.connectors.http.internal.utils.ConfigUtils;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+/**
+ * Decides whether a failed HTTP Sink request should be submitted again and how long the sink
+ * should back off before doing so.
+ *
+ * <p>A failure is retryable when the response status code matches
+ * {@link com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties#SINK_HTTP_RETRY_CODES_LIST}
+ * (by default {@code 5XX} and {@code 429}) or, if enabled, when no response was received because
+ * of an {@link IOException}. Every request entry is given at most {@code maxAttempts} attempts,
+ * the first one included, so the default of one attempt disables retries.
+ *
+ * <p>The backoff grows exponentially from {@code initialBackoffMs} by {@code backoffMultiplier}
+ * per attempt, is capped at {@code maxBackoffMs} and then randomly shortened by up to
+ * {@code jitter} of its value, so that subtasks failing at the same time do not retry in lockstep.
+ */
+@Getter
+public class SinkRetryPolicy {
+
+    private static final String DEFAULT_MAX_ATTEMPTS = "1";
+
+    private static final String DEFAULT_INITIAL_BACKOFF_MS = "100";
+
+    private static final String DEFAULT_MAX_BACKOFF_MS = "10000";
+
+    private static final String DEFAULT_BACKOFF_MULTIPLIER = "2.0";
+
+    private static final String DEFAULT_BACKOFF_JITTER = "0.5";
+
+    private static final String DEFAULT_RETRY_CODES = "5XX,429";
+
+    private static final String DEFAULT_RETRY_IO_ERROR = "true";
+
+    private static final double MAX_BACKOFF_MULTIPLIER = 100.0;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMs;
+
+    private final long maxBackoffMs;
+
+    private final double backoffMultiplier;
+
+    private final double jitter;
+
+    private final boolean retryOnIoError;
+
+    private final HttpStatusCodeChecker retryCodeChecker;
+
+    public SinkRetryPolicy(
+            int maxAttempts,
+            long initialBackoffMs,
+            long maxBackoffMs,
+            double backoffMultiplier,
+            double jitter,
+            boolean retryOnIoError,
+            HttpStatusCodeChecker retryCodeChecker) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.backoffMultiplier = backoffMultiplier;
+        this.jitter = jitter;
+        this.retryOnIoError = retryOnIoError;
+        this.retryCodeChecker = retryCodeChecker;
+    }
+
+    /**
+     * Creates {@link SinkRetryPolicy} based on HTTP connector properties.
+     *
+     * @param properties HTTP connector properties.
+     * @return new {@link SinkRetryPolicy} instance.
+     * @throws ConfigException when any of the retry properties has an invalid value.
+     */
+    public static SinkRetryPolicy fromProperties(Properties properties) {
+        int maxAttempts = (int) ConfigUtils.getLongProperty(properties, SINK_HTTP_RETRY_MAX_ATTEMPTS,
+            DEFAULT_MAX_ATTEMPTS, 1);
+        long initialBackoffMs = ConfigUtils.getLongProperty(properties, SINK_HTTP_RETRY_INITIAL_BACKOFF_MS,
+            DEFAULT_INITIAL_BACKOFF_MS, 0);
+        long maxBackoffMs = ConfigUtils.getLongProperty(properties, SINK_HTTP_RETRY_MAX_BACKOFF_MS,
+            DEFAULT_MAX_BACKOFF_MS, initialBackoffMs);
+        double backoffMultiplier = ConfigUtils.getDoubleProperty(properties, SINK_HTTP_RETRY_BACKOFF_MULTIPLIER,
+            DEFAULT_BACKOFF_MULTIPLIER, 1.0, MAX_BACKOFF_MULTIPLIER);
+        double jitter = ConfigUtils.getDoubleProperty(properties, SINK_HTTP_RETRY_BACKOFF_JITTER,
+            DEFAULT_BACKOFF_JITTER, 0.0, 1.0);
+        boolean retryOnIoError = Boolean.parseBoolean(
+            properties.getProperty(SINK_HTTP_RETRY_IO_ERROR, DEFAULT_RETRY_IO_ERROR));
+
+        return new SinkRetryPolicy(
+            maxAttempts,
+            initialBackoffMs,
+            maxBackoffMs,
+            backoffMultiplier,
+            jitter,
+            retryOnIoError,
+            createRetryCodeChecker(properties)
+        );
+    }
+
+    /**
+     * @param statusCode status code of an HTTP response that was considered as an error.
+     * @return true if a request that got such response should be retried.
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryCodeChecker.isErrorCode(statusCode);
+    }
+
+    /**
+     * @param throwable exception that prevented a request from getting an HTTP response.
+     * @return true if a request that failed with such exception should be retried.
+     */
+    public boolean isRetryable(Throwable throwable) {
+        return retryOnIoError
+            && ExceptionUtils.findThrowable(throwable, IOException.class).isPresent();
+    }
+
+    /**
+     * @param attempt number of attempts that were already made for a request entry.
+     * @return true if the request entry may be submitted once again.
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * @param attempt number of attempts that were already made for a request entry.
+     * @return time in milliseconds to wait before the next attempt.
+     */
+    public long getBackoffMs(int attempt) {
+        double backoff = initialBackoffMs * Math.pow(backoffMultiplier, Math.max(0, attempt - 1));
+        long cappedBackoff = (long) Math.min(maxBackoffMs, backoff);
+        if (jitter > 0) {
+            cappedBackoff -= (long) (cappedBackoff * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return cappedBackoff;
+    }
+
+    private static HttpStatusCodeChecker createRetryCodeChecker(Properties properties) {
+        String retryCodes = properties.getProperty(SINK_HTTP_RETRY_CODES_LIST, DEFAULT_RETRY_CODES);
+        if (StringUtils.isNullOrWhitespaceOnly(retryCodes)) {
+            // explicitly empty list means that no status code is retryable.
+            return statusCode -> false;
+        }
+
+        Properties checkerProperties = new Properties();
+        checkerProperties.putAll(properties);
+        checkerProperties.setProperty(SINK_HTTP_RETRY_CODES_LIST, retryCodes);
+
+        return new ComposeHttpStatusCodeChecker(
+            ComposeHttpStatusCodeCheckerConfig.builder()
+                .properties(checkerProperties)
+                .whiteListPrefix(SINK_HTTP_RETRY_CODE_WHITE_LIST)
+                .errorCodePrefix(SINK_HTTP_RETRY_CODES_LIST)
+                .build()
+        );
+    }
+}
@@ -91,6 +91,72 @@ public final class ConfigUtils {
         return propertyKey.substring(delimiterLastIndex + 1);
     }
 
+    /**
+     * Reads a property as {@code long}, falling back to {@code defaultValue} when it is not set.
+     *
+     * @param properties properties to read the value from.
+     * @param propertyName name of the property.
+     * @param defaultValue value used when the property is not set.
+     * @param minValue the smallest accepted value.
+     * @return property value.
+     * @throws ConfigException when the value is not an integer or is smaller than {@code minValue}.
+     */
+    public static long getLongProperty(
+            Properties properties,
+            String propertyName,
+            String defaultValue,
+            long minValue) {
+        String value = properties.getProperty(propertyName, defaultValue);
+        long parsed;
+        try {
+            parsed = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigException(
+                String.format("Property %s must be an integer but was: %s", propertyName, value),
+                e
+            );
+        }
+        if (parsed < minValue) {
+            throw new ConfigException(propertyName, value,
+                "Value must be greater than or equal to " + minValue);
+        }
+        return parsed;
+    }
+
+    /**
+     * Reads a property as {@code double}, falling back to {@code defaultValue} when it is not set.
+     *
+     * @param properties properties to read the value from.
+     * @param propertyName name of the property.
+     * @param defaultValue value used when the property is not set.
+     * @param minValue the smallest accepted value.
+     * @param maxValue the biggest accepted value.
+     * @return property value.
+     * @throws ConfigException when the value is not a number or is out of the accepted range.
+     */
+    public static double getDoubleProperty(
+            Properties properties,
+            String propertyName,
+            String defaultValue,
+            double minValue,
+            double maxValue) {
+        String value = properties.getProperty(propertyName, defaultValue);
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigException(
+                String.format("Property %s must be a number but was: %s", propertyName, value),
+                e
+            );
+        }
+        if (parsed < minValue || parsed > maxValue) {
+            throw new ConfigException(propertyName, value,
+                String.format("Value must be between %s and %s", minValue, maxValue));
+        }
+        return parsed;
+    }
+
     private static <T> void tryAddToConfigMap(
             Properties properties,
             Class<T> clazz, Map<String, T> map,
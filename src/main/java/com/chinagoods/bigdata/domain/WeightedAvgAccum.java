@@ -1,14 +1,56 @@
 package com.chinagoods.bigdata.domain;
 
+import com.chinagoods.bigdata.util.Int128;
+import org.apache.flink.table.annotation.DataTypeHint;
+
 import java.io.Serializable;
 
 /**
  * Accumulator for WeightedAvg.
+ * 加权和为128位整数(sumHigh, sum), 乘积和累加都不会溢出;
+ * 只有基本类型字段, 使用{@link WeightedAvgAccumSerializer}定长序列化
  * @author xiaowei.song
  */
+@DataTypeHint(value = "RAW", bridgedTo = WeightedAvgAccum.class, rawSerializer = WeightedAvgAccumSerializer.class)
 public class WeightedAvgAccum implements Serializable {
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
+  /**
+   * 加权和的低64位(无符号)
+   */
   public long sum = 0;
-  public int count = 0;
+  /**
+   * 加权和的高64位
+   */
+  public long sumHigh = 0;
+  /**
+   * 权重之和
+   */
+  public long count = 0;
+
+  public void add(long value, long weight) {
+    long product = value * weight;
+    sumHigh = Int128.addHigh(sumHigh, sum, Int128.multiplyHigh(value, weight), product);
+    sum += product;
+    count = Math.addExact(count, weight);
+  }
+
+  public void subtract(long value, long weight) {
+    long product = value * weight;
+    sumHigh = Int128.subtractHigh(sumHigh, sum, Int128.multiplyHigh(value, weight), product);
+    sum -= product;
+    count = Math.subtractExact(count, weight);
+  }
+
+  public void addAll(WeightedAvgAccum other) {
+    sumHigh = Int128.addHigh(sumHigh, sum, other.sumHigh, other.sum);
+    sum += other.sum;
+    count = Math.addExact(count, other.count);
+  }
+
+  public void reset() {
+    sum = 0;
+    sumHigh = 0;
+    count = 0;
+  }
 }
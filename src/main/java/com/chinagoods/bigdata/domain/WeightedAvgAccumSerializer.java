@@ -0,0 +1,91 @@
+package com.chinagoods.bigdata.domain;
+
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+/**
+ * Serializer for {@link WeightedAvgAccum}.
+ * 格式: sum, sumHigh, count, 定长24字节
+ * @author xiaowei.song
+ */
+public final class WeightedAvgAccumSerializer extends TypeSerializerSingleton<WeightedAvgAccum> {
+  private static final long serialVersionUID = 1L;
+
+  private static final int LENGTH = 24;
+
+  public static final WeightedAvgAccumSerializer INSTANCE = new WeightedAvgAccumSerializer();
+
+  @Override
+  public boolean isImmutableType() {
+    return false;
+  }
+
+  @Override
+  public WeightedAvgAccum createInstance() {
+    return new WeightedAvgAccum();
+  }
+
+  @Override
+  public WeightedAvgAccum copy(WeightedAvgAccum from) {
+    return copy(from, new WeightedAvgAccum());
+  }
+
+  @Override
+  public WeightedAvgAccum copy(WeightedAvgAccum from, WeightedAvgAccum reuse) {
+    reuse.sum = from.sum;
+    reuse.sumHigh = from.sumHigh;
+    reuse.count = from.count;
+    return reuse;
+  }
+
+  @Override
+  public int getLength() {
+    return LENGTH;
+  }
+
+  @Override
+  public void serialize(WeightedAvgAccum record, DataOutputView target) throws IOException {
+    target.writeLong(record.sum);
+    target.writeLong(record.sumHigh);
+    target.writeLong(record.count);
+  }
+
+  @Override
+  public WeightedAvgAccum deserialize(DataInputView source) throws IOException {
+    return deserialize(new WeightedAvgAccum(), source);
+  }
+
+  @Override
+  public WeightedAvgAccum deserialize(WeightedAvgAccum reuse, DataInputView source) throws IOException {
+    reuse.sum = source.readLong();
+    reuse.sumHigh = source.readLong();
+    reuse.count = source.readLong();
+    return reuse;
+  }
+
+  @Override
+  public void copy(DataInputView source, DataOutputView target) throws IOException {
+    target.write(source, LENGTH);
+  }
+
+  @Override
+  public TypeSerializerSnapshot<WeightedAvgAccum> snapshotConfiguration() {
+    return new WeightedAvgAccumSerializerSnapshot();
+  }
+
+  /**
+   * Serializer configuration snapshot for compatibility and format evolution.
+   */
+  public static final class WeightedAvgAccumSerializerSnapshot
+      extends SimpleTypeSerializerSnapshot<WeightedAvgAccum> {
+
+    public WeightedAvgAccumSerializerSnapshot() {
+      super(() -> INSTANCE);
+    }
+  }
+}
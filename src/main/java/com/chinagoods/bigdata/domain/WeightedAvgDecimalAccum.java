@@ -0,0 +1,29 @@
+package com.chinagoods.bigdata.domain;
+
+/**
+ * Accumulator for WeightedAvgDecimal.
+ * 按DECIMAL的unscaled值累加128位加权和, scale在累加或撤回时记录;
+ * 使用{@link WeightedAvgDecimalAccumSerializer}定长序列化
+ * @author xiaowei.song
+ */
+public class WeightedAvgDecimalAccum extends WeightedAvgAccum {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 值的scale, 没有累加过时为-1
+   */
+  public int scale = -1;
+
+  public void addAll(WeightedAvgDecimalAccum other) {
+    if (other.scale >= 0) {
+      scale = other.scale;
+    }
+    super.addAll(other);
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    scale = -1;
+  }
+}
@@ -0,0 +1,94 @@
+package com.chinagoods.bigdata.domain;
+
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+/**
+ * Serializer for {@link WeightedAvgDecimalAccum}.
+ * 格式: sum, sumHigh, count, scale, 定长28字节
+ * @author xiaowei.song
+ */
+public final class WeightedAvgDecimalAccumSerializer extends TypeSerializerSingleton<WeightedAvgDecimalAccum> {
+  private static final long serialVersionUID = 1L;
+
+  private static final int LENGTH = 28;
+
+  public static final WeightedAvgDecimalAccumSerializer INSTANCE = new WeightedAvgDecimalAccumSerializer();
+
+  @Override
+  public boolean isImmutableType() {
+    return false;
+  }
+
+  @Override
+  public WeightedAvgDecimalAccum createInstance() {
+    return new WeightedAvgDecimalAccum();
+  }
+
+  @Override
+  public WeightedAvgDecimalAccum copy(WeightedAvgDecimalAccum from) {
+    return copy(from, new WeightedAvgDecimalAccum());
+  }
+
+  @Override
+  public WeightedAvgDecimalAccum copy(WeightedAvgDecimalAccum from, WeightedAvgDecimalAccum reuse) {
+    reuse.sum = from.sum;
+    reuse.sumHigh = from.sumHigh;
+    reuse.count = from.count;
+    reuse.scale = from.scale;
+    return reuse;
+  }
+
+  @Override
+  public int getLength() {
+    return LENGTH;
+  }
+
+  @Override
+  public void serialize(WeightedAvgDecimalAccum record, DataOutputView target) throws IOException {
+    target.writeLong(record.sum);
+    target.writeLong(record.sumHigh);
+    target.writeLong(record.count);
+    target.writeInt(record.scale);
+  }
+
+  @Override
+  public WeightedAvgDecimalAccum deserialize(DataInputView source) throws IOException {
+    return deserialize(new WeightedAvgDecimalAccum(), source);
+  }
+
+  @Override
+  public WeightedAvgDecimalAccum deserialize(WeightedAvgDecimalAccum reuse, DataInputView source) throws IOException {
+    reuse.sum = source.readLong();
+    reuse.sumHigh = source.readLong();
+    reuse.count = source.readLong();
+    reuse.scale = source.readInt();
+    return reuse;
+  }
+
+  @Override
+  public void copy(DataInputView source, DataOutputView target) throws IOException {
+    target.write(source, LENGTH);
+  }
+
+  @Override
+  public TypeSerializerSnapshot<WeightedAvgDecimalAccum> snapshotConfiguration() {
+    return new WeightedAvgDecimalAccumSerializerSnapshot();
+  }
+
+  /**
+   * Serializer configuration snapshot for compatibility and format evolution.
+   */
+  public static final class WeightedAvgDecimalAccumSerializerSnapshot
+      extends SimpleTypeSerializerSnapshot<WeightedAvgDecimalAccum> {
+
+    public WeightedAvgDecimalAccumSerializerSnapshot() {
+      super(() -> INSTANCE);
+    }
+  }
+}
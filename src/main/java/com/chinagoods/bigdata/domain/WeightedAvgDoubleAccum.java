@@ -0,0 +1,85 @@
+package com.chinagoods.bigdata.domain;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+
+import java.io.Serializable;
+
+/**
+ * Accumulator for WeightedAvgDouble.
+ * 加权和及权重之和使用补偿求和(Kahan-Babuska/Neumaier), 单独记录舍入误差,
+ * 大量数量级相差很大的值累加或撤回后结果不漂移;
+ * 只有基本类型字段, 使用{@link WeightedAvgDoubleAccumSerializer}定长序列化
+ * @author xiaowei.song
+ */
+@DataTypeHint(value = "RAW", bridgedTo = WeightedAvgDoubleAccum.class,
+    rawSerializer = WeightedAvgDoubleAccumSerializer.class)
+public class WeightedAvgDoubleAccum implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  public double sum = 0;
+  public double sumCompensation = 0;
+  public double weight = 0;
+  public double weightCompensation = 0;
+  /**
+   * 累加的行数
+   */
+  public long count = 0;
+
+  public void add(double value, double weight) {
+    addSum(value * weight);
+    addWeight(weight);
+    count++;
+  }
+
+  public void subtract(double value, double weight) {
+    addSum(-(value * weight));
+    addWeight(-weight);
+    count--;
+  }
+
+  public void addAll(WeightedAvgDoubleAccum other) {
+    addSum(other.sum);
+    addSum(other.sumCompensation);
+    addWeight(other.weight);
+    addWeight(other.weightCompensation);
+    count += other.count;
+  }
+
+  public double getSum() {
+    return sum + sumCompensation;
+  }
+
+  public double getWeight() {
+    return weight + weightCompensation;
+  }
+
+  public void reset() {
+    sum = 0;
+    sumCompensation = 0;
+    weight = 0;
+    weightCompensation = 0;
+    count = 0;
+  }
+
+  private void addSum(double value) {
+    double t = sum + value;
+    sumCompensation += compensation(sum, value, t);
+    sum = t;
+  }
+
+  private void addWeight(double value) {
+    double t = weight + value;
+    weightCompensation += compensation(weight, value, t);
+    weight = t;
+  }
+
+  /**
+   * @return double sum + value的舍入误差
+   */
+  private static double compensation(double sum, double value, double t) {
+    if (Math.abs(sum) >= Math.abs(value)) {
+      return (sum - t) + value;
+    }
+    return (value - t) + sum;
+  }
+}
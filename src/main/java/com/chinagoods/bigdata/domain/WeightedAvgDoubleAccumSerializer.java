@@ -0,0 +1,98 @@
+package com.chinagoods.bigdata.domain;
+
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+/**
+ * Serializer for {@link WeightedAvgDoubleAccum}.
+ * 格式: sum, sumCompensation, weight, weightCompensation, count, 定长40字节
+ * @author xiaowei.song
+ */
+public final class WeightedAvgDoubleAccumSerializer extends TypeSerializerSingleton<WeightedAvgDoubleAccum> {
+  private static final long serialVersionUID = 1L;
+
+  private static final int LENGTH = 40;
+
+  public static final WeightedAvgDoubleAccumSerializer INSTANCE = new WeightedAvgDoubleAccumSerializer();
+
+  @Override
+  public boolean isImmutableType() {
+    return false;
+  }
+
+  @Override
+  public WeightedAvgDoubleAccum createInstance() {
+    return new WeightedAvgDoubleAccum();
+  }
+
+  @Override
+  public WeightedAvgDoubleAccum copy(WeightedAvgDoubleAccum from) {
+    return copy(from, new WeightedAvgDoubleAccum());
+  }
+
+  @Override
+  public WeightedAvgDoubleAccum copy(WeightedAvgDoubleAccum from, WeightedAvgDoubleAccum reuse) {
+    reuse.sum = from.sum;
+    reuse.sumCompensation = from.sumCompensation;
+    reuse.weight = from.weight;
+    reuse.weightCompensation = from.weightCompensation;
+    reuse.count = from.count;
+    return reuse;
+  }
+
+  @Override
+  public int getLength() {
+    return LENGTH;
+  }
+
+  @Override
+  public void serialize(WeightedAvgDoubleAccum record, DataOutputView target) throws IOException {
+    target.writeDouble(record.sum);
+    target.writeDouble(record.sumCompensation);
+    target.writeDouble(record.weight);
+    target.writeDouble(record.weightCompensation);
+    target.writeLong(record.count);
+  }
+
+  @Override
+  public WeightedAvgDoubleAccum deserialize(DataInputView source) throws IOException {
+    return deserialize(new WeightedAvgDoubleAccum(), source);
+  }
+
+  @Override
+  public WeightedAvgDoubleAccum deserialize(WeightedAvgDoubleAccum reuse, DataInputView source)
+      throws IOException {
+    reuse.sum = source.readDouble();
+    reuse.sumCompensation = source.readDouble();
+    reuse.weight = source.readDouble();
+    reuse.weightCompensation = source.readDouble();
+    reuse.count = source.readLong();
+    return reuse;
+  }
+
+  @Override
+  public void copy(DataInputView source, DataOutputView target) throws IOException {
+    target.write(source, LENGTH);
+  }
+
+  @Override
+  public TypeSerializerSnapshot<WeightedAvgDoubleAccum> snapshotConfiguration() {
+    return new WeightedAvgDoubleAccumSerializerSnapshot();
+  }
+
+  /**
+   * Serializer configuration snapshot for compatibility and format evolution.
+   */
+  public static final class WeightedAvgDoubleAccumSerializerSnapshot
+      extends SimpleTypeSerializerSnapshot<WeightedAvgDoubleAccum> {
+
+    public WeightedAvgDoubleAccumSerializerSnapshot() {
+      super(() -> INSTANCE);
+    }
+  }
+}
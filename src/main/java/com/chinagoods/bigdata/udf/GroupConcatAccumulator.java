@@ -1,18 +1,358 @@
 package com.chinagoods.bigdata.udf;
 
+import org.apache.flink.table.annotation.DataTypeHint;
+
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Accumulator for GroupConcatUDAF.
  * 存储聚合过程中的中间状态
+ * <p>
+ * 按值计数的多重集合, 重复的值只存一份计数;
+ * 不排序时另外按序号记录每次出现的位置, 结果按加入顺序输出, 撤回移除该值第一次出现的位置, 与原先的List一致
+ * (去重时每个值只记录第一次出现的位置), 撤回为O(log n); 排序时按字符串升序或降序排列
+ * <p>
+ * 可以限制结果的元素个数及UTF-8字节长度, 在累加时生效, 每个组占用的内存受限制约束:
+ * 不排序时放不下的新值直接丢弃; 排序时只保留排在最前的值, 超出限制时淘汰排在最后的值
+ * (TreeMap作为有界的top-K堆, 淘汰和撤回都为O(log k)).
+ * 被丢弃或淘汰的值撤回时忽略, 之后也不会恢复
+ * <p>
+ * 状态使用{@link GroupConcatAccumulatorSerializer}序列化
  *
  * @author xiaowei.song
  */
+@DataTypeHint(value = "RAW", bridgedTo = GroupConcatAccumulator.class,
+        rawSerializer = GroupConcatAccumulatorSerializer.class)
 public class GroupConcatAccumulator implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
+
+    static final int ORDER_NONE = 0;
+    static final int ORDER_ASC = 1;
+    static final int ORDER_DESC = 2;
+
+    /**
+     * 值 -> 出现次数
+     */
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    String separator = ","; // 默认分隔符
+    /**
+     * 相同的值只输出一次, 元素个数按不同的值计算
+     */
+    boolean distinct;
+    int order = ORDER_NONE;
+    /**
+     * 元素个数上限, 0表示不限制
+     */
+    int maxCount;
+    /**
+     * 结果UTF-8字节长度上限(含分隔符), 0表示不限制
+     */
+    int maxBytes;
+
+    /**
+     * 不排序时: 序号 -> 值, 每次出现一条, 按序号即加入顺序输出
+     */
+    TreeMap<Long, String> sequence = new TreeMap<>();
+    /**
+     * 不排序时: 值 -> 该值各次出现的序号, 升序
+     */
+    Map<String, ArrayDeque<Long>> positions = new HashMap<>();
+    long nextSequence;
+
+    /**
+     * 结果的元素个数
+     */
+    int elementCount;
+    /**
+     * 结果中所有元素的UTF-8字节长度之和(不含分隔符)
+     */
+    long valueBytes;
+
+    /**
+     * 设置选项, 同一调用处的选项不变, 只在变化时调整
+     *
+     * @param distinct 相同的值只输出一次
+     * @param order    ORDER_NONE, ORDER_ASC或ORDER_DESC
+     * @param maxCount 元素个数上限, 小于等于0表示不限制
+     * @param maxBytes 结果UTF-8字节长度上限, 小于等于0表示不限制
+     */
+    void configure(boolean distinct, int order, int maxCount, int maxBytes) {
+        this.maxCount = Math.max(maxCount, 0);
+        this.maxBytes = Math.max(maxBytes, 0);
+        if (distinct == this.distinct && order == this.order) {
+            return;
+        }
+        this.distinct = distinct;
+        if (order != this.order) {
+            Map<String, Integer> reordered = newCounts(order);
+            reordered.putAll(counts);
+            counts = reordered;
+            this.order = order;
+        }
+        elementCount = 0;
+        valueBytes = 0;
+        sequence.clear();
+        positions.clear();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int elements = distinct ? 1 : entry.getValue();
+            countElements(entry.getKey(), elements);
+            if (order == ORDER_NONE) {
+                for (int i = 0; i < elements; i++) {
+                    appendOccurrence(entry.getKey());
+                }
+            }
+        }
+    }
+
+    static Map<String, Integer> newCounts(int order) {
+        if (order == ORDER_ASC) {
+            return new TreeMap<>();
+        } else if (order == ORDER_DESC) {
+            return new TreeMap<>(Collections.reverseOrder());
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * 加入一次值, 受元素个数及字节长度限制
+     *
+     * @param value 值
+     */
+    void accept(String value) {
+        Integer count = counts.get(value);
+        if (distinct && count != null) {
+            // 已输出过的值只增加计数
+            counts.put(value, count + 1);
+            return;
+        }
+        if (order == ORDER_NONE) {
+            if (!fits(value)) {
+                return;
+            }
+            counts.put(value, count == null ? 1 : count + 1);
+            countElements(value, 1);
+            appendOccurrence(value);
+            return;
+        }
+
+        if (!survivesEviction(value)) {
+            // 加入后会被自己触发的淘汰移除, 不加入, 以免淘汰排在它之后的值
+            return;
+        }
+        counts.put(value, count == null ? 1 : count + 1);
+        countElements(value, 1);
+        while (exceedsLimits()) {
+            evictLast();
+        }
+    }
+
+    /**
+     * 恢复状态时加入值, 不检查限制, 不排序时出现的位置由{@link #appendOccurrence(String)}恢复
+     *
+     * @param value 值
+     * @param count 次数
+     */
+    void restore(String value, int count) {
+        counts.put(value, count);
+        countElements(value, distinct ? 1 : count);
+    }
+
+    /**
+     * 不排序时在最后记录值的一次出现
+     *
+     * @param value 值
+     */
+    void appendOccurrence(String value) {
+        long position = nextSequence++;
+        sequence.put(position, value);
+        ArrayDeque<Long> valuePositions = positions.get(value);
+        if (valuePositions == null) {
+            valuePositions = new ArrayDeque<>(1);
+            positions.put(value, valuePositions);
+        }
+        valuePositions.addLast(position);
+    }
+
+    private void removeFirstOccurrence(String value) {
+        ArrayDeque<Long> valuePositions = positions.get(value);
+        sequence.remove(valuePositions.pollFirst());
+        if (valuePositions.isEmpty()) {
+            positions.remove(value);
+        }
+    }
+
+    /**
+     * 移除一次值, 值不存在时忽略
+     *
+     * @param value 值
+     */
+    void remove(String value) {
+        Integer count = counts.get(value);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            counts.remove(value);
+        } else {
+            counts.put(value, count - 1);
+        }
+        if (!distinct || count == 1) {
+            countElements(value, -1);
+            if (order == ORDER_NONE) {
+                removeFirstOccurrence(value);
+            }
+        }
+    }
+
+    /**
+     * 合并另一个累加器的值
+     *
+     * @param other 累加器
+     */
+    void addAll(GroupConcatAccumulator other) {
+        if (other.order == ORDER_NONE) {
+            for (String value : other.sequence.values()) {
+                for (int i = other.distinct ? other.counts.get(value) : 1; i > 0; i--) {
+                    accept(value);
+                }
+            }
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : other.counts.entrySet()) {
+            for (int i = entry.getValue(); i > 0; i--) {
+                accept(entry.getKey());
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    /**
+     * 按顺序连接所有值, 排序且不去重时重复的值连续出现
+     *
+     * @return String 连接后的字符串, 没有值时返回null
+     */
+    String join() {
+        if (counts.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        if (order == ORDER_NONE) {
+            for (String value : sequence.values()) {
+                if (!first) {
+                    sb.append(separator);
+                }
+                sb.append(value);
+                first = false;
+            }
+            return sb.toString();
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            for (int i = distinct ? 1 : entry.getValue(); i > 0; i--) {
+                if (!first) {
+                    sb.append(separator);
+                }
+                sb.append(entry.getKey());
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private boolean fits(String value) {
+        if (maxCount > 0 && elementCount >= maxCount) {
+            return false;
+        }
+        return maxBytes <= 0 || resultBytes(elementCount + 1, valueBytes + utf8Length(value)) <= maxBytes;
+    }
+
+    private boolean exceedsLimits() {
+        return elementCount > 0 && !withinLimits(elementCount, valueBytes);
+    }
+
+    private boolean withinLimits(int elements, long bytes) {
+        return (maxCount <= 0 || elements <= maxCount)
+                && (maxBytes <= 0 || resultBytes(elements, bytes) <= maxBytes);
+    }
+
+    /**
+     * 排序时判断新值加入后是否保留: 依次淘汰排在它之后的值, 淘汰完仍超出限制时新值自己也会被淘汰
+     *
+     * @param value 新值
+     * @return boolean 新值是否保留
+     */
+    private boolean survivesEviction(String value) {
+        int elements = elementCount + 1;
+        long bytes = valueBytes + utf8Length(value);
+        TreeMap<String, Integer> sorted = (TreeMap<String, Integer>) counts;
+        for (Map.Entry<String, Integer> entry : sorted.descendingMap().entrySet()) {
+            if (withinLimits(elements, bytes)) {
+                return true;
+            }
+            String key = entry.getKey();
+            int cmp = order == ORDER_ASC ? key.compareTo(value) : value.compareTo(key);
+            if (cmp <= 0) {
+                // 剩下的值都排在新值之前或与之相同, 下一个被淘汰的就是新值
+                return false;
+            }
+            int evicted = distinct ? 1 : entry.getValue();
+            elements -= evicted;
+            bytes -= (long) evicted * utf8Length(key);
+        }
+        return withinLimits(elements, bytes);
+    }
+
+    /**
+     * 淘汰一个排在最后的元素
+     */
+    private void evictLast() {
+        TreeMap<String, Integer> sorted = (TreeMap<String, Integer>) counts;
+        Map.Entry<String, Integer> last = sorted.lastEntry();
+        if (distinct || last.getValue() == 1) {
+            sorted.remove(last.getKey());
+        } else {
+            sorted.put(last.getKey(), last.getValue() - 1);
+        }
+        countElements(last.getKey(), -1);
+    }
+
+    private void countElements(String value, int elements) {
+        elementCount += elements;
+        valueBytes += (long) elements * utf8Length(value);
+    }
+
+    private long resultBytes(int elements, long bytes) {
+        return elements <= 1 ? bytes : bytes + (long) (elements - 1) * utf8Length(separator);
+    }
 
-    public List<String> values = new ArrayList<>();
-    public String separator = ","; // 默认分隔符
+    private static int utf8Length(String s) {
+        if (s == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
 }
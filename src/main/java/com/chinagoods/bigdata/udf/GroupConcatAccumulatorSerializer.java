@@ -0,0 +1,177 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializer for {@link GroupConcatAccumulator}.
+ * <p>
+ * 格式: 分隔符, 选项字节(去重标志及排序方式), 元素个数上限, 字节长度上限, 不同值的个数, 之后每个值及其次数;
+ * 不排序时之后再写出现的次数及按加入顺序每次出现的值在上面值表中的下标;
+ * 字符串为变长整数的字节长度加UTF-8字节, 分隔符长度加1以区分null, 整数均为变长编码
+ *
+ * @author xiaowei.song
+ */
+public final class GroupConcatAccumulatorSerializer extends TypeSerializerSingleton<GroupConcatAccumulator> {
+    private static final long serialVersionUID = 1L;
+
+    private static final int ORDER_MASK = 0x03;
+    private static final int FLAG_DISTINCT = 0x04;
+
+    public static final GroupConcatAccumulatorSerializer INSTANCE = new GroupConcatAccumulatorSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public GroupConcatAccumulator createInstance() {
+        return new GroupConcatAccumulator();
+    }
+
+    @Override
+    public GroupConcatAccumulator copy(GroupConcatAccumulator from) {
+        GroupConcatAccumulator copy = new GroupConcatAccumulator();
+        copy.counts = GroupConcatAccumulator.newCounts(from.order);
+        copy.counts.putAll(from.counts);
+        copy.separator = from.separator;
+        copy.distinct = from.distinct;
+        copy.order = from.order;
+        copy.maxCount = from.maxCount;
+        copy.maxBytes = from.maxBytes;
+        copy.elementCount = from.elementCount;
+        copy.valueBytes = from.valueBytes;
+        for (String value : from.sequence.values()) {
+            copy.appendOccurrence(value);
+        }
+        return copy;
+    }
+
+    @Override
+    public GroupConcatAccumulator copy(GroupConcatAccumulator from, GroupConcatAccumulator reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(GroupConcatAccumulator record, DataOutputView target) throws IOException {
+        if (record.separator == null) {
+            writeVarInt(0, target);
+        } else {
+            byte[] separator = record.separator.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(separator.length + 1, target);
+            target.write(separator);
+        }
+        target.writeByte((record.distinct ? FLAG_DISTINCT : 0) | record.order);
+        writeVarInt(record.maxCount, target);
+        writeVarInt(record.maxBytes, target);
+        writeVarInt(record.counts.size(), target);
+        for (Map.Entry<String, Integer> entry : record.counts.entrySet()) {
+            byte[] value = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(value.length, target);
+            target.write(value);
+            writeVarInt(entry.getValue(), target);
+        }
+        if (record.order == GroupConcatAccumulator.ORDER_NONE) {
+            Map<String, Integer> indexes = new HashMap<>(record.counts.size() * 2);
+            for (String value : record.counts.keySet()) {
+                indexes.put(value, indexes.size());
+            }
+            writeVarInt(record.sequence.size(), target);
+            for (String value : record.sequence.values()) {
+                writeVarInt(indexes.get(value), target);
+            }
+        }
+    }
+
+    @Override
+    public GroupConcatAccumulator deserialize(DataInputView source) throws IOException {
+        GroupConcatAccumulator record = new GroupConcatAccumulator();
+        int separatorLength = readVarInt(source);
+        record.separator = separatorLength == 0 ? null : readString(source, separatorLength - 1);
+        int options = source.readUnsignedByte();
+        record.distinct = (options & FLAG_DISTINCT) != 0;
+        record.order = options & ORDER_MASK;
+        record.counts = GroupConcatAccumulator.newCounts(record.order);
+        record.maxCount = readVarInt(source);
+        record.maxBytes = readVarInt(source);
+        int distinctNum = readVarInt(source);
+        String[] values = new String[distinctNum];
+        for (int i = 0; i < distinctNum; i++) {
+            values[i] = readString(source, readVarInt(source));
+            record.restore(values[i], readVarInt(source));
+        }
+        if (record.order == GroupConcatAccumulator.ORDER_NONE) {
+            int occurrences = readVarInt(source);
+            for (int i = 0; i < occurrences; i++) {
+                record.appendOccurrence(values[readVarInt(source)]);
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public GroupConcatAccumulator deserialize(GroupConcatAccumulator reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<GroupConcatAccumulator> snapshotConfiguration() {
+        return new GroupConcatAccumulatorSerializerSnapshot();
+    }
+
+    private static String readString(DataInputView source, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        source.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(int value, DataOutputView target) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            target.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputView source) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = source.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Serializer configuration snapshot for compatibility and format evolution.
+     */
+    public static final class GroupConcatAccumulatorSerializerSnapshot
+            extends SimpleTypeSerializerSnapshot<GroupConcatAccumulator> {
+
+        public GroupConcatAccumulatorSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
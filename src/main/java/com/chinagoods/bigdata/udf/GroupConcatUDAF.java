@@ -23,10 +23,18 @@ import org.apache.flink.table.functions.AggregateFunction;
 /**
  * GroupConcat UDAF - 实现类似Hive中group_concat的功能
  * 将同一组内的多个字符串值连接成一个字符串，使用指定的分隔符
+ * 值按出现的顺序连接，撤回时移除该值第一次出现的位置
+ *
+ * 可选参数依次为: 是否去重, 排序方式('asc'/'desc', 空表示按出现顺序), 元素个数上限, 结果UTF-8字节长度上限(0表示不限制)；
+ * 上限在累加时生效，不排序时达到上限后的新值被丢弃，排序时只保留排在最前的值，每个组的状态大小受上限约束。
+ * 被丢弃的值撤回时忽略，之后撤回已保留的值也不会恢复被丢弃的值
  *
  * 使用示例:
  * SELECT group_concat(name) FROM table GROUP BY category;
  * SELECT group_concat(name, '|') FROM table GROUP BY category;
+ * SELECT group_concat(tag, ',', true) FROM table GROUP BY category;
+ * SELECT group_concat(tag, ',', true, 'asc', 100) FROM table GROUP BY category;
+ * SELECT group_concat(tag, ',', true, 'desc', 100, 4096) FROM table GROUP BY category;
  *
  * @author xiaowei.song
  */
@@ -44,7 +52,7 @@ public class GroupConcatUDAF extends AggregateFunction<String, GroupConcatAccumu
      */
     public void accumulate(GroupConcatAccumulator accumulator, String value) {
         if (value != null && !value.trim().isEmpty()) {
-            accumulator.values.add(value);
+            accumulator.accept(value);
         }
     }
 
@@ -62,13 +70,67 @@ public class GroupConcatUDAF extends AggregateFunction<String, GroupConcatAccumu
     }
 
     /**
-     * 撤回方法 - 从累加器中移除值（用于支持更新和删除操作）
+     * 累加方法 - 添加新值到累加器，并指定分隔符和是否去重
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     * @param distinct 是否去重
+     */
+    public void accumulate(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct) {
+        accumulate(accumulator, value, separator, distinct, null, null, null);
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器，并指定分隔符、是否去重和排序方式
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     * @param distinct 是否去重
+     * @param order 排序方式 asc/desc，空表示按出现顺序
+     */
+    public void accumulate(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                           String order) {
+        accumulate(accumulator, value, separator, distinct, order, null, null);
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器，并指定分隔符、是否去重、排序方式和元素个数上限
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     * @param distinct 是否去重
+     * @param order 排序方式 asc/desc，空表示按出现顺序
+     * @param maxCount 元素个数上限，小于等于0表示不限制
+     */
+    public void accumulate(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                           String order, Integer maxCount) {
+        accumulate(accumulator, value, separator, distinct, order, maxCount, null);
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器，并指定分隔符、是否去重、排序方式、元素个数上限和结果字节长度上限
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     * @param distinct 是否去重
+     * @param order 排序方式 asc/desc，空表示按出现顺序
+     * @param maxCount 元素个数上限，小于等于0表示不限制
+     * @param maxBytes 结果UTF-8字节长度上限（含分隔符），小于等于0表示不限制
+     */
+    public void accumulate(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                           String order, Integer maxCount, Integer maxBytes) {
+        configure(accumulator, separator, distinct, order, maxCount, maxBytes);
+        accumulate(accumulator, value);
+    }
+
+    /**
+     * 撤回方法 - 从累加器中移除值（用于支持更新和删除操作），O(log n)
      * @param accumulator 累加器
      * @param value 要移除的值
      */
     public void retract(GroupConcatAccumulator accumulator, String value) {
         if (value != null) {
-            accumulator.values.remove(value);
+            accumulator.remove(value);
         }
     }
 
@@ -85,6 +147,46 @@ public class GroupConcatUDAF extends AggregateFunction<String, GroupConcatAccumu
         retract(accumulator, value);
     }
 
+    /**
+     * Retract method - remove value from accumulator with separator and distinct flag
+     */
+    public void retract(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct) {
+        retract(accumulator, value, separator, distinct, null, null, null);
+    }
+
+    /**
+     * Retract method - remove value from accumulator with separator, distinct flag and order
+     */
+    public void retract(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                        String order) {
+        retract(accumulator, value, separator, distinct, order, null, null);
+    }
+
+    /**
+     * Retract method - remove value from accumulator with separator, distinct flag, order and max count
+     */
+    public void retract(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                        String order, Integer maxCount) {
+        retract(accumulator, value, separator, distinct, order, maxCount, null);
+    }
+
+    /**
+     * Retract method - remove value from accumulator with all options,
+     * values dropped by the limits are ignored
+     * @param accumulator accumulator
+     * @param value value to remove
+     * @param separator separator
+     * @param distinct whether to emit each value once
+     * @param order asc/desc, empty for insertion order
+     * @param maxCount max element count
+     * @param maxBytes max UTF-8 byte length of the result
+     */
+    public void retract(GroupConcatAccumulator accumulator, String value, String separator, Boolean distinct,
+                        String order, Integer maxCount, Integer maxBytes) {
+        configure(accumulator, separator, distinct, order, maxCount, maxBytes);
+        retract(accumulator, value);
+    }
+
     /**
      * Merge method - merge multiple accumulators
      * @param accumulator target accumulator
@@ -92,13 +194,13 @@ public class GroupConcatUDAF extends AggregateFunction<String, GroupConcatAccumu
      */
     public void merge(GroupConcatAccumulator accumulator, Iterable<GroupConcatAccumulator> iterable) {
         for (GroupConcatAccumulator otherAcc : iterable) {
-            if (otherAcc.values != null) {
-                accumulator.values.addAll(otherAcc.values);
-            }
             // Use the last non-null separator
             if (otherAcc.separator != null) {
                 accumulator.separator = otherAcc.separator;
             }
+            // Options are the same for one call site, a fresh accumulator takes them from the merged one
+            accumulator.configure(otherAcc.distinct, otherAcc.order, otherAcc.maxCount, otherAcc.maxBytes);
+            accumulator.addAll(otherAcc);
         }
     }
 
@@ -109,9 +211,26 @@ public class GroupConcatUDAF extends AggregateFunction<String, GroupConcatAccumu
      */
     @Override
     public String getValue(GroupConcatAccumulator accumulator) {
-        if (accumulator.values == null || accumulator.values.isEmpty()) {
-            return null;
+        return accumulator.join();
+    }
+
+    private static void configure(GroupConcatAccumulator accumulator, String separator, Boolean distinct,
+                                  String order, Integer maxCount, Integer maxBytes) {
+        if (separator != null) {
+            accumulator.separator = separator;
+        }
+        accumulator.configure(Boolean.TRUE.equals(distinct), parseOrder(order),
+                maxCount == null ? 0 : maxCount, maxBytes == null ? 0 : maxBytes);
+    }
+
+    private static int parseOrder(String order) {
+        if (order == null || order.isEmpty()) {
+            return GroupConcatAccumulator.ORDER_NONE;
+        } else if ("asc".equalsIgnoreCase(order)) {
+            return GroupConcatAccumulator.ORDER_ASC;
+        } else if ("desc".equalsIgnoreCase(order)) {
+            return GroupConcatAccumulator.ORDER_DESC;
         }
-        return String.join(accumulator.separator, accumulator.values);
+        throw new IllegalArgumentException("group_concat order must be 'asc' or 'desc', but was: " + order);
     }
 }
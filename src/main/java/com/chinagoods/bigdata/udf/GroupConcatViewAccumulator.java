@@ -0,0 +1,26 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.api.dataview.MapView;
+
+/**
+ * Accumulator for GroupConcatViewUDAF.
+ * 值及出现次数存放在MapView中, 使用状态后端时每个值是一条独立的状态,
+ * 累加和撤回只读写该值对应的一条状态, 不会反序列化整个组
+ *
+ * @author xiaowei.song
+ */
+public class GroupConcatViewAccumulator {
+    /**
+     * 值 -> 出现次数
+     */
+    public MapView<String, Integer> counts = new MapView<>();
+    /**
+     * 所有值的出现次数之和
+     */
+    public long size;
+    public String separator = ","; // 默认分隔符
+    /**
+     * 结果的最大长度, 小于等于0表示不限制
+     */
+    public int maxLength;
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.functions.AggregateFunction;
+
+import java.util.Map;
+
+
+/**
+ * GroupConcat UDAF - 适用于大组的group_concat，值存放在MapView中
+ * 使用RocksDB状态后端时，每个值是一条独立的状态，累加和撤回只读写一条状态，
+ * 而{@link GroupConcatUDAF}每次都要读写整个组
+ *
+ * 结果中值的顺序由状态后端决定，不保证与输入顺序一致，重复的值连续出现；
+ * 可以指定结果的最大长度，超过时只保留完整放得下的值
+ *
+ * 使用示例:
+ * SELECT group_concat_view(name) FROM table GROUP BY category;
+ * SELECT group_concat_view(name, '|') FROM table GROUP BY category;
+ * SELECT group_concat_view(name, '|', 1024) FROM table GROUP BY category;
+ *
+ * @author xiaowei.song
+ */
+public class GroupConcatViewUDAF extends AggregateFunction<String, GroupConcatViewAccumulator> {
+
+    @Override
+    public GroupConcatViewAccumulator createAccumulator() {
+        return new GroupConcatViewAccumulator();
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     */
+    public void accumulate(GroupConcatViewAccumulator accumulator, String value) throws Exception {
+        if (value != null && !value.trim().isEmpty()) {
+            add(accumulator, value, 1);
+        }
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器，并指定分隔符
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     */
+    public void accumulate(GroupConcatViewAccumulator accumulator, String value, String separator) throws Exception {
+        if (separator != null) {
+            accumulator.separator = separator;
+        }
+        accumulate(accumulator, value);
+    }
+
+    /**
+     * 累加方法 - 添加新值到累加器，并指定分隔符和结果的最大长度
+     * @param accumulator 累加器
+     * @param value 要添加的值
+     * @param separator 分隔符
+     * @param maxLength 结果的最大长度，小于等于0表示不限制
+     */
+    public void accumulate(GroupConcatViewAccumulator accumulator, String value, String separator,
+                           Integer maxLength) throws Exception {
+        if (maxLength != null) {
+            accumulator.maxLength = maxLength;
+        }
+        accumulate(accumulator, value, separator);
+    }
+
+    /**
+     * 撤回方法 - 从累加器中移除值（用于支持更新和删除操作）
+     * @param accumulator 累加器
+     * @param value 要移除的值
+     */
+    public void retract(GroupConcatViewAccumulator accumulator, String value) throws Exception {
+        if (value == null) {
+            return;
+        }
+        Integer count = accumulator.counts.get(value);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            accumulator.counts.remove(value);
+        } else {
+            accumulator.counts.put(value, count - 1);
+        }
+        accumulator.size--;
+    }
+
+    /**
+     * Retract method - remove value from accumulator with separator
+     * @param accumulator accumulator
+     * @param value value to remove
+     * @param separator separator
+     */
+    public void retract(GroupConcatViewAccumulator accumulator, String value, String separator) throws Exception {
+        if (separator != null) {
+            accumulator.separator = separator;
+        }
+        retract(accumulator, value);
+    }
+
+    /**
+     * Retract method - remove value from accumulator with separator and max length
+     * @param accumulator accumulator
+     * @param value value to remove
+     * @param separator separator
+     * @param maxLength max length of the result
+     */
+    public void retract(GroupConcatViewAccumulator accumulator, String value, String separator,
+                        Integer maxLength) throws Exception {
+        if (maxLength != null) {
+            accumulator.maxLength = maxLength;
+        }
+        retract(accumulator, value, separator);
+    }
+
+    /**
+     * Merge method - merge multiple accumulators
+     * @param accumulator target accumulator
+     * @param iterable accumulators to merge
+     */
+    public void merge(GroupConcatViewAccumulator accumulator,
+                      Iterable<GroupConcatViewAccumulator> iterable) throws Exception {
+        for (GroupConcatViewAccumulator otherAcc : iterable) {
+            for (Map.Entry<String, Integer> entry : otherAcc.counts.entries()) {
+                add(accumulator, entry.getKey(), entry.getValue());
+            }
+            // Use the last non-null separator
+            if (otherAcc.separator != null) {
+                accumulator.separator = otherAcc.separator;
+            }
+            if (otherAcc.maxLength > 0) {
+                accumulator.maxLength = otherAcc.maxLength;
+            }
+        }
+    }
+
+    /**
+     * Get final result, values are appended while iterating the view
+     * @param accumulator accumulator
+     * @return concatenated string
+     */
+    @Override
+    public String getValue(GroupConcatViewAccumulator accumulator) {
+        if (accumulator.size <= 0) {
+            return null;
+        }
+        int maxLength = accumulator.maxLength > 0 ? accumulator.maxLength : Integer.MAX_VALUE;
+        String separator = accumulator.separator == null ? "" : accumulator.separator;
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Map.Entry<String, Integer> entry : accumulator.counts.entries()) {
+                String value = entry.getKey();
+                for (int i = entry.getValue(); i > 0; i--) {
+                    int appendLength = (sb.length() == 0 ? 0 : separator.length()) + value.length();
+                    if ((long) sb.length() + appendLength > maxLength) {
+                        // 超过最大长度, 不再读取剩余的值
+                        return sb.toString();
+                    }
+                    if (sb.length() > 0) {
+                        sb.append(separator);
+                    }
+                    sb.append(value);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read group_concat values from state", e);
+        }
+        return sb.toString();
+    }
+
+    private static void add(GroupConcatViewAccumulator accumulator, String value, int count) throws Exception {
+        Integer current = accumulator.counts.get(value);
+        accumulator.counts.put(value, current == null ? count : current + count);
+        accumulator.size += count;
+    }
+}
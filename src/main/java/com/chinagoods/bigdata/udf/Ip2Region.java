@@ -11,117 +11,145 @@
 
 package com.chinagoods.bigdata.udf;
 
-import com.google.common.collect.ImmutableMap;
+import com.chinagoods.bigdata.util.FormatTemplate;
 import com.chinagoods.bigdata.util.SpecifierParseFormat;
-import org.apache.commons.io.FileUtils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.apache.flink.table.functions.FunctionContext;
-import org.lionsoul.ip2region.DataBlock;
-import org.lionsoul.ip2region.DbConfig;
-import org.lionsoul.ip2region.DbSearcher;
-import org.lionsoul.ip2region.Util;
 import org.apache.flink.table.functions.ScalarFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.InputStream;
-import java.lang.reflect.Method;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * @author wwek
  */
 public class Ip2Region extends ScalarFunction {
+    /**
+     * 作业参数: 本地ip2region db文件路径, 不设置时使用jar中打包的db文件
+     */
+    public static final String DB_PATH = "ip2region.db.path";
+    /**
+     * 作业参数: 检查本地db文件更新的间隔(毫秒), 默认0不检查
+     */
+    public static final String DB_RELOAD_INTERVAL_MS = "ip2region.db.reload.interval.ms";
+    /**
+     * 作业参数: 本地IPv6 CIDR文件路径, 格式见{@link Ip6RegionTrie}, 不设置时IPv6地址返回未识别
+     */
+    public static final String IPV6_DB_PATH = "ip2region.ipv6.db.path";
+    /**
+     * 每个实例缓存的格式个数上限, 每个格式按地区数缓存结果, 超出时淘汰最久未使用的格式
+     */
+    private static final int MAX_CACHED_FORMATS = 16;
+
     final Logger Log = LoggerFactory.getLogger(getClass());
-    DbConfig config = null;
-    DbSearcher searcher = null;
+    /**
+     * TaskManager内所有实例共享的数据库
+     */
+    private transient Ip2RegionDb<Ip2RegionDb.Index> db;
+    private transient Ip2RegionDb<Ip6RegionTrie> ipv6Db;
+    /**
+     * 格式 -> 编译后的格式, IPv4和IPv6的地区id不同, 分别缓存
+     */
+    private transient LoadingCache<String, RegionFormat> regionFormats;
+    private transient LoadingCache<String, RegionFormat> ipv6RegionFormats;
+    /**
+     * 解析IPv6地址时复用的缓冲区
+     */
+    private transient long[] ipv6;
+    /**
+     * 批量查询时复用的排序缓冲区
+     */
+    private transient long[] sortKeys;
+    private transient int[] sortedRegionIds;
 
     @Override
     public void open(FunctionContext context) throws Exception {
+        regionFormats = newRegionFormats();
+        ipv6RegionFormats = newRegionFormats();
+        ipv6 = new long[2];
         try {
-            // 因为jar无法读取文件,复制创建临时文件
-            String tmpDir = System.getProperty("user.dir") + File.separator + "temp";
-            String dbPath = tmpDir + File.separator + "ip2region.db";
-            Log.info("init ip region db path [{}]", dbPath);
-            File file = new File(dbPath);
-
-            //从资源文件中拿db文件
-            InputStream dbF = Ip2Region.class.getClassLoader().getResourceAsStream("data/ip2region.db");
-
-            // 操作复制
-            FileUtils.copyInputStreamToFile(dbF, file);
-            config = new DbConfig();
-            searcher = new DbSearcher(config, dbPath);
-            Log.info("bean [{}]", config);
-            Log.info("bean [{}]", searcher);
+            String dbPath = context.getJobParameter(DB_PATH, null);
+            long reloadIntervalMs = Long.parseLong(context.getJobParameter(DB_RELOAD_INTERVAL_MS, "0"));
+            db = Ip2RegionDb.acquire(dbPath, reloadIntervalMs);
+            String ipv6DbPath = context.getJobParameter(IPV6_DB_PATH, null);
+            if (ipv6DbPath != null) {
+                ipv6Db = Ip2RegionDb.acquireIpv6(ipv6DbPath, reloadIntervalMs);
+            }
         } catch (Exception e) {
             Log.error("init ip region error:{}", e);
         }
         super.open(context);
     }
 
+    @Override
+    public void close() throws Exception {
+        Ip2RegionDb.release(db);
+        Ip2RegionDb.release(ipv6Db);
+        db = null;
+        ipv6Db = null;
+        super.close();
+    }
+
     public String doIp2Region(String str, String format) {
         String region = "未识别";
 
         // check is ip
-        if (!Util.isIpAddress(str)) {
-            return region;
+        long ip = str == null ? -1 : Ip2RegionDb.ip2long(str);
+        if (ip < 0) {
+            return str != null && str.indexOf(':') >= 0 ? doIpv6Region(str, format) : region;
         }
+        return doIpv4Region(ip, format);
+    }
 
+    private String doIpv4Region(long ip, String format) {
+        String region = "未识别";
         try {
             //db
-            if (searcher == null) {
-                Log.error("DbSearcher is null");
+            if (db == null) {
+                Log.error("Ip2RegionDb is null");
                 return null;
             }
-            long startTime = System.currentTimeMillis();
-            //查询算法
-            int algorithm = DbSearcher.MEMORY_ALGORITYM;
-            //B-tree
-            //DbSearcher.BINARY_ALGORITHM //Binary
-            //DbSearcher.MEMORY_ALGORITYM //Memory
-            //define the method
-            Method method = null;
-            switch (algorithm) {
-                case DbSearcher.BTREE_ALGORITHM:
-                    method = searcher.getClass().getMethod("btreeSearch", String.class);
-                    break;
-                case DbSearcher.BINARY_ALGORITHM:
-                    method = searcher.getClass().getMethod("binarySearch", String.class);
-                    break;
-                case DbSearcher.MEMORY_ALGORITYM:
-                    method = searcher.getClass().getMethod("memorySearch", String.class);
-                    break;
-                default:
+            // 只获取一次索引, 查询期间索引被替换也不影响本次结果
+            Ip2RegionDb.Index index = db.getIndex();
+            int regionId = index.search(ip);
+            if (regionId < 0) {
+                return region;
             }
 
-            DataBlock dataBlock = null;
-            if (!Util.isIpAddress(str)) {
-                Log.warn("warning: Invalid ip address");
+            // 同一地区的结果只格式化一次, 之后直接复用
+            String formatted = regionFormats.getUnchecked(format).format(index, regionId);
+            return formatted == null ? region : formatted;
+        } catch (Exception e) {
+            Log.error("error:{}", e);
+        }
+
+        return region;
+    }
+
+    private String doIpv6Region(String str, String format) {
+        String region = "未识别";
+        if (!Ip6RegionTrie.parseIpv6(str, 0, str.length(), ipv6)) {
+            return region;
+        }
+        // IPv4映射地址 ::ffff:a.b.c.d 按IPv4查询
+        if (ipv6[0] == 0 && (ipv6[1] >>> 32) == 0xFFFFL) {
+            return doIpv4Region(ipv6[1] & 0xFFFFFFFFL, format);
+        }
+        if (ipv6Db == null) {
+            return region;
+        }
+
+        try {
+            Ip6RegionTrie index = ipv6Db.getIndex();
+            int regionId = index.search(ipv6[0], ipv6[1]);
+            if (regionId < 0) {
+                return region;
             }
-            dataBlock = (DataBlock) method.invoke(searcher, str);
-            String result = dataBlock.getRegion();
-            long endTime = System.currentTimeMillis();
-            Log.debug("region use time[{}] result[{}]", endTime - startTime, result);
-
-            // 国家|区域|省份|城市|ISP
-            // 中国|华东|江苏省|苏州市|联通
-            String[] resultArray = result.split("\\|");
-
-            Map<String, String> resultMap = ImmutableMap.<String, String>builder()
-                    // country 国家-中国
-                    .put("country", resultArray[0])
-                    // area 区域-华东
-                    .put("area", resultArray[1])
-                    // province 省份-江苏省
-                    .put("province", resultArray[2])
-                    // city 城市-苏州市
-                    .put("city", resultArray[3])
-                    // isp ISP运营商-联通
-                    .put("isp", resultArray[4])
-                    .build();
-
-            return new SpecifierParseFormat().ip2regionParseFormat(format, resultMap);
+            String formatted = ipv6RegionFormats.getUnchecked(format).format(index, regionId);
+            return formatted == null ? region : formatted;
         } catch (Exception e) {
             Log.error("error:{}", e);
         }
@@ -129,6 +157,98 @@ public class Ip2Region extends ScalarFunction {
         return region;
     }
 
+    /**
+     * 查询ip归属地字段
+     *
+     * @param str String ip
+     * @return String[] 国家, 区域, 省份, 城市, ISP, 无法识别时返回null
+     */
+    String[] doIp2RegionFields(String str) {
+        if (str == null || db == null) {
+            return null;
+        }
+        long ip = Ip2RegionDb.ip2long(str);
+        if (ip < 0 && str.indexOf(':') >= 0 && Ip6RegionTrie.parseIpv6(str, 0, str.length(), ipv6)) {
+            if (ipv6[0] == 0 && (ipv6[1] >>> 32) == 0xFFFFL) {
+                ip = ipv6[1] & 0xFFFFFFFFL;
+            } else if (ipv6Db != null) {
+                Ip6RegionTrie index = ipv6Db.getIndex();
+                int regionId = index.search(ipv6[0], ipv6[1]);
+                return regionId < 0 ? null : index.getRegionFields(regionId);
+            }
+        }
+        if (ip < 0) {
+            return null;
+        }
+        Ip2RegionDb.Index index = db.getIndex();
+        int regionId = index.search(ip);
+        return regionId < 0 ? null : index.getRegionFields(regionId);
+    }
+
+    /**
+     * 批量查询ip归属地
+     * ip按数值排序后依次在索引中查找, 每个ip只在上一个ip的位置之后查找
+     *
+     * @param strs   String[] ip数组
+     * @param format String 格式
+     * @return String[] 与ip数组一一对应的归属地
+     */
+    public String[] doIp2Region(String[] strs, String format) {
+        if (strs == null) {
+            return null;
+        }
+        String region = "未识别";
+        String[] results = new String[strs.length];
+
+        //db
+        if (db == null) {
+            Log.error("Ip2RegionDb is null");
+            return null;
+        }
+
+        try {
+            // 高位为ip, 低31位为数组下标, 排序后即为按ip排序的下标
+            if (sortKeys == null || sortKeys.length < strs.length) {
+                sortKeys = new long[Math.max(strs.length, 16)];
+                sortedRegionIds = new int[sortKeys.length];
+            }
+            int length = 0;
+            for (int i = 0; i < strs.length; i++) {
+                // check is ip
+                long ip = strs[i] == null ? -1 : Ip2RegionDb.ip2long(strs[i]);
+                if (ip < 0) {
+                    results[i] = doIp2Region(strs[i], format);
+                } else {
+                    sortKeys[length++] = (ip << 31) | i;
+                }
+            }
+            Arrays.sort(sortKeys, 0, length);
+
+            Ip2RegionDb.Index index = db.getIndex();
+            index.search(sortKeys, length, sortedRegionIds);
+            RegionFormat regionFormat = regionFormats.getUnchecked(format);
+            for (int k = 0; k < length; k++) {
+                int i = (int) (sortKeys[k] & Integer.MAX_VALUE);
+                String formatted = sortedRegionIds[k] < 0 ? null : regionFormat.format(index, sortedRegionIds[k]);
+                results[i] = formatted == null ? region : formatted;
+            }
+        } catch (Exception e) {
+            Log.error("error:{}", e);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = region;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static LoadingCache<String, RegionFormat> newRegionFormats() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_FORMATS)
+                .build(CacheLoader.from(RegionFormat::new));
+    }
+
     public String eval(String str) {
         return doIp2Region(str, "%c %P %C %I");
     }
@@ -136,4 +256,45 @@ public class Ip2Region extends ScalarFunction {
     public String eval(String str, String field) {
         return doIp2Region(str, field);
     }
+
+    public String[] eval(String[] strs) {
+        return doIp2Region(strs, "%c %P %C %I");
+    }
+
+    public String[] eval(String[] strs, String field) {
+        return doIp2Region(strs, field);
+    }
+
+    /**
+     * 编译后的格式, 并按地区id缓存格式化后的结果
+     */
+    private static final class RegionFormat {
+        private final FormatTemplate template;
+        /**
+         * 缓存所属的索引, 地区id只在同一个索引内有效
+         */
+        private Ip2RegionDb.Regions formattedIndex;
+        private String[] formattedRegions;
+
+        private RegionFormat(String format) {
+            this.template = SpecifierParseFormat.IP2REGION_SPECIFIERS.compile(format);
+        }
+
+        private String format(Ip2RegionDb.Regions index, int regionId) {
+            if (formattedIndex != index) {
+                formattedIndex = index;
+                formattedRegions = new String[index.getRegionNum()];
+            }
+            String formatted = formattedRegions[regionId];
+            if (formatted == null) {
+                String[] fields = index.getRegionFields(regionId);
+                if (fields == null) {
+                    return null;
+                }
+                formatted = template.render(fields);
+                formattedRegions[regionId] = formatted;
+            }
+            return formatted;
+        }
+    }
 }
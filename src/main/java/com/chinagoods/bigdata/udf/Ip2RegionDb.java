@@ -0,0 +1,482 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * ip2region数据库
+ * <p>
+ * 同一个TaskManager中(同一个类加载器内)使用相同db文件的所有Ip2Region实例共享一份数据库:
+ * IPv4 db文件复制到唯一的临时文件, 再以只读方式内存映射, 不再每个实例各自加载到堆内存;
+ * IPv6 CIDR文件构建为堆外的{@link Ip6RegionTrie}
+ * <p>
+ * 默认使用jar中打包的IPv4 db文件, 也可以指定本地db文件并定时检查更新:
+ * 文件修改时间或大小变化且内容校验和(CRC32)不同时, 在后台线程加载新的索引,
+ * 加载完成后替换volatile引用, 查询无需加锁, 不会被加载阻塞
+ * <p>
+ * 通过引用计数管理, 最后一个实例关闭时停止检查更新并删除临时文件
+ *
+ * @param <T> 索引类型
+ * @author wwek
+ */
+final class Ip2RegionDb<T extends Ip2RegionDb.Regions> {
+    private static final Logger logger = LoggerFactory.getLogger(Ip2RegionDb.class);
+
+    static final int REGION_FIELD_NUM = 5;
+    private static final String DB_RESOURCE = "data/ip2region.db";
+    private static final int INDEX_BLOCK_LENGTH = 12;
+
+    /**
+     * 索引类型及db文件路径 -> 共享的数据库, jar中打包的db文件路径为null
+     */
+    private static final Map<String, Ip2RegionDb<?>> INSTANCES = new HashMap<>();
+
+    private final String key;
+    private final String dbPath;
+    private final Loader<T> loader;
+    private int refCount;
+    private volatile T index;
+    private ScheduledExecutorService reloadExecutor;
+    private boolean closed;
+    private long dbLastModified;
+    private long dbLength;
+
+    private Ip2RegionDb(String key, String dbPath, Loader<T> loader) {
+        this.key = key;
+        this.dbPath = dbPath;
+        this.loader = loader;
+    }
+
+    /**
+     * 索引中的地区, 地区id从0开始连续分配
+     */
+    interface Regions {
+        int getRegionNum();
+
+        /**
+         * @param regionId 地区id
+         * @return String[] 国家, 区域, 省份, 城市, ISP, 地区无法识别时返回null
+         */
+        String[] getRegionFields(int regionId);
+
+        /**
+         * @return 索引源文件内容的校验和
+         */
+        long getChecksum();
+
+        /**
+         * 索引不再使用时释放资源
+         */
+        default void delete() {
+        }
+    }
+
+    /**
+     * 从db文件内容构建索引
+     */
+    interface Loader<T> {
+        T load(InputStream dbF) throws IOException;
+    }
+
+    /**
+     * 获取共享的IPv4数据库, 第一次获取时加载
+     * 每次获取都需要对应一次{@link #release(Ip2RegionDb)}
+     *
+     * @param dbPath           本地db文件路径, 为null时使用jar中打包的db文件
+     * @param reloadIntervalMs 检查本地db文件更新的间隔, 小于等于0时不检查;
+     *                         同一db文件以第一次获取时的间隔为准
+     * @return Ip2RegionDb
+     * @throws IOException db文件读取失败
+     */
+    static Ip2RegionDb<Index> acquire(String dbPath, long reloadIntervalMs) throws IOException {
+        return acquire("ipv4", dbPath, reloadIntervalMs, Index::load);
+    }
+
+    /**
+     * 获取共享的IPv6数据库, 第一次获取时加载
+     * 每次获取都需要对应一次{@link #release(Ip2RegionDb)}
+     *
+     * @param dbPath           本地CIDR文件路径, 格式见{@link Ip6RegionTrie}
+     * @param reloadIntervalMs 检查本地文件更新的间隔, 小于等于0时不检查
+     * @return Ip2RegionDb
+     * @throws IOException 文件读取失败
+     */
+    static Ip2RegionDb<Ip6RegionTrie> acquireIpv6(String dbPath, long reloadIntervalMs) throws IOException {
+        return acquire("ipv6", Objects.requireNonNull(dbPath), reloadIntervalMs, Ip6RegionTrie::load);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <T extends Regions> Ip2RegionDb<T> acquire(String type,
+                                                                        String dbPath,
+                                                                        long reloadIntervalMs,
+                                                                        Loader<T> loader) throws IOException {
+        String key = type + ":" + dbPath;
+        Ip2RegionDb<T> db = (Ip2RegionDb<T>) INSTANCES.get(key);
+        if (db == null) {
+            db = new Ip2RegionDb<>(key, dbPath, loader);
+            if (dbPath == null) {
+                try (InputStream dbF = Ip2RegionDb.class.getClassLoader().getResourceAsStream(DB_RESOURCE)) {
+                    if (dbF == null) {
+                        throw new IOException("resource " + DB_RESOURCE + " not found");
+                    }
+                    db.index = loader.load(dbF);
+                }
+            } else {
+                File file = new File(dbPath);
+                db.dbLastModified = file.lastModified();
+                db.dbLength = file.length();
+                try (InputStream dbF = Files.newInputStream(file.toPath())) {
+                    db.index = loader.load(dbF);
+                }
+                if (reloadIntervalMs > 0) {
+                    db.startReload(reloadIntervalMs);
+                }
+            }
+            logger.info("init ip region db [{}] from [{}], regions [{}]",
+                    type, dbPath == null ? DB_RESOURCE : dbPath, db.index.getRegionNum());
+            INSTANCES.put(key, db);
+        }
+        db.refCount++;
+        return db;
+    }
+
+    /**
+     * 释放共享的数据库, 最后一个使用者释放后删除临时文件
+     *
+     * @param db 之前获取的数据库
+     */
+    static synchronized void release(Ip2RegionDb<?> db) {
+        if (db == null || INSTANCES.get(db.key) != db) {
+            return;
+        }
+        if (--db.refCount == 0) {
+            INSTANCES.remove(db.key);
+            if (db.reloadExecutor != null) {
+                db.reloadExecutor.shutdownNow();
+            }
+            synchronized (db) {
+                db.closed = true;
+                db.index.delete();
+            }
+        }
+    }
+
+    /**
+     * 当前的索引, 一次查询中应只获取一次, 查询和格式化都使用同一个索引
+     *
+     * @return 索引
+     */
+    T getIndex() {
+        return index;
+    }
+
+    private void startReload(long reloadIntervalMs) {
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ExecutorThreadFactory("ip2region-db-reload"));
+        reloadExecutor.scheduleWithFixedDelay(
+                this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void reloadIfChanged() {
+        File file = new File(dbPath);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (closed || lastModified == 0 || (lastModified == dbLastModified && length == dbLength)) {
+            return;
+        }
+
+        T newIndex = null;
+        try {
+            try (InputStream dbF = Files.newInputStream(file.toPath())) {
+                newIndex = loader.load(dbF);
+            }
+            if (newIndex.getChecksum() == index.getChecksum()) {
+                newIndex.delete();
+                logger.info("ip region db [{}] touched, content unchanged", key);
+            } else {
+                T oldIndex = index;
+                index = newIndex;
+                // 查询中的旧索引仍然可以读取, 映射随旧索引一起被回收
+                oldIndex.delete();
+                logger.info("ip region db [{}] reloaded, regions [{}]", key, newIndex.getRegionNum());
+            }
+            dbLastModified = lastModified;
+            dbLength = length;
+        } catch (Exception e) {
+            if (newIndex != null) {
+                newIndex.delete();
+            }
+            logger.warn("reload ip region db [{}] error, keep using the current one", key, e);
+        }
+    }
+
+    /**
+     * 内存映射的db文件及其地区索引, 加载后不再修改
+     */
+    static final class Index implements Regions {
+        private final Path path;
+        private final ByteBuffer buffer;
+        private final long checksum;
+        private final int firstIndexPtr;
+        private final int indexBlockNum;
+        /**
+         * 索引块下标 -> 地区id
+         */
+        private final int[] regionIds;
+        /**
+         * 地区id -> 国家, 区域, 省份, 城市, ISP
+         */
+        private final String[][] regionFields;
+
+        private Index(Path path, ByteBuffer buffer, long checksum) throws IOException {
+            this.path = path;
+            this.buffer = buffer;
+            this.checksum = checksum;
+            this.firstIndexPtr = buffer.getInt(0);
+            int lastIndexPtr = buffer.getInt(4);
+            if (firstIndexPtr < 8 || lastIndexPtr < firstIndexPtr
+                    || (long) lastIndexPtr + INDEX_BLOCK_LENGTH > buffer.capacity()
+                    || (lastIndexPtr - firstIndexPtr) % INDEX_BLOCK_LENGTH != 0) {
+                throw new IOException("invalid ip2region db " + path);
+            }
+            this.indexBlockNum = (lastIndexPtr - firstIndexPtr) / INDEX_BLOCK_LENGTH + 1;
+            this.regionIds = new int[indexBlockNum];
+
+            // 相同的地区在db中只存一份, 以数据指针区分
+            Map<Integer, Integer> regionIdByDataPtr = new HashMap<>();
+            List<String[]> fields = new ArrayList<>();
+            for (int i = 0; i < indexBlockNum; i++) {
+                int dataPtr = buffer.getInt(firstIndexPtr + i * INDEX_BLOCK_LENGTH + 8);
+                Integer regionId = regionIdByDataPtr.get(dataPtr);
+                if (regionId == null) {
+                    regionId = fields.size();
+                    regionIdByDataPtr.put(dataPtr, regionId);
+                    fields.add(splitRegion(readRegion(dataPtr)));
+                }
+                regionIds[i] = regionId;
+            }
+            this.regionFields = fields.toArray(new String[0][]);
+        }
+
+        /**
+         * 复制到唯一的临时文件后再映射, 多个TaskManager之间不会相互覆盖,
+         * 原db文件被覆盖写入时也不会影响已映射的索引
+         */
+        static Index load(InputStream dbF) throws IOException {
+            Path path = Files.createTempFile("ip2region-", ".db");
+            path.toFile().deleteOnExit();
+            try {
+                Files.copy(dbF, path, StandardCopyOption.REPLACE_EXISTING);
+                ByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                return new Index(path, buffer.order(ByteOrder.LITTLE_ENDIAN), checksum(buffer));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+        }
+
+        /**
+         * 查询ip所属的地区id
+         *
+         * @param ip long ip
+         * @return int 地区id, 未找到返回-1
+         */
+        int search(long ip) {
+            int low = 0;
+            int high = indexBlockNum - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int p = firstIndexPtr + middle * INDEX_BLOCK_LENGTH;
+                if (ip < (buffer.getInt(p) & 0xFFFFFFFFL)) {
+                    high = middle - 1;
+                } else if (ip > (buffer.getInt(p + 4) & 0xFFFFFFFFL)) {
+                    low = middle + 1;
+                } else {
+                    return regionIds[middle];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 批量查询已排序ip所属的地区id, 每个ip只在上一个ip命中的位置之后查找
+         *
+         * @param sortedKeys 高位为ip, 低31位为任意附加值, 按升序排列
+         * @param length     有效长度
+         * @param regionIds  输出, 与sortedKeys一一对应的地区id, 未找到为-1
+         */
+        void search(long[] sortedKeys, int length, int[] regionIds) {
+            int from = 0;
+            for (int k = 0; k < length; k++) {
+                long ip = sortedKeys[k] >>> 31;
+                int low = from;
+                int high = indexBlockNum - 1;
+                int regionId = -1;
+                while (low <= high) {
+                    int middle = (low + high) >>> 1;
+                    int p = firstIndexPtr + middle * INDEX_BLOCK_LENGTH;
+                    if (ip < (buffer.getInt(p) & 0xFFFFFFFFL)) {
+                        high = middle - 1;
+                    } else if (ip > (buffer.getInt(p + 4) & 0xFFFFFFFFL)) {
+                        low = middle + 1;
+                    } else {
+                        regionId = this.regionIds[middle];
+                        low = middle;
+                        break;
+                    }
+                }
+                regionIds[k] = regionId;
+                from = low;
+            }
+        }
+
+        @Override
+        public String[] getRegionFields(int regionId) {
+            return regionFields[regionId];
+        }
+
+        @Override
+        public int getRegionNum() {
+            return regionFields.length;
+        }
+
+        @Override
+        public long getChecksum() {
+            return checksum;
+        }
+
+        @VisibleForTesting
+        Path getPath() {
+            return path;
+        }
+
+        @Override
+        public void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("delete ip region db [{}] error", path, e);
+            }
+        }
+
+        private String readRegion(int dataPtr) {
+            int dataLen = (dataPtr >> 24) & 0xFF;
+            int offset = dataPtr & 0x00FFFFFF;
+            // 前4个字节为城市id
+            byte[] region = new byte[dataLen - 4];
+            for (int i = 0; i < region.length; i++) {
+                region[i] = buffer.get(offset + 4 + i);
+            }
+            return new String(region, StandardCharsets.UTF_8);
+        }
+
+        private static long checksum(ByteBuffer buffer) {
+            CRC32 crc32 = new CRC32();
+            byte[] chunk = new byte[8192];
+            ByteBuffer data = buffer.duplicate();
+            while (data.hasRemaining()) {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                crc32.update(chunk, 0, length);
+            }
+            return crc32.getValue();
+        }
+    }
+
+    /**
+     * 点分十进制ip转为long
+     *
+     * @param ip String ip
+     * @return long ip, 不是合法的ip返回-1
+     */
+    static long ip2long(String ip) {
+        return ip2long(ip, 0, ip.length());
+    }
+
+    /**
+     * 点分十进制ip转为long
+     *
+     * @param ip    CharSequence 包含ip的字符序列
+     * @param start ip起始位置
+     * @param end   ip结束位置(不含)
+     * @return long ip, 不是合法的ip返回-1
+     */
+    static long ip2long(CharSequence ip, int start, int end) {
+        long result = 0;
+        int part = 0;
+        int digits = 0;
+        int parts = 0;
+        for (int i = start; i < end; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && parts < 3) {
+                result = (result << 8) | part;
+                parts++;
+                part = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || parts != 3) {
+            return -1;
+        }
+        return (result << 8) | part;
+    }
+
+    /**
+     * 拆分地区字符串, 各字段intern后在所有地区间共享
+     * 国家|区域|省份|城市|ISP
+     * 中国|华东|江苏省|苏州市|联通
+     *
+     * @param result String 地区字符串
+     * @return String[] 国家, 区域, 省份, 城市, ISP, 字段不足时返回null
+     */
+    static String[] splitRegion(String result) {
+        String[] resultArray = new String[REGION_FIELD_NUM];
+        int start = 0;
+        for (int i = 0; i < REGION_FIELD_NUM; i++) {
+            if (start > result.length()) {
+                logger.warn("invalid region: {}", result);
+                return null;
+            }
+            int end = result.indexOf('|', start);
+            if (end < 0) {
+                end = result.length();
+            }
+            resultArray[i] = result.substring(start, end).intern();
+            start = end + 1;
+        }
+        return resultArray;
+    }
+}
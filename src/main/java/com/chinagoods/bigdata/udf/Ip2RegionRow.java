@@ -0,0 +1,66 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+
+/**
+ * ip归属地, 以ROW类型返回所有字段, 不需要再按format格式化后拆分
+ * <p>
+ * 查询及作业参数与{@link Ip2Region}相同, 无法识别时返回null
+ *
+ * @author wwek
+ */
+public class Ip2RegionRow extends ScalarFunction {
+    private final Ip2Region ip2Region = new Ip2Region();
+    /**
+     * 上一次调用的参数及结果: planner会把子查询合并回外层, 同一行取多个字段时仍以相同参数连续调用, 直接复用上一次的结果
+     */
+    private transient String lastStr;
+    private transient RowData lastResult;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        ip2Region.open(context);
+        super.open(context);
+    }
+
+    @Override
+    public void close() throws Exception {
+        ip2Region.close();
+        super.close();
+    }
+
+    @DataTypeHint(value = "ROW<country STRING, area STRING, province STRING, city STRING, isp STRING>",
+            bridgedTo = RowData.class)
+    public RowData eval(String str) {
+        if (str == null) {
+            return null;
+        }
+        if (!str.equals(lastStr)) {
+            lastResult = toRow(ip2Region.doIp2RegionFields(str));
+            lastStr = str;
+        }
+        return lastResult;
+    }
+
+    private static RowData toRow(String[] fields) {
+        if (fields == null) {
+            return null;
+        }
+        return GenericRowData.of(
+                // country 国家-中国
+                StringData.fromString(fields[0]),
+                // area 区域-华东
+                StringData.fromString(fields[1]),
+                // province 省份-江苏省
+                StringData.fromString(fields[2]),
+                // city 城市-苏州市
+                StringData.fromString(fields[3]),
+                // isp ISP运营商-联通
+                StringData.fromString(fields[4]));
+    }
+}
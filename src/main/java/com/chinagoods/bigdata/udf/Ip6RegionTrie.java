@@ -0,0 +1,376 @@
+package com.chinagoods.bigdata.udf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * IPv6归属地索引, 由CIDR文件构建的路径压缩基数树(radix trie), 节点存放在堆外内存
+ * <p>
+ * CIDR文件每行一个网段, 网段与地区之间以空白或逗号分隔, 地区格式与ip2region相同,
+ * 空行及#开头的行忽略, 重复的网段以后出现的为准:
+ * <pre>
+ * 2400:3200::/32   中国|0|浙江省|杭州市|阿里云
+ * 240e::/20        中国|0|0|0|电信
+ * </pre>
+ * 查询按最长前缀匹配, 最多访问前缀长度个节点, 不创建对象
+ *
+ * @author wwek
+ */
+final class Ip6RegionTrie implements Ip2RegionDb.Regions {
+    /**
+     * 节点: 前缀高64位, 前缀低64位, 前缀长度, 地区id, 0分支子节点, 1分支子节点
+     */
+    private static final int NODE_LENGTH = 32;
+    private static final int PREFIX_HIGH = 0;
+    private static final int PREFIX_LOW = 8;
+    private static final int DEPTH = 16;
+    private static final int REGION_ID = 20;
+    private static final int CHILD = 24;
+
+    private final ByteBuffer nodes;
+    private final String[][] regionFields;
+    private final long checksum;
+
+    private Ip6RegionTrie(ByteBuffer nodes, String[][] regionFields, long checksum) {
+        this.nodes = nodes;
+        this.regionFields = regionFields;
+        this.checksum = checksum;
+    }
+
+    /**
+     * 从CIDR文件内容构建索引
+     *
+     * @param dbF CIDR文件内容
+     * @return Ip6RegionTrie
+     * @throws IOException 读取失败或格式错误
+     */
+    static Ip6RegionTrie load(InputStream dbF) throws IOException {
+        CheckedInputStream in = new CheckedInputStream(dbF, new CRC32());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, Integer> regionIds = new HashMap<>();
+        List<String[]> regionFields = new ArrayList<>();
+        BuildNode root = new BuildNode(0, 0, 0, -1);
+        int nodeNum = 1;
+        long[] ip = new long[2];
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = 0;
+            while (separator < line.length() && !isSeparator(line.charAt(separator))) {
+                separator++;
+            }
+            int slash = line.indexOf('/');
+            if (separator == line.length() || slash < 0 || slash > separator
+                    || !parseIpv6(line, 0, slash, ip)) {
+                throw new IOException("invalid ipv6 cidr at line " + lineNumber + ": " + line);
+            }
+            int prefixLength;
+            try {
+                prefixLength = Integer.parseInt(line.substring(slash + 1, separator));
+            } catch (NumberFormatException e) {
+                prefixLength = -1;
+            }
+            if (prefixLength < 0 || prefixLength > 128) {
+                throw new IOException("invalid ipv6 prefix length at line " + lineNumber + ": " + line);
+            }
+
+            String region = line.substring(separator + 1).trim();
+            while (!region.isEmpty() && isSeparator(region.charAt(0))) {
+                region = region.substring(1).trim();
+            }
+            Integer regionId = regionIds.get(region);
+            if (regionId == null) {
+                regionId = regionFields.size();
+                regionIds.put(region, regionId);
+                regionFields.add(Ip2RegionDb.splitRegion(region));
+            }
+            nodeNum += root.insert(maskHigh(ip[0], prefixLength), maskLow(ip[1], prefixLength),
+                    prefixLength, regionId);
+        }
+        return new Ip6RegionTrie(compact(root, nodeNum),
+                regionFields.toArray(new String[0][]), in.getChecksum().getValue());
+    }
+
+    /**
+     * 查询ip所属的地区id
+     *
+     * @param high ip高64位
+     * @param low  ip低64位
+     * @return int 地区id, 未找到返回-1
+     */
+    int search(long high, long low) {
+        int regionId = -1;
+        int node = 0;
+        while (node >= 0) {
+            int p = node * NODE_LENGTH;
+            int depth = nodes.getInt(p + DEPTH);
+            if (!matches(high, low, nodes.getLong(p + PREFIX_HIGH), nodes.getLong(p + PREFIX_LOW), depth)) {
+                break;
+            }
+            int nodeRegionId = nodes.getInt(p + REGION_ID);
+            if (nodeRegionId >= 0) {
+                regionId = nodeRegionId;
+            }
+            if (depth == 128) {
+                break;
+            }
+            node = nodes.getInt(p + CHILD + bitAt(high, low, depth) * 4);
+        }
+        return regionId;
+    }
+
+    @Override
+    public String[] getRegionFields(int regionId) {
+        return regionFields[regionId];
+    }
+
+    @Override
+    public int getRegionNum() {
+        return regionFields.length;
+    }
+
+    @Override
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * 解析IPv6地址, 支持::缩写及末尾的点分十进制IPv4
+     *
+     * @param ip    CharSequence 包含ip的字符序列
+     * @param start ip起始位置
+     * @param end   ip结束位置(不含)
+     * @param out   输出, ip高64位及低64位
+     * @return boolean 是否为合法的IPv6地址
+     */
+    static boolean parseIpv6(CharSequence ip, int start, int end, long[] out) {
+        long headHigh = 0;
+        long headLow = 0;
+        int headGroups = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = start;
+        if (end - start >= 2 && ip.charAt(i) == ':' && ip.charAt(i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (i == end || ip.charAt(i) == ':') {
+            return false;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int group = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = hexDigit(ip.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                group = (group << 4) | digit;
+                i++;
+            }
+            int groups = 1;
+            if (i < end && ip.charAt(i) == '.') {
+                // 末尾的IPv4占两组
+                long ipv4 = Ip2RegionDb.ip2long(ip, groupStart, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                group = (int) ipv4;
+                groups = 2;
+                i = end;
+            } else if (i == groupStart || i - groupStart > 4) {
+                return false;
+            }
+
+            int bits = groups * 16;
+            long value = groups == 2 ? group & 0xFFFFFFFFL : group;
+            if (compressed) {
+                tailHigh = (tailHigh << bits) | (tailLow >>> (64 - bits));
+                tailLow = (tailLow << bits) | value;
+                tailGroups += groups;
+            } else {
+                headHigh = (headHigh << bits) | (headLow >>> (64 - bits));
+                headLow = (headLow << bits) | value;
+                headGroups += groups;
+            }
+            if (headGroups + tailGroups > 8 || i == end) {
+                break;
+            }
+
+            if (ip.charAt(i) != ':' || ++i == end) {
+                return false;
+            }
+            if (ip.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if (compressed ? groups > 7 : groups != 8) {
+            return false;
+        }
+        // 头部左移到高位, 中间缺少的组补0
+        int shift = (8 - headGroups) * 16;
+        if (shift >= 128) {
+            headHigh = 0;
+            headLow = 0;
+        } else if (shift >= 64) {
+            headHigh = headLow << (shift - 64);
+            headLow = 0;
+        } else if (shift > 0) {
+            headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+            headLow = headLow << shift;
+        }
+        out[0] = headHigh | tailHigh;
+        out[1] = headLow | tailLow;
+        return true;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || Character.isWhitespace(c);
+    }
+
+    private static boolean matches(long high, long low, long prefixHigh, long prefixLow, int depth) {
+        return maskHigh(high ^ prefixHigh, depth) == 0 && maskLow(low ^ prefixLow, depth) == 0;
+    }
+
+    private static long maskHigh(long high, int prefixLength) {
+        return prefixLength >= 64 ? high : prefixLength == 0 ? 0 : high & (-1L << (64 - prefixLength));
+    }
+
+    private static long maskLow(long low, int prefixLength) {
+        return prefixLength <= 64 ? 0 : prefixLength == 128 ? low : low & (-1L << (128 - prefixLength));
+    }
+
+    private static int bitAt(long high, long low, int index) {
+        return index < 64 ? (int) (high >>> (63 - index)) & 1 : (int) (low >>> (127 - index)) & 1;
+    }
+
+    private static int commonPrefixLength(long high1, long low1, long high2, long low2, int maxLength) {
+        int length = high1 != high2
+                ? Long.numberOfLeadingZeros(high1 ^ high2)
+                : 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+        return Math.min(length, maxLength);
+    }
+
+    /**
+     * 按节点顺序写入堆外内存, 根节点下标为0
+     */
+    private static ByteBuffer compact(BuildNode root, int nodeNum) {
+        ByteBuffer nodes = ByteBuffer.allocateDirect(nodeNum * NODE_LENGTH);
+        Deque<BuildNode> queue = new ArrayDeque<>();
+        root.index = 0;
+        queue.add(root);
+        int nextIndex = 1;
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            int p = node.index * NODE_LENGTH;
+            nodes.putLong(p + PREFIX_HIGH, node.high);
+            nodes.putLong(p + PREFIX_LOW, node.low);
+            nodes.putInt(p + DEPTH, node.depth);
+            nodes.putInt(p + REGION_ID, node.regionId);
+            for (int bit = 0; bit < 2; bit++) {
+                BuildNode child = node.children[bit];
+                if (child == null) {
+                    nodes.putInt(p + CHILD + bit * 4, -1);
+                } else {
+                    child.index = nextIndex++;
+                    nodes.putInt(p + CHILD + bit * 4, child.index);
+                    queue.add(child);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * 构建时使用的堆内节点, 只在分叉处和网段处有节点
+     */
+    private static final class BuildNode {
+        private final long high;
+        private final long low;
+        private final int depth;
+        private int regionId;
+        private final BuildNode[] children = new BuildNode[2];
+        private int index;
+
+        private BuildNode(long high, long low, int depth, int regionId) {
+            this.high = high;
+            this.low = low;
+            this.depth = depth;
+            this.regionId = regionId;
+        }
+
+        /**
+         * 插入网段
+         *
+         * @return int 新增的节点数
+         */
+        private int insert(long high, long low, int prefixLength, int regionId) {
+            BuildNode node = this;
+            while (true) {
+                if (node.depth == prefixLength) {
+                    node.regionId = regionId;
+                    return 0;
+                }
+                int bit = bitAt(high, low, node.depth);
+                BuildNode child = node.children[bit];
+                if (child == null) {
+                    node.children[bit] = new BuildNode(high, low, prefixLength, regionId);
+                    return 1;
+                }
+                int common = commonPrefixLength(high, low, child.high, child.low,
+                        Math.min(prefixLength, child.depth));
+                if (common == child.depth) {
+                    node = child;
+                    continue;
+                }
+
+                // 在分叉处插入新节点
+                BuildNode split = new BuildNode(maskHigh(high, common), maskLow(low, common), common, -1);
+                split.children[bitAt(child.high, child.low, common)] = child;
+                node.children[bit] = split;
+                if (common == prefixLength) {
+                    split.regionId = regionId;
+                    return 1;
+                }
+                split.children[bitAt(high, low, common)] = new BuildNode(high, low, prefixLength, regionId);
+                return 2;
+            }
+        }
+    }
+}
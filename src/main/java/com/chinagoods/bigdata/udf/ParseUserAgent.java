@@ -8,93 +8,135 @@
 package com.chinagoods.bigdata.udf;
 
 
-import com.google.common.collect.ImmutableMap;
+import com.chinagoods.bigdata.util.FormatSpecifiers;
+import com.chinagoods.bigdata.util.FormatTemplate;
 import com.chinagoods.bigdata.util.SpecifierParseFormat;
 import nl.basjes.parse.useragent.UserAgent;
-import nl.basjes.parse.useragent.UserAgentAnalyzer;
 import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * 缓存配置相同的实例共享同一个解析器, 解析器提取所有实例用到的字段的并集;
+ * open时即在后台按默认格式的字段开始构建, 遇到需要新字段的格式时在后台按并集重新构建,
+ * 只有缺少字段的解析等待构建完成, 见{@link UserAgentParserRegistry.SharedAnalyzer}
+ *
  * @author wwek
  */
 public class ParseUserAgent extends ScalarFunction {
-    private transient UserAgentAnalyzer userAgentAnalyzer;
+    private static final Logger logger = LoggerFactory.getLogger(ParseUserAgent.class);
+    private static final FormatSpecifiers SPECIFIERS = SpecifierParseFormat.PARSEUSERAGENT_SPECIFIERS;
+    private static final String DEFAULT_FORMAT = "%DN %OSNV %LENV %ANV";
+
+    private transient UserAgentParserRegistry.Shared<UserAgentParserRegistry.SharedAnalyzer> userAgentAnalyzer;
+    /**
+     * 本实例用到的字段, 下标与格式说明符的字段对应
+     */
+    private transient boolean[] analyzerFields;
+    private transient List<String> analyzerFieldNames;
+    /**
+     * 上一次使用的解析器, 包含本实例用到的所有字段
+     */
+    private transient UserAgentParserRegistry.CachingAnalyzer analyzer;
+    /**
+     * 上一次使用的格式, 格式不变时无需再检查字段
+     */
+    private transient FormatTemplate lastTemplate;
+    private transient String[] values;
 
     public String doParseUserAgent(String str, String format) {
-        String resultStr = str;
-        String unknown = "未知";
-
-        UserAgent.ImmutableUserAgent immutableUserAgent = userAgentAnalyzer.parse(str);
-
-        // 设备
-        String DeviceClass = immutableUserAgent.get("DeviceClass").getValue();
-        String DeviceName = immutableUserAgent.get("DeviceName").getValue();
-        String DeviceBrand = immutableUserAgent.get("DeviceBrand").getValue();
-        // 操作系统
-        String OperatingSystemClass = immutableUserAgent.get("OperatingSystemClass").getValue();
-        String OperatingSystemName = immutableUserAgent.get("OperatingSystemName").getValue();
-        String OperatingSystemVersion = immutableUserAgent.get("OperatingSystemVersion").getValue();
-        String OperatingSystemNameVersion = immutableUserAgent.get("OperatingSystemNameVersion").getValue();
-        String OperatingSystemVersionBuild = immutableUserAgent.get("OperatingSystemVersionBuild").getValue();
-
-        String LayoutEngineClass = immutableUserAgent.get("LayoutEngineClass").getValue();
-        String LayoutEngineName = immutableUserAgent.get("LayoutEngineName").getValue();
-        String LayoutEngineVersion = immutableUserAgent.get("LayoutEngineVersion").getValue();
-        String LayoutEngineVersionMajor = immutableUserAgent.get("LayoutEngineVersionMajor").getValue();
-        String LayoutEngineNameVersion = immutableUserAgent.get("LayoutEngineNameVersion").getValue();
-        String LayoutEngineNameVersionMajor = immutableUserAgent.get("LayoutEngineNameVersionMajor").getValue();
-        String AgentClass = immutableUserAgent.get("AgentClass").getValue();
-        String AgentName = immutableUserAgent.get("AgentName").getValue();
-        String AgentVersion = immutableUserAgent.get("AgentVersion").getValue();
-        String AgentVersionMajor = immutableUserAgent.get("AgentVersionMajor").getValue();
-        String AgentNameVersion = immutableUserAgent.get("AgentNameVersion").getValue();
-        String AgentNameVersionMajor = immutableUserAgent.get("AgentNameVersionMajor").getValue();
+        FormatTemplate template = SPECIFIERS.compile(format);
+        int[] usedFieldIndexes = template.getUsedFieldIndexes();
+        if (template != lastTemplate) {
+            ensureAnalyzerFields(usedFieldIndexes);
+            lastTemplate = template;
+        }
+        // 只提取格式用到的字段, 其余字段不会被格式读取
+        doParseUserAgentFields(str, usedFieldIndexes, values);
+        return template.render(values);
+    }
 
+    /**
+     * 解析一次并提取多个字段, 调用前需通过{@link #ensureAnalyzerFields(int[])}确保解析器包含这些字段
+     *
+     * @param str          ua
+     * @param fieldIndexes 字段下标, 与{@link FormatSpecifiers#getFieldNames()}对应
+     * @param values       输出, 按字段下标写入字段值
+     */
+    void doParseUserAgentFields(String str, int[] fieldIndexes, String[] values) {
+        if (fieldIndexes.length == 0 || userAgentAnalyzer == null) {
+            // 没有字段, 无需解析
+            return;
+        }
+
+        UserAgentParserRegistry.CachingAnalyzer current = userAgentAnalyzer.get().current();
+        if (analyzer == null || current != analyzer) {
+            // 共享的解析器已重建, 缺少本实例的字段时等待包含这些字段的解析器
+            analyzer = current != null && current.hasFields(analyzerFieldNames)
+                    ? current : userAgentAnalyzer.get().get(analyzerFieldNames);
+        }
+        UserAgent.ImmutableUserAgent immutableUserAgent = analyzer.parse(str);
+        String[] fieldNames = SPECIFIERS.getFieldNames();
+        for (int fieldIndex : fieldIndexes) {
+            values[fieldIndex] = immutableUserAgent.get(fieldNames[fieldIndex]).getValue();
+        }
+    }
 
-        Map<String, String> resultMap = ImmutableMap.<String, String>builder()
-                .put("DeviceClass", DeviceClass)
-                .put("DeviceName", DeviceName)
-                .put("DeviceBrand", DeviceBrand)
-                .put("OperatingSystemClass", OperatingSystemClass)
-                .put("OperatingSystemName", OperatingSystemName)
-                .put("OperatingSystemVersion", OperatingSystemVersion)
-                .put("OperatingSystemNameVersion", OperatingSystemNameVersion)
-                .put("OperatingSystemVersionBuild", OperatingSystemVersionBuild)
-                .put("LayoutEngineClass", LayoutEngineClass)
-                .put("LayoutEngineName", LayoutEngineName)
-                .put("LayoutEngineVersion", LayoutEngineVersion)
-                .put("LayoutEngineVersionMajor", LayoutEngineVersionMajor)
-                .put("LayoutEngineNameVersion", LayoutEngineNameVersion)
-                .put("LayoutEngineNameVersionMajor", LayoutEngineNameVersionMajor)
-                .put("AgentClass", AgentClass)
-                .put("AgentName", AgentName)
-                .put("AgentVersion", AgentVersion)
-                .put("AgentVersionMajor", AgentVersionMajor)
-                .put("AgentNameVersion", AgentNameVersion)
-                .put("AgentNameVersionMajor", AgentNameVersionMajor)
-                .build();
-        return new SpecifierParseFormat().parseuseragentParseFormat(format, resultMap);
+    /**
+     * 格式用到新字段时向共享的解析器请求, 解析器在后台按所有实例字段的并集重建, 不等待
+     */
+    void ensureAnalyzerFields(int[] usedFieldIndexes) {
+        boolean missing = false;
+        for (int fieldIndex : usedFieldIndexes) {
+            if (!analyzerFields[fieldIndex]) {
+                analyzerFields[fieldIndex] = true;
+                missing = true;
+            }
+        }
+        if (!missing) {
+            return;
+        }
+
+        String[] fieldNames = SPECIFIERS.getFieldNames();
+        List<String> extractedFields = new ArrayList<>();
+        for (int f = 0; f < fieldNames.length; f++) {
+            if (analyzerFields[f]) {
+                extractedFields.add(fieldNames[f]);
+            }
+        }
+        logger.info("Use UserAgentAnalyzer with fields: {}", extractedFields);
+        analyzerFieldNames = extractedFields;
+        analyzer = null;
+        userAgentAnalyzer.get().require(extractedFields);
     }
 
 
     @Override
     public void open(FunctionContext context) {
-        int cacheSize = 15000;
-
-        userAgentAnalyzer = UserAgentAnalyzer
-                .newBuilder()
-                //.withFields(extractedFields)
-                .withCache(cacheSize)
-                .immediateInitialization()
-                .build();
+        UserAgentParserRegistry.CacheConfig cacheConfig = UserAgentParserRegistry.CacheConfig.fromContext(context,
+                UserAgentParserRegistry.CACHE_SIZE, UserAgentParserRegistry.CACHE_EXPIRE_AFTER_ACCESS_MS);
+        analyzerFields = new boolean[SPECIFIERS.getFieldNames().length];
+        values = new String[analyzerFields.length];
+        lastTemplate = null;
+        analyzer = null;
+        userAgentAnalyzer = UserAgentParserRegistry.acquireAnalyzer(cacheConfig);
+        // 在后台按默认格式的字段开始构建, 不在第一次解析时构建
+        ensureAnalyzerFields(SPECIFIERS.compile(DEFAULT_FORMAT).getUsedFieldIndexes());
+    }
 
+    @Override
+    public void close() {
+        UserAgentParserRegistry.release(userAgentAnalyzer);
+        userAgentAnalyzer = null;
+        analyzer = null;
     }
 
     public String eval(String str) {
-        return doParseUserAgent(str, "%DN %OSNV %LENV %ANV");
+        return doParseUserAgent(str, DEFAULT_FORMAT);
     }
 
     public String eval(String str, String format) {
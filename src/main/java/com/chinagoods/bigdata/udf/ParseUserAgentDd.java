@@ -9,11 +9,12 @@ package com.chinagoods.bigdata.udf;
 
 
 import io.github.mngsk.devicedetector.Detection;
-import io.github.mngsk.devicedetector.DeviceDetector;
-import io.github.mngsk.devicedetector.DeviceDetector.DeviceDetectorBuilder;
 import io.github.mngsk.devicedetector.client.Client;
 import io.github.mngsk.devicedetector.device.Device;
 import io.github.mngsk.devicedetector.operatingsystem.OperatingSystem;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
 
@@ -21,15 +22,35 @@ import java.util.StringJoiner;
 
 
 /**
+ * 检测结果按ua缓存在TaskManager内共享的LRU缓存中, 见{@link UserAgentParserRegistry}
+ * <p>
+ * 指标(deviceDetector组): numCacheHits, numCacheMisses为本实例的命中及未命中数,
+ * numCacheEvictions, currentCacheSize为共享缓存的淘汰数及条数
+ *
  * @author wwek
  */
 public class ParseUserAgentDd extends ScalarFunction {
-    DeviceDetector ua = null;
+    /**
+     * TaskManager内所有实例共享的DeviceDetector
+     */
+    private transient UserAgentParserRegistry.Shared<UserAgentParserRegistry.CachingDeviceDetector> ua;
+    private transient Counter cacheHits;
+    private transient Counter cacheMisses;
 
     public String doParseUserAgent(String str, String field) {
-        String resultStr = str;
+        return getField(detect(str), field);
+    }
+
+    /**
+     * 从检测结果中取字段
+     *
+     * @param detection 检测结果
+     * @param field     device, type, brand, model, os, client, 其他值返回设备,操作系统,client
+     * @return String
+     */
+    static String getField(Detection detection, String field) {
+        String resultStr;
         String unknown = "未知";
-        Detection detection = ua.detect(str);
 
         switch (field) {
             case "device":
@@ -79,12 +100,39 @@ public class ParseUserAgentDd extends ScalarFunction {
     }
 
 
+    Detection detect(String str) {
+        UserAgentParserRegistry.CachingDeviceDetector detector = ua.get();
+        Detection detection = detector.getCached(str);
+        if (detection != null) {
+            cacheHits.inc();
+            return detection;
+        }
+        cacheMisses.inc();
+        return detector.detect(str);
+    }
+
+
     @Override
     public void open(FunctionContext context) throws Exception {
-        ua = new DeviceDetectorBuilder().build();
+        ua = UserAgentParserRegistry.acquireDeviceDetector(UserAgentParserRegistry.CacheConfig.fromContext(context,
+                UserAgentParserRegistry.DD_CACHE_SIZE, UserAgentParserRegistry.DD_CACHE_EXPIRE_AFTER_ACCESS_MS));
+
+        UserAgentParserRegistry.CachingDeviceDetector detector = ua.get();
+        MetricGroup metricGroup = context.getMetricGroup().addGroup("deviceDetector");
+        cacheHits = metricGroup.counter("numCacheHits");
+        cacheMisses = metricGroup.counter("numCacheMisses");
+        metricGroup.gauge("numCacheEvictions", (Gauge<Long>) detector::getEvictionCount);
+        metricGroup.gauge("currentCacheSize", (Gauge<Long>) detector::getSize);
         super.open(context);
     }
 
+    @Override
+    public void close() throws Exception {
+        UserAgentParserRegistry.release(ua);
+        ua = null;
+        super.close();
+    }
+
     public String eval(String str) {
         return doParseUserAgent(str, "");
     }
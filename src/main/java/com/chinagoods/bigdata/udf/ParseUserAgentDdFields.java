@@ -0,0 +1,47 @@
+package com.chinagoods.bigdata.udf;
+
+import io.github.mngsk.devicedetector.Detection;
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.annotation.FunctionHint;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.types.Row;
+
+/**
+ * 解析UserAgent(使用mngsk/device-detector数据源), 一次检测输出所有字段, 每个字段为一列:
+ * <pre>
+ * SELECT t.device, t.os, t.client
+ * FROM access_log, LATERAL TABLE(parseuseragentddfields(ua)) AS t
+ * </pre>
+ * 检测结果缓存及作业参数与parseuseragentdd相同
+ *
+ * @author wwek
+ */
+@FunctionHint(output = @DataTypeHint(
+        "ROW<device STRING, type STRING, brand STRING, model STRING, os STRING, client STRING>"))
+public class ParseUserAgentDdFields extends TableFunction<Row> {
+    private static final String[] FIELDS = {"device", "type", "brand", "model", "os", "client"};
+
+    private final ParseUserAgentDd parseUserAgentDd = new ParseUserAgentDd();
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        parseUserAgentDd.open(context);
+        super.open(context);
+    }
+
+    @Override
+    public void close() throws Exception {
+        parseUserAgentDd.close();
+        super.close();
+    }
+
+    public void eval(String str) {
+        Detection detection = parseUserAgentDd.detect(str);
+        Row row = new Row(FIELDS.length);
+        for (int i = 0; i < FIELDS.length; i++) {
+            row.setField(i, ParseUserAgentDd.getField(detection, FIELDS[i]));
+        }
+        collect(row);
+    }
+}
@@ -0,0 +1,128 @@
+package com.chinagoods.bigdata.udf;
+
+import com.chinagoods.bigdata.util.FormatSpecifiers;
+import com.chinagoods.bigdata.util.SpecifierParseFormat;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.InputTypeStrategies;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.LogicalTypeFamily;
+import org.apache.flink.types.Row;
+
+import java.util.Optional;
+
+/**
+ * 解析UserAgent, 一次解析输出多个字段, 每个字段为一列, 列名即字段名:
+ * <pre>
+ * SELECT t.DeviceName, t.AgentNameVersion
+ * FROM access_log, LATERAL TABLE(parseuseragentfields(ua, 'DeviceName', 'AgentNameVersion')) AS t
+ * </pre>
+ * 字段名必须为字符串常量, 可用的字段见parseuseragent format参照表, 不指定字段时输出所有字段;
+ * 解析器只提取指定的字段
+ *
+ * @author wwek
+ */
+public class ParseUserAgentFields extends TableFunction<Row> {
+    private static final FormatSpecifiers SPECIFIERS = SpecifierParseFormat.PARSEUSERAGENT_SPECIFIERS;
+
+    private final ParseUserAgent parseUserAgent = new ParseUserAgent();
+    /**
+     * 输出字段的下标, 字段名为常量, 第一次调用时确定
+     */
+    private transient int[] fieldIndexes;
+    private transient String[] values;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        parseUserAgent.open(context);
+        fieldIndexes = null;
+        values = new String[SPECIFIERS.getFieldNames().length];
+        super.open(context);
+    }
+
+    @Override
+    public void close() throws Exception {
+        parseUserAgent.close();
+        super.close();
+    }
+
+    public void eval(String str, String... fields) {
+        if (fieldIndexes == null) {
+            fieldIndexes = toFieldIndexes(fields);
+            parseUserAgent.ensureAnalyzerFields(fieldIndexes);
+        }
+        parseUserAgent.doParseUserAgentFields(str, fieldIndexes, values);
+
+        Row row = new Row(fieldIndexes.length);
+        for (int i = 0; i < fieldIndexes.length; i++) {
+            row.setField(i, values[fieldIndexes[i]]);
+        }
+        collect(row);
+    }
+
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(InputTypeStrategies.varyingSequence(
+                        InputTypeStrategies.logical(LogicalTypeFamily.CHARACTER_STRING),
+                        InputTypeStrategies.logical(LogicalTypeFamily.CHARACTER_STRING)))
+                .outputTypeStrategy(ParseUserAgentFields::inferOutputType)
+                .build();
+    }
+
+    private static Optional<DataType> inferOutputType(CallContext callContext) {
+        int fieldNum = callContext.getArgumentDataTypes().size() - 1;
+        String[] fields = new String[fieldNum];
+        for (int i = 0; i < fieldNum; i++) {
+            if (!callContext.isArgumentLiteral(i + 1)) {
+                throw callContext.newValidationError("Field names of %s must be string literals.",
+                        callContext.getName());
+            }
+            fields[i] = callContext.getArgumentValue(i + 1, String.class).orElse(null);
+        }
+
+        int[] indexes;
+        try {
+            indexes = toFieldIndexes(fields);
+        } catch (IllegalArgumentException e) {
+            throw callContext.newValidationError(e.getMessage());
+        }
+        String[] fieldNames = SPECIFIERS.getFieldNames();
+        DataTypes.Field[] rowFields = new DataTypes.Field[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            rowFields[i] = DataTypes.FIELD(fieldNames[indexes[i]], DataTypes.STRING());
+        }
+        return Optional.of(DataTypes.ROW(rowFields));
+    }
+
+    /**
+     * @param fields 字段名, 为空时为所有字段
+     * @return int[] 字段下标
+     */
+    private static int[] toFieldIndexes(String[] fields) {
+        if (fields == null || fields.length == 0) {
+            int[] indexes = new int[SPECIFIERS.getFieldNames().length];
+            for (int f = 0; f < indexes.length; f++) {
+                indexes[f] = f;
+            }
+            return indexes;
+        }
+        int[] indexes = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            indexes[i] = fields[i] == null ? -1 : SPECIFIERS.indexOf(fields[i]);
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Unknown user agent field: " + fields[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (indexes[j] == indexes[i]) {
+                    throw new IllegalArgumentException("Duplicate user agent field: " + fields[i]);
+                }
+            }
+        }
+        return indexes;
+    }
+}
@@ -7,54 +7,69 @@ package com.chinagoods.bigdata.udf;
  * https://github.com/EeeMt/phone-number-geo
  */
 
-import com.google.common.collect.ImmutableMap;
+import com.chinagoods.bigdata.util.FormatTemplate;
 import com.chinagoods.bigdata.util.SpecifierParseFormat;
-import me.ihxq.projects.pna.PhoneNumberInfo;
-import me.ihxq.projects.pna.PhoneNumberLookup;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
 
-import java.util.Map;
-
 /**
+ * 手机号码按号段在{@link PhoneRegionIndex}中查询, 同一地区按同一格式只格式化一次,
+ * 之后直接复用格式化后的结果
+ *
  * @author wwek
  */
 public class Phone2Region extends ScalarFunction {
+    /**
+     * 每个实例缓存的格式个数上限, 每个格式按地区数缓存结果, 超出时淘汰最久未使用的格式
+     */
+    private static final int MAX_CACHED_FORMATS = 16;
 
-    PhoneNumberLookup phoneNumberLookup = null;
+    private transient PhoneRegionIndex phoneRegionIndex;
+    /**
+     * 格式 -> 编译后的格式及按地区id缓存的结果
+     */
+    private transient LoadingCache<String, RegionFormat> regionFormats;
 
     @Override
     public void open(FunctionContext context) throws Exception {
-        phoneNumberLookup = new PhoneNumberLookup();
+        phoneRegionIndex = PhoneRegionIndex.getInstance();
+        regionFormats = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_FORMATS)
+                .build(CacheLoader.from(format -> new RegionFormat(format, phoneRegionIndex.getRegionNum())));
         super.open(context);
     }
 
     public String phone2Region(String str, String format) {
         String region = "未识别";
-        if (str.isEmpty()) {
+        if (str == null || str.isEmpty()) {
             return region;
         }
         if (!isPhoneNumber(str)) {
             return str;
         }
 
-        PhoneNumberInfo found = phoneNumberLookup.lookup(str)
-                .orElseThrow(RuntimeException::new);
-
-        Map<String, String> resultMap = ImmutableMap.<String, String>builder()
-                // province 省份-贵州
-                .put("province", found.getAttribution().getProvince())
-                // city 城市-贵阳
-                .put("city", found.getAttribution().getCity())
-                // isp ISP运营商-中国移动
-                .put("isp", found.getIsp().getCnName())
-                // zipcode 550000
-                .put("zipcode", found.getAttribution().getZipCode())
-                // areacode 0851
-                .put("areacode", found.getAttribution().getAreaCode())
-                .build();
-
-        return new SpecifierParseFormat().ip2regionParseFormat(format, resultMap);
+        int regionId = phoneRegionIndex.lookup(str);
+        if (regionId < 0) {
+            return region;
+        }
+        return regionFormats.getUnchecked(format).format(phoneRegionIndex, regionId);
+    }
+
+    /**
+     * 查询电话号码归属地字段
+     *
+     * @param str String 电话号码
+     * @return String[] 省份, 城市, ISP, 邮编, 区划码, 无法识别时返回null
+     */
+    String[] doPhone2RegionFields(String str) {
+        if (str == null || !isPhoneNumber(str)) {
+            return null;
+        }
+        int regionId = phoneRegionIndex.lookup(str);
+        return regionId < 0 ? null : phoneRegionIndex.getRegionFields(regionId);
     }
 
     public String eval(String str) {
@@ -79,4 +94,26 @@ public class Phone2Region extends ScalarFunction {
         return false;
 
     }
+
+    /**
+     * 编译后的格式, 并按地区id缓存格式化后的结果
+     */
+    private static final class RegionFormat {
+        private final FormatTemplate template;
+        private final String[] formattedRegions;
+
+        private RegionFormat(String format, int regionNum) {
+            this.template = SpecifierParseFormat.PHONE2REGION_SPECIFIERS.compile(format);
+            this.formattedRegions = new String[regionNum];
+        }
+
+        private String format(PhoneRegionIndex index, int regionId) {
+            String formatted = formattedRegions[regionId];
+            if (formatted == null) {
+                formatted = template.render(index.getRegionFields(regionId));
+                formattedRegions[regionId] = formatted;
+            }
+            return formatted;
+        }
+    }
 }
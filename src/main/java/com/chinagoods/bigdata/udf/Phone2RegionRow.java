@@ -0,0 +1,66 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.annotation.DataTypeHint;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.ScalarFunction;
+
+/**
+ * 电话号码归属地, 以ROW类型返回所有字段, 不需要再按format格式化后拆分
+ * <p>
+ * 无法识别时返回null
+ *
+ * @author wwek
+ */
+public class Phone2RegionRow extends ScalarFunction {
+    private final Phone2Region phone2Region = new Phone2Region();
+    /**
+     * 上一次调用的参数及结果: planner会把子查询合并回外层, 同一行取多个字段时仍以相同参数连续调用, 直接复用上一次的结果
+     */
+    private transient String lastStr;
+    private transient RowData lastResult;
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        phone2Region.open(context);
+        super.open(context);
+    }
+
+    @Override
+    public void close() throws Exception {
+        phone2Region.close();
+        super.close();
+    }
+
+    @DataTypeHint(value = "ROW<province STRING, city STRING, isp STRING, zipcode STRING, areacode STRING>",
+            bridgedTo = RowData.class)
+    public RowData eval(String str) {
+        if (str == null) {
+            return null;
+        }
+        if (!str.equals(lastStr)) {
+            lastResult = toRow(phone2Region.doPhone2RegionFields(str));
+            lastStr = str;
+        }
+        return lastResult;
+    }
+
+    private static RowData toRow(String[] fields) {
+        if (fields == null) {
+            return null;
+        }
+        return GenericRowData.of(
+                // province 省份-贵州
+                StringData.fromString(fields[0]),
+                // city 城市-贵阳
+                StringData.fromString(fields[1]),
+                // isp ISP运营商-中国移动
+                StringData.fromString(fields[2]),
+                // zipcode 550000
+                StringData.fromString(fields[3]),
+                // areacode 0851
+                StringData.fromString(fields[4]));
+    }
+}
@@ -0,0 +1,157 @@
+package com.chinagoods.bigdata.udf;
+
+import me.ihxq.projects.pna.Attribution;
+import me.ihxq.projects.pna.PhoneNumberInfo;
+import me.ihxq.projects.pna.PhoneNumberLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 手机号码归属地索引
+ * <p>
+ * 手机号码前7位(号段)直接作为下标, 在堆外内存中存放地区id, 地区字段去重后存放在堆内,
+ * 查询只解析号段并读取一个int, 不创建对象
+ * <p>
+ * 索引在第一次使用时由phone-number-geo的数据构建, 同一个类加载器内只构建一次, 所有实例共享
+ *
+ * @author wwek
+ */
+final class PhoneRegionIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PhoneRegionIndex.class);
+
+    private static final int PHONE_NUMBER_LENGTH = 11;
+    private static final int PREFIX_LENGTH = 7;
+    /**
+     * 号段范围 1300000 ~ 1999999, 手机号码以13~19开头
+     */
+    private static final int MIN_PREFIX = 1300000;
+    private static final int PREFIX_NUM = 700000;
+    private static final String PREFIX_PADDING = "0000";
+
+    private static volatile PhoneRegionIndex instance;
+
+    /**
+     * 号段 - MIN_PREFIX -> 地区id, 未收录的号段为-1
+     */
+    private final ByteBuffer regionIds;
+    private final String[][] regionFields;
+
+    private PhoneRegionIndex(ByteBuffer regionIds, String[][] regionFields) {
+        this.regionIds = regionIds;
+        this.regionFields = regionFields;
+    }
+
+    /**
+     * 获取共享的索引, 第一次获取时构建
+     *
+     * @return PhoneRegionIndex
+     */
+    static PhoneRegionIndex getInstance() {
+        PhoneRegionIndex index = instance;
+        if (index == null) {
+            synchronized (PhoneRegionIndex.class) {
+                index = instance;
+                if (index == null) {
+                    long start = System.currentTimeMillis();
+                    index = build(new PhoneNumberLookup());
+                    logger.info("init phone region index, regions [{}], {} ms",
+                            index.getRegionNum(), System.currentTimeMillis() - start);
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 逐个号段查询, 构建索引
+     */
+    private static PhoneRegionIndex build(PhoneNumberLookup phoneNumberLookup) {
+        ByteBuffer regionIds = ByteBuffer.allocateDirect(PREFIX_NUM * 4);
+        Map<List<String>, Integer> regionIdByFields = new HashMap<>();
+        List<String[]> regionFields = new ArrayList<>();
+        for (int i = 0; i < PREFIX_NUM; i++) {
+            Optional<PhoneNumberInfo> found =
+                    phoneNumberLookup.lookup((MIN_PREFIX + i) + PREFIX_PADDING);
+            int regionId = -1;
+            if (found.isPresent()) {
+                String[] fields = toFields(found.get());
+                Integer id = regionIdByFields.get(Arrays.asList(fields));
+                if (id == null) {
+                    id = regionFields.size();
+                    regionIdByFields.put(Arrays.asList(fields), id);
+                    regionFields.add(fields);
+                }
+                regionId = id;
+            }
+            regionIds.putInt(i * 4, regionId);
+        }
+        return new PhoneRegionIndex(regionIds, regionFields.toArray(new String[0][]));
+    }
+
+    private static String[] toFields(PhoneNumberInfo found) {
+        Attribution attribution = found.getAttribution();
+        return new String[]{
+                // province 省份-贵州
+                intern(attribution.getProvince()),
+                // city 城市-贵阳
+                intern(attribution.getCity()),
+                // isp ISP运营商-中国移动
+                intern(found.getIsp().getCnName()),
+                // zipcode 550000
+                intern(attribution.getZipCode()),
+                // areacode 0851
+                intern(attribution.getAreaCode())};
+    }
+
+    private static String intern(String field) {
+        return field == null ? null : field.intern();
+    }
+
+    /**
+     * 查询手机号码所属的地区id
+     *
+     * @param phoneNumber 11位手机号码
+     * @return int 地区id, 不是手机号码或号段未收录时返回-1
+     */
+    int lookup(CharSequence phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() != PHONE_NUMBER_LENGTH) {
+            return -1;
+        }
+        int prefix = 0;
+        for (int i = 0; i < PHONE_NUMBER_LENGTH; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            if (i < PREFIX_LENGTH) {
+                prefix = prefix * 10 + (c - '0');
+            }
+        }
+        int slot = prefix - MIN_PREFIX;
+        if (slot < 0 || slot >= PREFIX_NUM) {
+            return -1;
+        }
+        return regionIds.getInt(slot * 4);
+    }
+
+    /**
+     * @param regionId 地区id
+     * @return String[] 省份, 城市, ISP, 邮编, 区划码
+     */
+    String[] getRegionFields(int regionId) {
+        return regionFields[regionId];
+    }
+
+    int getRegionNum() {
+        return regionFields.length;
+    }
+}
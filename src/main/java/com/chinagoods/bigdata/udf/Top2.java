@@ -7,7 +7,9 @@ import org.apache.flink.util.Collector;
 /**
  * The top2 user-defined table aggregate function.
  * @author xiaowei.song
+ * @deprecated use {@link TopN} with n = 2, which also supports BIGINT, DOUBLE and STRING values.
  */
+@Deprecated
 public class Top2 extends TableAggregateFunction<Tuple2<Integer, Integer>, Top2Accum> {
 
   @Override
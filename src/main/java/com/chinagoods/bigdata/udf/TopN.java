@@ -0,0 +1,157 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.functions.TableAggregateFunction;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentCount;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.ConstantArgumentCount;
+import org.apache.flink.table.types.inference.InputTypeStrategy;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeFamily;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The top-n user-defined table aggregate function.
+ * 输出组内最大的N个值及其排名(从1开始), 值可以为整数, 浮点数或字符串:
+ * 整数按BIGINT比较, FLOAT/DOUBLE/DECIMAL按DOUBLE比较, 字符串按字典序比较; N为正整数, 以第一次累加时的值为准
+ * <pre>
+ * tab.groupBy($("key"))
+ *    .flatAggregate(call(TopN.class, $("price"), 3))
+ *    .select($("key"), $("value"), $("rank"));
+ * </pre>
+ * Flink 1.15的planner只调用emitValue, 每次更新会撤回并重新输出所有排名,
+ * 因此不实现emitUpdateWithRetract, 状态中也不保存上一次输出的排名
+ *
+ * @author xiaowei.song
+ */
+public class TopN extends TableAggregateFunction<Row, TopNAccum> {
+
+    @Override
+    public TopNAccum createAccumulator() {
+        return new TopNAccum();
+    }
+
+    public void accumulate(TopNAccum acc, Long value, Integer n) {
+        if (value != null) {
+            acc.init(TopNAccum.KIND_LONG, n);
+            acc.offer(value.longValue());
+        }
+    }
+
+    public void accumulate(TopNAccum acc, Double value, Integer n) {
+        if (value != null) {
+            acc.init(TopNAccum.KIND_DOUBLE, n);
+            acc.offer(value.doubleValue());
+        }
+    }
+
+    public void accumulate(TopNAccum acc, String value, Integer n) {
+        if (value != null) {
+            acc.init(TopNAccum.KIND_STRING, n);
+            acc.offer(value);
+        }
+    }
+
+    public void merge(TopNAccum acc, Iterable<TopNAccum> iterable) {
+        for (TopNAccum otherAcc : iterable) {
+            acc.offerAll(otherAcc);
+        }
+    }
+
+    public void emitValue(TopNAccum acc, Collector<Row> out) {
+        Object ranked = acc.ranked();
+        for (int i = 0; i < acc.size; i++) {
+            out.collect(Row.of(value(ranked, i), i + 1));
+        }
+    }
+
+    @Override
+    public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+        return TypeInference.newBuilder()
+                .inputTypeStrategy(new TopNInputTypeStrategy())
+                .accumulatorTypeStrategy(callContext ->
+                        Optional.of(DataTypes.RAW(TopNAccum.class, TopNAccumSerializer.INSTANCE)))
+                .outputTypeStrategy(callContext -> Optional.of(DataTypes.ROW(
+                        DataTypes.FIELD("value", toValueType(callContext.getArgumentDataTypes().get(0))),
+                        DataTypes.FIELD("rank", DataTypes.INT()))))
+                .build();
+    }
+
+    private static Object value(Object values, int i) {
+        if (values instanceof long[]) {
+            return ((long[]) values)[i];
+        } else if (values instanceof double[]) {
+            return ((double[]) values)[i];
+        }
+        return ((String[]) values)[i];
+    }
+
+    /**
+     * @param argumentType 值参数的类型
+     * @return DataType 比较及输出时使用的类型, 不支持时返回null
+     */
+    private static DataType toValueType(DataType argumentType) {
+        LogicalType type = argumentType.getLogicalType();
+        if (type.is(LogicalTypeFamily.INTEGER_NUMERIC)) {
+            return DataTypes.BIGINT();
+        } else if (type.is(LogicalTypeFamily.APPROXIMATE_NUMERIC) || type.is(LogicalTypeFamily.EXACT_NUMERIC)) {
+            return DataTypes.DOUBLE();
+        } else if (type.is(LogicalTypeFamily.CHARACTER_STRING)) {
+            return DataTypes.STRING();
+        }
+        return null;
+    }
+
+    /**
+     * 参数为(值, N), 值转换为BIGINT, DOUBLE或STRING, N转换为INT
+     */
+    private static class TopNInputTypeStrategy implements InputTypeStrategy {
+
+        @Override
+        public ArgumentCount getArgumentCount() {
+            return ConstantArgumentCount.of(2);
+        }
+
+        @Override
+        public Optional<List<DataType>> inferInputTypes(CallContext callContext, boolean throwOnFailure) {
+            List<DataType> argumentTypes = callContext.getArgumentDataTypes();
+            DataType valueType = toValueType(argumentTypes.get(0));
+            if (valueType == null) {
+                return fail(callContext, throwOnFailure,
+                        "Values of %s must be integer, floating point or string, but was %s.",
+                        callContext.getName(), argumentTypes.get(0));
+            }
+            // 聚合函数转换为物理计划时会再次推导类型, 此时拿不到常量的值, N是否为正数在第一次累加时检查
+            if (!argumentTypes.get(1).getLogicalType().is(LogicalTypeFamily.INTEGER_NUMERIC)) {
+                return fail(callContext, throwOnFailure, "N of %s must be an integer.", callContext.getName());
+            }
+            return Optional.of(Arrays.asList(valueType, DataTypes.INT()));
+        }
+
+        @Override
+        public List<Signature> getExpectedSignatures(FunctionDefinition definition) {
+            return Collections.singletonList(Signature.of(
+                    Signature.Argument.of("value", "<INTEGER_NUMERIC|APPROXIMATE_NUMERIC|EXACT_NUMERIC|CHARACTER_STRING>"),
+                    Signature.Argument.of("n", "INT")));
+        }
+
+        private static Optional<List<DataType>> fail(CallContext callContext, boolean throwOnFailure,
+                                                     String message, Object... args) {
+            if (throwOnFailure) {
+                throw callContext.newValidationError(message, args);
+            }
+            return Optional.empty();
+        }
+    }
+}
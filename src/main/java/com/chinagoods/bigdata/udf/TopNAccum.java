@@ -0,0 +1,224 @@
+package com.chinagoods.bigdata.udf;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Accumulator for TopN.
+ * <p>
+ * 最大的N个值存放在基本类型数组实现的最小堆中, 堆顶为第N名, 新值只需与堆顶比较;
+ * 值的类型(BIGINT, DOUBLE或STRING)在第一次累加时确定; 输出时复制堆排序, 状态中只有堆
+ * <p>
+ * 状态使用{@link TopNAccumSerializer}序列化
+ *
+ * @author xiaowei.song
+ */
+public class TopNAccum {
+    static final byte KIND_NONE = 0;
+    static final byte KIND_LONG = 1;
+    static final byte KIND_DOUBLE = 2;
+    static final byte KIND_STRING = 3;
+
+    byte kind = KIND_NONE;
+    /**
+     * 保留的值个数上限
+     */
+    int n;
+
+    /**
+     * 最小堆, 根据kind只使用其中一个数组, 长度为n
+     */
+    int size;
+    long[] longs;
+    double[] doubles;
+    String[] strings;
+
+    /**
+     * 第一次累加时确定值的类型及个数上限
+     *
+     * @param kind 值的类型
+     * @param n    个数上限
+     */
+    void init(byte kind, int n) {
+        if (this.kind != KIND_NONE) {
+            return;
+        }
+        if (n <= 0) {
+            throw new IllegalArgumentException("TopN n must be positive, but was: " + n);
+        }
+        this.kind = kind;
+        this.n = n;
+        allocate();
+    }
+
+    void allocate() {
+        switch (kind) {
+            case KIND_LONG:
+                longs = new long[n];
+                break;
+            case KIND_DOUBLE:
+                doubles = new double[n];
+                break;
+            case KIND_STRING:
+                strings = new String[n];
+                break;
+            default:
+                break;
+        }
+    }
+
+    void offer(long value) {
+        long[] heap = longs;
+        if (size < n) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        } else if (value > heap[0]) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = value;
+        }
+    }
+
+    void offer(double value) {
+        double[] heap = doubles;
+        if (size < n) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (Double.compare(heap[parent], value) <= 0) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        } else if (Double.compare(value, heap[0]) > 0) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && Double.compare(heap[child + 1], heap[child]) < 0) {
+                    child++;
+                }
+                if (Double.compare(value, heap[child]) <= 0) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = value;
+        }
+    }
+
+    void offer(String value) {
+        String[] heap = strings;
+        if (size < n) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].compareTo(value) <= 0) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        } else if (value.compareTo(heap[0]) > 0) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1].compareTo(heap[child]) < 0) {
+                    child++;
+                }
+                if (value.compareTo(heap[child]) <= 0) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = value;
+        }
+    }
+
+    /**
+     * 合并另一个累加器的堆
+     *
+     * @param other 累加器
+     */
+    void offerAll(TopNAccum other) {
+        if (other.kind == KIND_NONE) {
+            return;
+        }
+        init(other.kind, other.n);
+        for (int i = 0; i < other.size; i++) {
+            switch (kind) {
+                case KIND_LONG:
+                    offer(other.longs[i]);
+                    break;
+                case KIND_DOUBLE:
+                    offer(other.doubles[i]);
+                    break;
+                default:
+                    offer(other.strings[i]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 复制堆中的值并按排名降序排列, 不修改堆
+     *
+     * @return Object 排好序的值数组(long[], double[]或String[]), 长度为size; 没有值时为null
+     */
+    Object ranked() {
+        switch (kind) {
+            case KIND_LONG: {
+                long[] ranked = Arrays.copyOf(longs, size);
+                Arrays.sort(ranked);
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    long tmp = ranked[i];
+                    ranked[i] = ranked[j];
+                    ranked[j] = tmp;
+                }
+                return ranked;
+            }
+            case KIND_DOUBLE: {
+                double[] ranked = Arrays.copyOf(doubles, size);
+                Arrays.sort(ranked);
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    double tmp = ranked[i];
+                    ranked[i] = ranked[j];
+                    ranked[j] = tmp;
+                }
+                return ranked;
+            }
+            case KIND_STRING: {
+                String[] ranked = Arrays.copyOf(strings, size);
+                Arrays.sort(ranked, Collections.reverseOrder());
+                return ranked;
+            }
+            default:
+                return null;
+        }
+    }
+}
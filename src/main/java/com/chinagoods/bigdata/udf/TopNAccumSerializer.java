@@ -0,0 +1,183 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializer for {@link TopNAccum}.
+ * <p>
+ * 格式: 值的类型, N, 堆的大小及堆中的值;
+ * BIGINT为zigzag变长编码, DOUBLE为8字节, STRING为变长整数的字节长度加UTF-8字节, 个数均为变长编码
+ *
+ * @author xiaowei.song
+ */
+public final class TopNAccumSerializer extends TypeSerializerSingleton<TopNAccum> {
+    private static final long serialVersionUID = 1L;
+
+    public static final TopNAccumSerializer INSTANCE = new TopNAccumSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public TopNAccum createInstance() {
+        return new TopNAccum();
+    }
+
+    @Override
+    public TopNAccum copy(TopNAccum from) {
+        TopNAccum copy = new TopNAccum();
+        copy.kind = from.kind;
+        copy.n = from.n;
+        copy.size = from.size;
+        switch (from.kind) {
+            case TopNAccum.KIND_LONG:
+                copy.longs = from.longs.clone();
+                break;
+            case TopNAccum.KIND_DOUBLE:
+                copy.doubles = from.doubles.clone();
+                break;
+            case TopNAccum.KIND_STRING:
+                copy.strings = from.strings.clone();
+                break;
+            default:
+                break;
+        }
+        return copy;
+    }
+
+    @Override
+    public TopNAccum copy(TopNAccum from, TopNAccum reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(TopNAccum record, DataOutputView target) throws IOException {
+        target.writeByte(record.kind);
+        if (record.kind == TopNAccum.KIND_NONE) {
+            return;
+        }
+        writeVarInt(record.n, target);
+        writeVarInt(record.size, target);
+        writeValues(record.kind, record.longs, record.doubles, record.strings, record.size, target);
+    }
+
+    @Override
+    public TopNAccum deserialize(DataInputView source) throws IOException {
+        TopNAccum record = new TopNAccum();
+        record.kind = source.readByte();
+        if (record.kind == TopNAccum.KIND_NONE) {
+            return record;
+        }
+        record.n = readVarInt(source);
+        record.allocate();
+        record.size = readVarInt(source);
+        readValues(record.kind, record.longs, record.doubles, record.strings, record.size, source);
+        return record;
+    }
+
+    @Override
+    public TopNAccum deserialize(TopNAccum reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<TopNAccum> snapshotConfiguration() {
+        return new TopNAccumSerializerSnapshot();
+    }
+
+    private static void writeValues(byte kind, long[] longs, double[] doubles, String[] strings, int size,
+                                    DataOutputView target) throws IOException {
+        for (int i = 0; i < size; i++) {
+            switch (kind) {
+                case TopNAccum.KIND_LONG:
+                    writeVarLong((longs[i] << 1) ^ (longs[i] >> 63), target);
+                    break;
+                case TopNAccum.KIND_DOUBLE:
+                    target.writeDouble(doubles[i]);
+                    break;
+                default:
+                    byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(bytes.length, target);
+                    target.write(bytes);
+                    break;
+            }
+        }
+    }
+
+    private static void readValues(byte kind, long[] longs, double[] doubles, String[] strings, int size,
+                                   DataInputView source) throws IOException {
+        for (int i = 0; i < size; i++) {
+            switch (kind) {
+                case TopNAccum.KIND_LONG:
+                    long zigzag = readVarLong(source);
+                    longs[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                    break;
+                case TopNAccum.KIND_DOUBLE:
+                    doubles[i] = source.readDouble();
+                    break;
+                default:
+                    byte[] bytes = new byte[readVarInt(source)];
+                    source.readFully(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+            }
+        }
+    }
+
+    private static void writeVarInt(int value, DataOutputView target) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL, target);
+    }
+
+    private static int readVarInt(DataInputView source) throws IOException {
+        return (int) readVarLong(source);
+    }
+
+    private static void writeVarLong(long value, DataOutputView target) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            target.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        target.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputView source) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = source.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Serializer configuration snapshot for compatibility and format evolution.
+     */
+    public static final class TopNAccumSerializerSnapshot extends SimpleTypeSerializerSnapshot<TopNAccum> {
+
+        public TopNAccumSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.chinagoods.bigdata.udf;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.github.mngsk.devicedetector.Detection;
+import io.github.mngsk.devicedetector.DeviceDetector;
+import io.github.mngsk.devicedetector.DeviceDetector.DeviceDetectorBuilder;
+import nl.basjes.parse.useragent.UserAgent;
+import nl.basjes.parse.useragent.UserAgentAnalyzer;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * UserAgent解析器注册表
+ * <p>
+ * 同一个TaskManager中(同一个类加载器内)配置相同的所有函数实例共享一个解析器,
+ * 解析器只在第一次获取时构建, 通过引用计数管理, 最后一个实例释放后丢弃;
+ * 构建不持有注册表的锁, 同一配置的其他实例等待构建完成, 不同配置的获取和释放不受影响.
+ * yauaa解析器每个缓存配置只有一个, 提取所有实例用到的字段的并集, 出现新字段时在后台线程重建, 见{@link SharedAnalyzer}
+ * <p>
+ * yauaa解析器的parse方法是同步的, 共享后由注册表在解析器前加一层并发的LRU缓存,
+ * 命中缓存时不会竞争解析器的锁; DeviceDetector逐个正则匹配, 同样缓存检测结果;
+ * 缓存大小及过期时间通过作业参数配置
+ *
+ * @author wwek
+ */
+final class UserAgentParserRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(UserAgentParserRegistry.class);
+
+    /**
+     * 作业参数: 解析结果缓存的最大条数, 0表示不缓存, 默认15000
+     */
+    static final String CACHE_SIZE = "useragent.cache.size";
+    /**
+     * 作业参数: 解析结果最后一次访问后多久过期, 0表示不过期只按大小淘汰, 默认0
+     */
+    static final String CACHE_EXPIRE_AFTER_ACCESS_MS = "useragent.cache.expire.after.access.ms";
+    /**
+     * 作业参数: DeviceDetector检测结果缓存的最大条数, 0表示不缓存, 默认15000
+     */
+    static final String DD_CACHE_SIZE = "devicedetector.cache.size";
+    /**
+     * 作业参数: DeviceDetector检测结果最后一次访问后多久过期, 0表示不过期只按大小淘汰, 默认0
+     */
+    static final String DD_CACHE_EXPIRE_AFTER_ACCESS_MS = "devicedetector.cache.expire.after.access.ms";
+
+    private static final String DEFAULT_CACHE_SIZE = "15000";
+    private static final String DEFAULT_CACHE_EXPIRE_AFTER_ACCESS_MS = "0";
+
+    /**
+     * 配置 -> 共享的解析器
+     */
+    private static final Map<String, Shared<?>> INSTANCES = new HashMap<>();
+
+    private UserAgentParserRegistry() {
+    }
+
+    /**
+     * 共享的解析器及其引用计数
+     *
+     * @param <T> 解析器类型
+     */
+    static final class Shared<T> {
+        private final String key;
+        private final FutureTask<T> builder;
+        private volatile T parser;
+        private int refCount;
+
+        private Shared(String key, FutureTask<T> builder) {
+            this.key = key;
+            this.builder = builder;
+        }
+
+        T get() {
+            return parser;
+        }
+    }
+
+    /**
+     * 带缓存的yauaa解析器, 线程安全
+     */
+    static final class CachingAnalyzer {
+        private final Set<String> fields;
+        private final UserAgentAnalyzer analyzer;
+        private final Cache<String, UserAgent.ImmutableUserAgent> cache;
+
+        private CachingAnalyzer(Set<String> fields, UserAgentAnalyzer analyzer,
+                                Cache<String, UserAgent.ImmutableUserAgent> cache) {
+            this.fields = fields;
+            this.analyzer = analyzer;
+            this.cache = cache;
+        }
+
+        /**
+         * @param fieldNames 字段
+         * @return boolean 解析器是否提取了所有这些字段
+         */
+        boolean hasFields(Collection<String> fieldNames) {
+            return fields.containsAll(fieldNames);
+        }
+
+        UserAgent.ImmutableUserAgent parse(String userAgent) {
+            if (cache == null || userAgent == null) {
+                return analyzer.parse(userAgent);
+            }
+            try {
+                return cache.get(userAgent, () -> analyzer.parse(userAgent));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("parse user agent error: " + userAgent, e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 同一缓存配置的所有实例共享的yauaa解析器, 线程安全
+     * <p>
+     * 解析器提取所有实例请求过的字段的并集, 出现新字段时在后台线程按并集重新构建,
+     * 构建完成后替换当前解析器(结果缓存随之重建); 构建期间已有的解析器继续使用,
+     * 只有缺少字段的调用等待构建完成. 构建线程空闲一段时间后退出
+     */
+    static final class SharedAnalyzer {
+        private static final long BUILDER_KEEP_ALIVE_SECONDS = 60;
+
+        private final CacheConfig cacheConfig;
+        private final ThreadPoolExecutor builder;
+        /**
+         * 所有实例请求过的字段
+         */
+        private final Set<String> requestedFields = new LinkedHashSet<>();
+        /**
+         * 按requestedFields构建的解析器, 包含当前所有请求过的字段
+         */
+        private CompletableFuture<CachingAnalyzer> pending;
+        private volatile CachingAnalyzer current;
+
+        private SharedAnalyzer(CacheConfig cacheConfig) {
+            this.cacheConfig = cacheConfig;
+            this.builder = new ThreadPoolExecutor(1, 1, BUILDER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new ExecutorThreadFactory("user-agent-analyzer-builder"));
+            this.builder.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * 请求字段, 有新字段时在后台按并集构建解析器, 不等待构建完成
+         *
+         * @param fields 字段
+         * @return CompletableFuture 包含这些字段的解析器
+         */
+        synchronized CompletableFuture<CachingAnalyzer> require(Collection<String> fields) {
+            if (requestedFields.addAll(fields) || pending == null || pending.isCompletedExceptionally()) {
+                pending = CompletableFuture.supplyAsync(this::buildRequested, builder);
+            }
+            return pending;
+        }
+
+        /**
+         * @return CachingAnalyzer 当前的解析器, 还没有构建完成时为null
+         */
+        CachingAnalyzer current() {
+            return current;
+        }
+
+        /**
+         * 获取包含这些字段的解析器, 当前的解析器缺少字段时等待后台构建完成
+         *
+         * @param fields 字段
+         * @return CachingAnalyzer
+         */
+        CachingAnalyzer get(Collection<String> fields) {
+            CachingAnalyzer analyzer = current;
+            if (analyzer != null && analyzer.hasFields(fields)) {
+                return analyzer;
+            }
+            try {
+                return require(fields).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for user agent analyzer", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("init user agent analyzer error", e.getCause());
+            }
+        }
+
+        /**
+         * 在构建线程中执行, 构建依次进行; 之前的构建已包含所有请求的字段时直接返回
+         */
+        private CachingAnalyzer buildRequested() {
+            Set<String> fields;
+            synchronized (this) {
+                fields = new LinkedHashSet<>(requestedFields);
+            }
+            CachingAnalyzer analyzer = current;
+            if (analyzer != null && analyzer.hasFields(fields)) {
+                return analyzer;
+            }
+            long start = System.currentTimeMillis();
+            UserAgentAnalyzer userAgentAnalyzer = UserAgentAnalyzer
+                    .newBuilder()
+                    .withFields(new ArrayList<>(fields))
+                    .withoutCache()
+                    .hideMatcherLoadStats()
+                    .immediateInitialization()
+                    .build();
+            analyzer = new CachingAnalyzer(new HashSet<>(fields), userAgentAnalyzer, cacheConfig.build());
+            logger.info("init user agent analyzer [{}] with fields {} in {} ms",
+                    cacheConfig, fields, System.currentTimeMillis() - start);
+            current = analyzer;
+            return analyzer;
+        }
+    }
+
+    /**
+     * 带缓存的DeviceDetector, 线程安全
+     * <p>
+     * 命中与未命中由调用方分别调用{@link #getCached(String)}和{@link #detect(String)}统计,
+     * 淘汰数为所有共享实例的总数
+     */
+    static final class CachingDeviceDetector {
+        private final DeviceDetector detector;
+        private final Cache<String, Detection> cache;
+
+        private CachingDeviceDetector(DeviceDetector detector, Cache<String, Detection> cache) {
+            this.detector = detector;
+            this.cache = cache;
+        }
+
+        /**
+         * @param userAgent ua
+         * @return Detection 缓存的检测结果, 未缓存时返回null
+         */
+        Detection getCached(String userAgent) {
+            return cache == null || userAgent == null ? null : cache.getIfPresent(userAgent);
+        }
+
+        /**
+         * 检测并缓存结果
+         *
+         * @param userAgent ua
+         * @return Detection
+         */
+        Detection detect(String userAgent) {
+            Detection detection = detector.detect(userAgent);
+            if (cache != null && userAgent != null && detection != null) {
+                cache.put(userAgent, detection);
+            }
+            return detection;
+        }
+
+        long getEvictionCount() {
+            return cache == null ? 0 : cache.stats().evictionCount();
+        }
+
+        long getSize() {
+            return cache == null ? 0 : cache.size();
+        }
+    }
+
+    /**
+     * 缓存配置, 在函数的open中读取
+     */
+    static final class CacheConfig {
+        private final int size;
+        private final long expireAfterAccessMs;
+
+        private CacheConfig(int size, long expireAfterAccessMs) {
+            this.size = size;
+            this.expireAfterAccessMs = expireAfterAccessMs;
+        }
+
+        /**
+         * @param context   函数上下文
+         * @param sizeKey   缓存大小的作业参数
+         * @param expireKey 缓存过期时间的作业参数
+         * @return CacheConfig
+         */
+        static CacheConfig fromContext(FunctionContext context, String sizeKey, String expireKey) {
+            int size = Integer.parseInt(context.getJobParameter(sizeKey, DEFAULT_CACHE_SIZE));
+            long expireAfterAccessMs = Long.parseLong(
+                    context.getJobParameter(expireKey, DEFAULT_CACHE_EXPIRE_AFTER_ACCESS_MS));
+            if (size < 0 || expireAfterAccessMs < 0) {
+                throw new IllegalArgumentException(sizeKey + " and " + expireKey + " must not be negative");
+            }
+            return new CacheConfig(size, expireAfterAccessMs);
+        }
+
+        private <K, V> Cache<K, V> build() {
+            if (size == 0) {
+                return null;
+            }
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(size).recordStats();
+            if (expireAfterAccessMs > 0) {
+                builder.expireAfterAccess(expireAfterAccessMs, TimeUnit.MILLISECONDS);
+            }
+            return builder.build();
+        }
+
+        @Override
+        public String toString() {
+            return "size=" + size + ",expireAfterAccessMs=" + expireAfterAccessMs;
+        }
+    }
+
+    /**
+     * 获取缓存配置对应的共享yauaa解析器, 获取时不构建, 字段通过{@link SharedAnalyzer#require(Collection)}请求
+     * 每次获取都需要对应一次{@link #release(Shared)}
+     *
+     * @param cacheConfig 缓存配置
+     * @return Shared
+     */
+    static Shared<SharedAnalyzer> acquireAnalyzer(CacheConfig cacheConfig) {
+        return acquire("yauaa:" + cacheConfig, () -> new SharedAnalyzer(cacheConfig));
+    }
+
+    /**
+     * 获取共享的DeviceDetector, 第一次获取时构建
+     * 每次获取都需要对应一次{@link #release(Shared)}
+     *
+     * @param cacheConfig 缓存配置
+     * @return Shared
+     */
+    static Shared<CachingDeviceDetector> acquireDeviceDetector(CacheConfig cacheConfig) {
+        return acquire("device-detector:" + cacheConfig,
+                () -> new CachingDeviceDetector(new DeviceDetectorBuilder().build(), cacheConfig.build()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Shared<T> acquire(String key, Supplier<T> builder) {
+        Shared<T> shared;
+        boolean created = false;
+        synchronized (UserAgentParserRegistry.class) {
+            shared = (Shared<T>) INSTANCES.get(key);
+            if (shared == null) {
+                shared = new Shared<>(key, new FutureTask<>(builder::get));
+                INSTANCES.put(key, shared);
+                created = true;
+            }
+            shared.refCount++;
+        }
+
+        // 在锁外构建, 同一配置的其他实例在get中等待
+        if (created) {
+            long start = System.currentTimeMillis();
+            shared.builder.run();
+            logger.info("init user agent parser [{}] in {} ms", key, System.currentTimeMillis() - start);
+        }
+        try {
+            shared.parser = shared.builder.get();
+            return shared;
+        } catch (InterruptedException e) {
+            discard(shared);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for user agent parser [" + key + "]", e);
+        } catch (ExecutionException e) {
+            discard(shared);
+            throw new IllegalStateException("init user agent parser [" + key + "] error", e.getCause());
+        }
+    }
+
+    /**
+     * 获取失败时撤销引用, 构建失败的解析器从注册表移除, 之后的获取重新构建
+     */
+    private static synchronized void discard(Shared<?> shared) {
+        shared.refCount--;
+        if (INSTANCES.get(shared.key) == shared && (shared.refCount == 0 || shared.builder.isDone())) {
+            INSTANCES.remove(shared.key);
+        }
+    }
+
+    /**
+     * 释放共享的解析器, 最后一个使用者释放后丢弃
+     *
+     * @param shared 之前获取的解析器
+     */
+    static synchronized void release(Shared<?> shared) {
+        if (shared == null || INSTANCES.get(shared.key) != shared) {
+            return;
+        }
+        if (--shared.refCount == 0) {
+            INSTANCES.remove(shared.key);
+            logger.info("release user agent parser [{}]", shared.key);
+        }
+    }
+}
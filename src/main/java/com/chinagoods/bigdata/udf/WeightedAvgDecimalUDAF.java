@@ -0,0 +1,134 @@
+package com.chinagoods.bigdata.udf;
+
+import com.chinagoods.bigdata.util.Int128;
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.catalog.DataTypeFactory;
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.functions.AggregateFunction;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.inference.ArgumentCount;
+import org.apache.flink.table.types.inference.CallContext;
+import org.apache.flink.table.types.inference.ConstantArgumentCount;
+import org.apache.flink.table.types.inference.InputTypeStrategy;
+import org.apache.flink.table.types.inference.Signature;
+import org.apache.flink.table.types.inference.TypeInference;
+import org.apache.flink.table.types.logical.DecimalType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeFamily;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+
+import com.chinagoods.bigdata.domain.WeightedAvgDecimalAccum;
+import com.chinagoods.bigdata.domain.WeightedAvgDecimalAccumSerializer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Weighted Average user-defined aggregate function for DECIMAL values and BIGINT weights.
+ * 值必须为DECIMAL(p, s)且p不超过18, 按unscaled的long值累加128位加权和, 累加时不创建对象;
+ * 结果类型与AVG相同为DECIMAL(38, max(6, s)), 四舍五入
+ * @author xiaowei.song
+ */
+public class WeightedAvgDecimalUDAF extends AggregateFunction<DecimalData, WeightedAvgDecimalAccum> {
+  private static final int MAX_COMPACT_PRECISION = 18;
+  private static final int RESULT_PRECISION = 38;
+  private static final int MIN_RESULT_SCALE = 6;
+
+  @Override
+  public WeightedAvgDecimalAccum createAccumulator() {
+    return new WeightedAvgDecimalAccum();
+  }
+
+  @Override
+  public DecimalData getValue(WeightedAvgDecimalAccum acc) {
+    if (acc.count == 0) {
+      return null;
+    }
+    int resultScale = Math.max(MIN_RESULT_SCALE, acc.scale);
+    BigDecimal sum = new BigDecimal(Int128.toBigInteger(acc.sumHigh, acc.sum), acc.scale);
+    BigDecimal avg = sum.divide(BigDecimal.valueOf(acc.count), resultScale, RoundingMode.HALF_UP);
+    return DecimalData.fromBigDecimal(avg, RESULT_PRECISION, resultScale);
+  }
+
+  public void accumulate(WeightedAvgDecimalAccum acc, DecimalData iValue, Long iWeight) {
+    if (iValue != null && iWeight != null) {
+      acc.scale = iValue.scale();
+      acc.add(iValue.toUnscaledLong(), iWeight);
+    }
+  }
+
+  public void retract(WeightedAvgDecimalAccum acc, DecimalData iValue, Long iWeight) {
+    if (iValue != null && iWeight != null) {
+      acc.scale = iValue.scale();
+      acc.subtract(iValue.toUnscaledLong(), iWeight);
+    }
+  }
+
+  public void merge(WeightedAvgDecimalAccum acc, Iterable<WeightedAvgDecimalAccum> it) {
+    Iterator<WeightedAvgDecimalAccum> iter = it.iterator();
+    while (iter.hasNext()) {
+      acc.addAll(iter.next());
+    }
+  }
+
+  public void resetAccumulator(WeightedAvgDecimalAccum acc) {
+    acc.reset();
+  }
+
+  @Override
+  public TypeInference getTypeInference(DataTypeFactory typeFactory) {
+    return TypeInference.newBuilder()
+        .inputTypeStrategy(new DecimalInputTypeStrategy())
+        .accumulatorTypeStrategy(callContext -> Optional.of(
+            DataTypes.RAW(WeightedAvgDecimalAccum.class, WeightedAvgDecimalAccumSerializer.INSTANCE)))
+        .outputTypeStrategy(callContext -> {
+          DecimalType valueType = (DecimalType) callContext.getArgumentDataTypes().get(0).getLogicalType();
+          int resultScale = Math.max(MIN_RESULT_SCALE, valueType.getScale());
+          return Optional.of(DataTypes.DECIMAL(RESULT_PRECISION, resultScale).bridgedTo(DecimalData.class));
+        })
+        .build();
+  }
+
+  /**
+   * 参数为(DECIMAL(p, s), 权重), p不超过18, 值以DecimalData传入, 权重转换为BIGINT
+   */
+  private static class DecimalInputTypeStrategy implements InputTypeStrategy {
+
+    @Override
+    public ArgumentCount getArgumentCount() {
+      return ConstantArgumentCount.of(2);
+    }
+
+    @Override
+    public Optional<List<DataType>> inferInputTypes(CallContext callContext, boolean throwOnFailure) {
+      LogicalType valueType = callContext.getArgumentDataTypes().get(0).getLogicalType();
+      LogicalType weightType = callContext.getArgumentDataTypes().get(1).getLogicalType();
+      if (!valueType.is(LogicalTypeRoot.DECIMAL)
+          || ((DecimalType) valueType).getPrecision() > MAX_COMPACT_PRECISION
+          || !weightType.is(LogicalTypeFamily.INTEGER_NUMERIC)) {
+        if (throwOnFailure) {
+          throw callContext.newValidationError(
+              "%s expects (DECIMAL(p, s) with p <= %s, integer weight), but was (%s, %s).",
+              callContext.getName(), MAX_COMPACT_PRECISION, valueType, weightType);
+        }
+        return Optional.empty();
+      }
+      return Optional.of(Arrays.asList(
+          callContext.getArgumentDataTypes().get(0).bridgedTo(DecimalData.class),
+          DataTypes.BIGINT()));
+    }
+
+    @Override
+    public List<Signature> getExpectedSignatures(FunctionDefinition definition) {
+      return Collections.singletonList(Signature.of(
+          Signature.Argument.of("value", "DECIMAL"),
+          Signature.Argument.of("weight", "BIGINT")));
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.chinagoods.bigdata.udf;
+
+import org.apache.flink.table.functions.AggregateFunction;
+
+import com.chinagoods.bigdata.domain.WeightedAvgDoubleAccum;
+
+import java.util.Iterator;
+
+/**
+ * Weighted Average user-defined aggregate function for DOUBLE values and weights.
+ * 使用补偿求和, 没有值或权重之和为0时返回null
+ * @author xiaowei.song
+ */
+public class WeightedAvgDoubleUDAF extends AggregateFunction<Double, WeightedAvgDoubleAccum> {
+
+  @Override
+  public WeightedAvgDoubleAccum createAccumulator() {
+    return new WeightedAvgDoubleAccum();
+  }
+
+  @Override
+  public Double getValue(WeightedAvgDoubleAccum acc) {
+    double weight = acc.getWeight();
+    if (acc.count == 0 || weight == 0) {
+      return null;
+    } else {
+      return acc.getSum() / weight;
+    }
+  }
+
+  public void accumulate(WeightedAvgDoubleAccum acc, Double iValue, Double iWeight) {
+    if (iValue != null && iWeight != null) {
+      acc.add(iValue, iWeight);
+    }
+  }
+
+  public void retract(WeightedAvgDoubleAccum acc, Double iValue, Double iWeight) {
+    if (iValue != null && iWeight != null) {
+      acc.subtract(iValue, iWeight);
+    }
+  }
+
+  public void merge(WeightedAvgDoubleAccum acc, Iterable<WeightedAvgDoubleAccum> it) {
+    Iterator<WeightedAvgDoubleAccum> iter = it.iterator();
+    while (iter.hasNext()) {
+      acc.addAll(iter.next());
+    }
+  }
+
+  public void resetAccumulator(WeightedAvgDoubleAccum acc) {
+    acc.reset();
+  }
+}
@@ -1,13 +1,17 @@
 package com.chinagoods.bigdata.udf;
 
+import com.chinagoods.bigdata.util.Int128;
 import org.apache.flink.table.functions.AggregateFunction;
 
 import com.chinagoods.bigdata.domain.WeightedAvgAccum;
 
+import java.math.BigInteger;
 import java.util.Iterator;
 
 /**
  * Weighted Average user-defined aggregate function.
+ * 加权和按128位整数累加, 不会溢出; 结果向零取整, 超出BIGINT时抛出ArithmeticException.
+ * DOUBLE及DECIMAL见{@link WeightedAvgDoubleUDAF}和{@link WeightedAvgDecimalUDAF}
  * @author xiaowei.song
  */
 public class WeightedAvgUDAF extends AggregateFunction<Long, WeightedAvgAccum> {
@@ -21,32 +25,29 @@ public class WeightedAvgUDAF extends AggregateFunction<Long, WeightedAvgAccum> {
   public Long getValue(WeightedAvgAccum acc) {
     if (acc.count == 0) {
       return null;
-    } else {
+    } else if (Int128.fitsLong(acc.sumHigh, acc.sum) && acc.count != -1) {
       return acc.sum / acc.count;
+    } else {
+      return Int128.toBigInteger(acc.sumHigh, acc.sum).divide(BigInteger.valueOf(acc.count)).longValueExact();
     }
   }
 
-  public void accumulate(WeightedAvgAccum acc, long iValue, int iWeight) {
-    acc.sum += iValue * iWeight;
-    acc.count += iWeight;
+  public void accumulate(WeightedAvgAccum acc, long iValue, long iWeight) {
+    acc.add(iValue, iWeight);
   }
 
-  public void retract(WeightedAvgAccum acc, long iValue, int iWeight) {
-    acc.sum -= iValue * iWeight;
-    acc.count -= iWeight;
+  public void retract(WeightedAvgAccum acc, long iValue, long iWeight) {
+    acc.subtract(iValue, iWeight);
   }
 
   public void merge(WeightedAvgAccum acc, Iterable<WeightedAvgAccum> it) {
     Iterator<WeightedAvgAccum> iter = it.iterator();
     while (iter.hasNext()) {
-      WeightedAvgAccum a = iter.next();
-      acc.count += a.count;
-      acc.sum += a.sum;
+      acc.addAll(iter.next());
     }
   }
 
   public void resetAccumulator(WeightedAvgAccum acc) {
-    acc.count = 0;
-    acc.sum = 0L;
+    acc.reset();
   }
 }
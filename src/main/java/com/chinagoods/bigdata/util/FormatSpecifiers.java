@@ -0,0 +1,65 @@
+package com.chinagoods.bigdata.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * 一组格式说明符及对应的字段, 如ip2region的%c country, %P province
+ * <p>
+ * 编译后的格式按格式字符串缓存在有界的LRU缓存中, 所有线程共享
+ *
+ * @author wwek
+ */
+public final class FormatSpecifiers {
+    private static final int MAX_CACHED_TEMPLATES = 256;
+
+    private final String[] specifiers;
+    private final String[] fieldNames;
+    private final LoadingCache<String, FormatTemplate> templates = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_TEMPLATES)
+            .build(CacheLoader.from(format -> FormatTemplate.compile(format, this)));
+
+    /**
+     * @param specifiers 格式说明符, 不含%JSON
+     * @param fieldNames 与格式说明符一一对应的字段名, 也是%JSON中字段的顺序
+     */
+    public FormatSpecifiers(String[] specifiers, String[] fieldNames) {
+        if (specifiers.length != fieldNames.length) {
+            throw new IllegalArgumentException("specifiers and field names do not match");
+        }
+        this.specifiers = specifiers.clone();
+        this.fieldNames = fieldNames.clone();
+    }
+
+    /**
+     * 编译格式, 相同的格式只编译一次
+     *
+     * @param format String 格式
+     * @return FormatTemplate
+     */
+    public FormatTemplate compile(String format) {
+        return templates.getUnchecked(format);
+    }
+
+    /**
+     * @param fieldName 字段名
+     * @return int 字段下标, 不存在时返回-1
+     */
+    public int indexOf(String fieldName) {
+        for (int f = 0; f < fieldNames.length; f++) {
+            if (fieldNames[f].equals(fieldName)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    String[] getSpecifiers() {
+        return specifiers;
+    }
+}
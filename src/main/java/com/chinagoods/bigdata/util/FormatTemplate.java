@@ -0,0 +1,197 @@
+package com.chinagoods.bigdata.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的格式
+ * <p>
+ * 格式字符串只解析一次, 拆分为字面量和字段下标, 每个位置按最长的格式说明符匹配(%ANV优先于%AN),
+ * 格式化时按顺序拼接, 不再对整个字符串逐个说明符做替换
+ * <p>
+ * 线程安全, 由{@link FormatSpecifiers#compile(String)}创建并缓存
+ *
+ * @author wwek
+ */
+public final class FormatTemplate {
+    private static final Logger logger = LoggerFactory.getLogger(FormatTemplate.class);
+
+    static final String SPECIFIER_JSON = "%JSON";
+    private static final int LITERAL = -2;
+    private static final int JSON = -1;
+    private static final int MAX_REUSED_BUILDER_CAPACITY = 8192;
+
+    /**
+     * 每个线程复用的StringBuilder
+     */
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final FormatSpecifiers specifiers;
+    /**
+     * 格式片段: 字面量为LITERAL, %JSON为JSON, 其他为字段下标
+     */
+    private final int[] fieldIndexes;
+    private final String[] literals;
+    /**
+     * 格式用到的字段下标, 升序去重, 含%JSON时为全部字段
+     */
+    private final int[] usedFieldIndexes;
+
+    private FormatTemplate(FormatSpecifiers specifiers, int[] fieldIndexes, String[] literals) {
+        this.specifiers = specifiers;
+        this.fieldIndexes = fieldIndexes;
+        this.literals = literals;
+        this.usedFieldIndexes = usedFieldIndexes(fieldIndexes, specifiers.getFieldNames().length);
+    }
+
+    private static int[] usedFieldIndexes(int[] fieldIndexes, int fieldNum) {
+        boolean[] used = new boolean[fieldNum];
+        int usedNum = 0;
+        for (int fieldIndex : fieldIndexes) {
+            if (fieldIndex == JSON) {
+                Arrays.fill(used, true);
+                usedNum = fieldNum;
+                break;
+            }
+            if (fieldIndex >= 0 && !used[fieldIndex]) {
+                used[fieldIndex] = true;
+                usedNum++;
+            }
+        }
+        int[] indexes = new int[usedNum];
+        for (int f = 0, p = 0; f < fieldNum; f++) {
+            if (used[f]) {
+                indexes[p++] = f;
+            }
+        }
+        return indexes;
+    }
+
+    static FormatTemplate compile(String format, FormatSpecifiers specifiers) {
+        String[] specifierNames = specifiers.getSpecifiers();
+        List<Integer> fieldIndexes = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < format.length()) {
+            int fieldIndex = LITERAL;
+            int length = 0;
+            if (format.charAt(i) == '%') {
+                if (format.startsWith(SPECIFIER_JSON, i)) {
+                    fieldIndex = JSON;
+                    length = SPECIFIER_JSON.length();
+                }
+                for (int f = 0; f < specifierNames.length; f++) {
+                    if (specifierNames[f].length() > length && format.startsWith(specifierNames[f], i)) {
+                        fieldIndex = f;
+                        length = specifierNames[f].length();
+                    }
+                }
+            }
+            if (length == 0) {
+                literal.append(format.charAt(i++));
+                continue;
+            }
+            if (literal.length() > 0) {
+                fieldIndexes.add(LITERAL);
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            fieldIndexes.add(fieldIndex);
+            literals.add(null);
+            i += length;
+        }
+        if (literal.length() > 0) {
+            fieldIndexes.add(LITERAL);
+            literals.add(literal.toString());
+        }
+
+        int[] indexes = new int[fieldIndexes.size()];
+        for (int p = 0; p < indexes.length; p++) {
+            indexes[p] = fieldIndexes.get(p);
+        }
+        return new FormatTemplate(specifiers, indexes, literals.toArray(new String[0]));
+    }
+
+    /**
+     * 格式用到的字段, 只需准备这些字段的值, 其余字段可以为null
+     *
+     * @return int[] 字段下标, 与{@link FormatSpecifiers#getFieldNames()}对应, 调用方不可修改
+     */
+    public int[] getUsedFieldIndexes() {
+        return usedFieldIndexes;
+    }
+
+    /**
+     * 格式化
+     *
+     * @param values 字段值, 与{@link FormatSpecifiers#getFieldNames()}一一对应, null按空字符串处理
+     * @return String
+     */
+    public String render(String[] values) {
+        if (fieldIndexes.length == 1 && fieldIndexes[0] >= 0) {
+            String value = values[fieldIndexes[0]];
+            return value == null ? "" : value;
+        }
+        if (fieldIndexes.length == 0) {
+            return "";
+        }
+        if (fieldIndexes.length == 1 && fieldIndexes[0] == LITERAL) {
+            return literals[0];
+        }
+
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        for (int p = 0; p < fieldIndexes.length; p++) {
+            int fieldIndex = fieldIndexes[p];
+            if (fieldIndex == LITERAL) {
+                sb.append(literals[p]);
+            } else if (fieldIndex == JSON) {
+                sb.append(toJson(values));
+            } else if (values[fieldIndex] != null) {
+                sb.append(values[fieldIndex]);
+            }
+        }
+        String result = sb.toString();
+        if (sb.capacity() > MAX_REUSED_BUILDER_CAPACITY) {
+            BUILDER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 格式化
+     *
+     * @param fieldAndValue 属性名和属性值
+     * @return String
+     */
+    public String render(Map<String, String> fieldAndValue) {
+        String[] fieldNames = specifiers.getFieldNames();
+        String[] values = new String[fieldNames.length];
+        for (int f = 0; f < fieldNames.length; f++) {
+            values[f] = fieldAndValue.get(fieldNames[f]);
+        }
+        return render(values);
+    }
+
+    private String toJson(String[] values) {
+        String[] fieldNames = specifiers.getFieldNames();
+        Map<String, String> fieldAndValue = new LinkedHashMap<>();
+        for (int f = 0; f < fieldNames.length; f++) {
+            fieldAndValue.put(fieldNames[f], values[f]);
+        }
+        try {
+            return JacksonBuilder.mapper.writeValueAsString(fieldAndValue);
+        } catch (JsonProcessingException e) {
+            logger.error("序列化错误，原始输入为: {}", fieldAndValue, e);
+            return "";
+        }
+    }
+}
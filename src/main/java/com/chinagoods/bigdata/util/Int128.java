@@ -0,0 +1,90 @@
+package com.chinagoods.bigdata.util;
+
+import java.math.BigInteger;
+
+/**
+ * 用两个long表示的128位有符号整数运算, 高64位有符号, 低64位无符号
+ * <p>
+ * 用于累加long乘积而不溢出, 累加时不创建对象, 只有结果超出long时才转换为BigInteger
+ *
+ * @author xiaowei.song
+ */
+public final class Int128 {
+    private static final BigInteger TWO_64 = BigInteger.ONE.shiftLeft(64);
+
+    private Int128() {
+    }
+
+    /**
+     * 两个long相乘的高64位, 与Java 9的Math.multiplyHigh相同
+     *
+     * @param x 乘数
+     * @param y 乘数
+     * @return long 128位乘积的高64位, 低64位为x * y
+     */
+    public static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    /**
+     * 128位加法的高64位, 低64位为low + addLow
+     *
+     * @param high    被加数高64位
+     * @param low     被加数低64位
+     * @param addHigh 加数高64位
+     * @param addLow  加数低64位
+     * @return long 和的高64位
+     * @throws ArithmeticException 超出128位
+     */
+    public static long addHigh(long high, long low, long addHigh, long addLow) {
+        long carry = Long.compareUnsigned(low + addLow, low) < 0 ? 1 : 0;
+        return Math.addExact(Math.addExact(high, addHigh), carry);
+    }
+
+    /**
+     * 128位减法的高64位, 低64位为low - subLow
+     *
+     * @param high    被减数高64位
+     * @param low     被减数低64位
+     * @param subHigh 减数高64位
+     * @param subLow  减数低64位
+     * @return long 差的高64位
+     * @throws ArithmeticException 超出128位
+     */
+    public static long subtractHigh(long high, long low, long subHigh, long subLow) {
+        long borrow = Long.compareUnsigned(low, subLow) < 0 ? 1 : 0;
+        return Math.subtractExact(Math.subtractExact(high, subHigh), borrow);
+    }
+
+    /**
+     * @param high 高64位
+     * @param low  低64位
+     * @return boolean 是否可以用一个long表示, 即高64位为低64位的符号扩展
+     */
+    public static boolean fitsLong(long high, long low) {
+        return high == (low >> 63);
+    }
+
+    /**
+     * @param high 高64位
+     * @param low  低64位
+     * @return BigInteger 128位整数的值
+     */
+    public static BigInteger toBigInteger(long high, long low) {
+        BigInteger value = BigInteger.valueOf(high).shiftLeft(64);
+        BigInteger unsignedLow = BigInteger.valueOf(low);
+        if (low < 0) {
+            unsignedLow = unsignedLow.add(TWO_64);
+        }
+        return value.add(unsignedLow);
+    }
+}
@@ -1,10 +1,16 @@
 package com.chinagoods.bigdata.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
 import javax.crypto.Cipher;
 import java.io.ByteArrayOutputStream;
-import java.security.Key;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
+import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.ExecutionException;
 
 /**
  * 
@@ -13,6 +19,7 @@ import java.security.spec.X509EncodedKeySpec;
  * 字符串格式的密钥在未在特殊说明情况下都为BASE64编码格式,
  * 由于非对称加密速度极其缓慢,一般文件不使用它来加密而是使用对称加密，
  * 非对称加密算法可以用来对对称加密的密钥加密,这样保证密钥的安全也就保证了数据的安全
+ * 解析后的公钥按密钥字符串缓存, Cipher按线程复用, 避免每条数据重复解析密钥和创建Cipher
  * 
  * @author ZhuGuoku
  */
@@ -48,6 +55,30 @@ public class RSAUtils {
 	*/
 	private static final int MAX_DECRYPT_BLOCK = 128;
 
+	/**
+	* 缓存的公钥最大数量
+	*/
+	private static final int MAX_CACHED_PUBLIC_KEYS = 64;
+
+	/**
+	* 公钥缓存, key为BASE64编码的公钥字符串
+	*/
+	private static final Cache<String, PublicKey> PUBLIC_KEY_CACHE = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_PUBLIC_KEYS)
+			.build();
+
+	/**
+	* 每个线程复用的加密Cipher
+	*/
+	private static final ThreadLocal<CipherHolder> ENCRYPT_CIPHER =
+			ThreadLocal.withInitial(() -> new CipherHolder(Cipher.ENCRYPT_MODE));
+
+	/**
+	* 每个线程复用的解密Cipher
+	*/
+	private static final ThreadLocal<CipherHolder> DECRYPT_CIPHER =
+			ThreadLocal.withInitial(() -> new CipherHolder(Cipher.DECRYPT_MODE));
+
 	/**
 	* 公钥解密
 	* 
@@ -57,27 +88,28 @@ public class RSAUtils {
 	* @throws Exception 异常
 	*/
 	public static byte[] decryptByPublicKey(byte[] encryptedData, String publicKey) throws Exception {
-		byte[] keyBytes = Base64Utils.decode(publicKey);
-		X509EncodedKeySpec x509KeySpec = new X509EncodedKeySpec(keyBytes);
-		KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-		Key publicK = keyFactory.generatePublic(x509KeySpec);
-		Cipher cipher = Cipher.getInstance(keyFactory.getAlgorithm());
-		cipher.init(Cipher.DECRYPT_MODE, publicK);
+		CipherHolder cipherHolder = DECRYPT_CIPHER.get();
+		Cipher cipher = cipherHolder.getCipher(getPublicKey(publicKey));
 		int inputLen = encryptedData.length;
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(inputLen);
 		int offSet = 0;
 		byte[] cache;
 		int i = 0;
 		// 对数据分段解密
-		while (inputLen - offSet > 0) {
-			if (inputLen - offSet > MAX_DECRYPT_BLOCK) {
-				cache = cipher.doFinal(encryptedData, offSet, MAX_DECRYPT_BLOCK);
-			} else {
-				cache = cipher.doFinal(encryptedData, offSet, inputLen - offSet);
+		try {
+			while (inputLen - offSet > 0) {
+				if (inputLen - offSet > MAX_DECRYPT_BLOCK) {
+					cache = cipher.doFinal(encryptedData, offSet, MAX_DECRYPT_BLOCK);
+				} else {
+					cache = cipher.doFinal(encryptedData, offSet, inputLen - offSet);
+				}
+				out.write(cache, 0, cache.length);
+				i++;
+				offSet = i * MAX_DECRYPT_BLOCK;
 			}
-			out.write(cache, 0, cache.length);
-			i++;
-			offSet = i * MAX_DECRYPT_BLOCK;
+		} catch (GeneralSecurityException e) {
+			cipherHolder.reset();
+			throw e;
 		}
 		byte[] decryptedData = out.toByteArray();
 		out.close();
@@ -93,31 +125,93 @@ public class RSAUtils {
 	* @throws Exception 异常
 	*/
 	public static byte[] encryptByPublicKey(byte[] data, String publicKey) throws Exception {
-		byte[] keyBytes = Base64Utils.decode(publicKey);
-		X509EncodedKeySpec x509KeySpec = new X509EncodedKeySpec(keyBytes);
-		KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-		Key publicK = keyFactory.generatePublic(x509KeySpec);
 		// 对数据加密
-		Cipher cipher = Cipher.getInstance(keyFactory.getAlgorithm());
-		cipher.init(Cipher.ENCRYPT_MODE, publicK);
+		CipherHolder cipherHolder = ENCRYPT_CIPHER.get();
+		Cipher cipher = cipherHolder.getCipher(getPublicKey(publicKey));
 		int inputLen = data.length;
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int blocks = (inputLen + MAX_ENCRYPT_BLOCK - 1) / MAX_ENCRYPT_BLOCK;
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1, blocks) * MAX_DECRYPT_BLOCK);
 		int offSet = 0;
 		byte[] cache;
 		int i = 0;
 		// 对数据分段加密
-		while (inputLen - offSet > 0) {
-			if (inputLen - offSet > MAX_ENCRYPT_BLOCK) {
-				cache = cipher.doFinal(data, offSet, MAX_ENCRYPT_BLOCK);
-			} else {
-				cache = cipher.doFinal(data, offSet, inputLen - offSet);
+		try {
+			while (inputLen - offSet > 0) {
+				if (inputLen - offSet > MAX_ENCRYPT_BLOCK) {
+					cache = cipher.doFinal(data, offSet, MAX_ENCRYPT_BLOCK);
+				} else {
+					cache = cipher.doFinal(data, offSet, inputLen - offSet);
+				}
+				out.write(cache, 0, cache.length);
+				i++;
+				offSet = i * MAX_ENCRYPT_BLOCK;
 			}
-			out.write(cache, 0, cache.length);
-			i++;
-			offSet = i * MAX_ENCRYPT_BLOCK;
+		} catch (GeneralSecurityException e) {
+			cipherHolder.reset();
+			throw e;
 		}
 		byte[] encryptedData = out.toByteArray();
 		out.close();
 		return encryptedData;
 	}
+
+	/**
+	* 获取解析后的公钥, 优先从缓存中获取
+	*
+	* @param publicKey 公钥(BASE64编码)
+	* @return 公钥
+	* @throws Exception 异常
+	*/
+	public static PublicKey getPublicKey(String publicKey) throws Exception {
+		try {
+			return PUBLIC_KEY_CACHE.get(publicKey, () -> parsePublicKey(publicKey));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			// 抛出解析公钥时的原始异常
+			throw (Exception) e.getCause();
+		}
+	}
+
+	private static PublicKey parsePublicKey(String publicKey) throws Exception {
+		byte[] keyBytes = Base64Utils.decode(publicKey);
+		X509EncodedKeySpec x509KeySpec = new X509EncodedKeySpec(keyBytes);
+		KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
+		return keyFactory.generatePublic(x509KeySpec);
+	}
+
+	/**
+	* 线程内复用的Cipher, 公钥不变时无需重新初始化,
+	* doFinal之后Cipher会恢复到初始化后的状态
+	*/
+	private static final class CipherHolder {
+
+		private final int mode;
+
+		private Cipher cipher;
+
+		private PublicKey initializedKey;
+
+		private CipherHolder(int mode) {
+			this.mode = mode;
+		}
+
+		private Cipher getCipher(PublicKey publicKey) throws GeneralSecurityException {
+			if (cipher == null) {
+				cipher = Cipher.getInstance(KEY_ALGORITHM);
+			}
+			if (initializedKey != publicKey) {
+				// 初始化失败时不能复用该Cipher
+				initializedKey = null;
+				cipher.init(mode, publicKey);
+				initializedKey = publicKey;
+			}
+			return cipher;
+		}
+
+		/**
+		* 加解密失败后Cipher状态未知, 下次使用前需要重新初始化
+		*/
+		private void reset() {
+			initializedKey = null;
+		}
+	}
 }
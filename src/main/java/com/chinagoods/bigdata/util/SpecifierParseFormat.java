@@ -1,7 +1,6 @@
 package com.chinagoods.bigdata.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +12,45 @@ import java.util.Map;
 public class SpecifierParseFormat {
     private static final Logger logger = LoggerFactory.getLogger(SpecifierParseFormat.class);
 
-    private static final String SPECIFIER_JSON = "%JSON";
+    private static final String SPECIFIER_JSON = FormatTemplate.SPECIFIER_JSON;
+
+    /**
+     * ip2region格式说明符
+     */
+    public static final FormatSpecifiers IP2REGION_SPECIFIERS = new FormatSpecifiers(
+            // 国家, 区域, 省份, 城市, 运营商
+            new String[]{"%c", "%A", "%P", "%C", "%I"},
+            new String[]{"country", "area", "province", "city", "isp"});
+
+    /**
+     * phone2region格式说明符
+     */
+    public static final FormatSpecifiers PHONE2REGION_SPECIFIERS = new FormatSpecifiers(
+            // 省份, 城市, 运营商, 邮编, 区划码
+            new String[]{"%P", "%C", "%I", "%zc", "%ac"},
+            new String[]{"province", "city", "isp", "zipcode", "areacode"});
+
+    /**
+     * parseuseragent格式说明符
+     */
+    public static final FormatSpecifiers PARSEUSERAGENT_SPECIFIERS = new FormatSpecifiers(
+            new String[]{
+                    // 设备
+                    "%DC", "%DN", "%DB",
+                    // 操作系统
+                    "%OSC", "%OSN", "%OSV", "%OSNV", "%OSVB",
+                    // 引擎
+                    "%LEC", "%LEN", "%LEV", "%LEVM", "%LENV", "%LENVM",
+                    // 浏览器
+                    "%AC", "%AN", "%AV", "%AVM", "%ANV", "%ANVM"},
+            new String[]{
+                    "DeviceClass", "DeviceName", "DeviceBrand",
+                    "OperatingSystemClass", "OperatingSystemName", "OperatingSystemVersion",
+                    "OperatingSystemNameVersion", "OperatingSystemVersionBuild",
+                    "LayoutEngineClass", "LayoutEngineName", "LayoutEngineVersion", "LayoutEngineVersionMajor",
+                    "LayoutEngineNameVersion", "LayoutEngineNameVersionMajor",
+                    "AgentClass", "AgentName", "AgentVersion", "AgentVersionMajor",
+                    "AgentNameVersion", "AgentNameVersionMajor"});
     private String strFormat;
     private String strParseFormat;
     private Map<String, String> specifierAndField;
@@ -62,24 +99,7 @@ public class SpecifierParseFormat {
      */
     public String ip2regionParseFormat(String format,
                                        Map<String, String> fieldAndValue) {
-        Map<String, String> specifierAndField = ImmutableMap.<String, String>builder()
-                // country 国家
-                .put("%c", "country")
-                // province 省份
-                .put("%P", "province")
-                // city 城市
-                .put("%C", "city")
-                // isp 运营商
-                .put("%I", "isp")
-                // area 区域
-                .put("%A", "area")
-                // %JSON 以json的方式结构化所有字段
-                .put("%JSON", "json")
-                .build();
-        setStrFormat(format);
-        setSpecifierAndField(specifierAndField);
-        setFieldAndValue(fieldAndValue);
-        return parseFormat();
+        return IP2REGION_SPECIFIERS.compile(format).render(fieldAndValue);
     }
 
     /**
@@ -91,24 +111,7 @@ public class SpecifierParseFormat {
      */
     public String phone2regionParseFormat(String format,
                                           Map<String, String> fieldAndValue) {
-        Map<String, String> specifierAndField = ImmutableMap.<String, String>builder()
-                // province 省份
-                .put("%P", "province")
-                // city 城市
-                .put("%C", "city")
-                // isp 运营商
-                .put("%I", "isp")
-                // zipcode
-                .put("%zc", "zipcode")
-                // areacode
-                .put("%ac", "areacode")
-                // %JSON 以json的方式结构化所有字段
-                .put("%JSON", "json")
-                .build();
-        setStrFormat(format);
-        setSpecifierAndField(specifierAndField);
-        setFieldAndValue(fieldAndValue);
-        return parseFormat();
+        return PHONE2REGION_SPECIFIERS.compile(format).render(fieldAndValue);
     }
 
     /**
@@ -120,58 +123,7 @@ public class SpecifierParseFormat {
      */
     public String parseuseragentParseFormat(String format,
                                             Map<String, String> fieldAndValue) {
-        Map<String, String> specifierAndField = ImmutableMap.<String, String>builder()
-                // %DC DeviceClass Phone
-                .put("%DC", "DeviceClass")
-                // %DN DeviceName Google Nexus 6
-                .put("%DN", "DeviceName")
-                // %DB DeviceBrand Google
-                .put("%DB", "DeviceBrand")
-
-                // %OSNV OperatingSystemNameVersion Android 7.0
-                .put("%OSNV", "OperatingSystemNameVersion")
-                // %OSVB OperatingSystemVersionBuild NBD90Z
-                .put("%OSVB", "OperatingSystemVersionBuild")
-                // %OSC OperatingSystemClass Mobile
-                .put("%OSC", "OperatingSystemClass")
-                // %OSN OperatingSystemName Android
-                .put("%OSN", "OperatingSystemName")
-                // %OSV OperatingSystemVersion 7.0
-                .put("%OSV", "OperatingSystemVersion")
-
-                // %LENVM LayoutEngineNameVersionMajor Blink 53
-                .put("%LENVM", "LayoutEngineNameVersionMajor")
-                // %LEVM LayoutEngineVersionMajor 53
-                .put("%LEVM", "LayoutEngineVersionMajor")
-                // %LENV LayoutEngineNameVersion Blink 53.0
-                .put("%LENV", "LayoutEngineNameVersion")
-                // %LEC LayoutEngineClass Browser
-                .put("%LEC", "LayoutEngineClass")
-                // %LEN LayoutEngineName Blink
-                .put("%LEN", "LayoutEngineName")
-                // %LEV LayoutEngineVersion 53.0
-                .put("%LEV", "LayoutEngineVersion")
-
-                // %ANVM AgentNameVersionMajor Chrome 53
-                .put("%ANVM", "AgentNameVersionMajor")
-                // %AVM AgentVersionMajor 53
-                .put("%AVM", "AgentVersionMajor")
-                // %ANV AgentNameVersion Chrome 53.0.2785.124
-                .put("%ANV", "AgentNameVersion")
-                // %AC AgentClass Browser
-                .put("%AC", "AgentClass")
-                // %AN AgentName Chrome
-                .put("%AN", "AgentName")
-                // %AV AgentVersion 53.0.2785.124
-                .put("%AV", "AgentVersion")
-
-                // %JSON 以json的方式结构化所有字段
-                .put("%JSON", "json")
-                .build();
-        setStrFormat(format);
-        setSpecifierAndField(specifierAndField);
-        setFieldAndValue(fieldAndValue);
-        return parseFormat();
+        return PARSEUSERAGENT_SPECIFIERS.compile(format).render(fieldAndValue);
     }
 
     /**
@@ -0,0 +1,98 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+class AdaptiveBatchSizeTest {
+
+    private static final int WINDOW_SIZE = 20;
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(AdaptiveBatchSize.fromProperties(new Properties(), 500)).isNull();
+    }
+
+    @Test
+    public void shouldUseInitialBatchSizeAsDefaultUpperBound() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_BATCH_REQUEST_ADAPTIVE, "true");
+
+        AdaptiveBatchSize batchSize = AdaptiveBatchSize.fromProperties(properties, 500);
+
+        assertThat(batchSize.get()).isEqualTo(500);
+        assertThat(batchSize.getMinBatchSize()).isEqualTo(1);
+        assertThat(batchSize.getMaxBatchSize()).isEqualTo(500);
+    }
+
+    @Test
+    public void shouldThrowIfMaxSizeIsLowerThanMinSize() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_BATCH_REQUEST_ADAPTIVE, "true");
+        properties.setProperty(SINK_HTTP_BATCH_REQUEST_MIN_SIZE, "100");
+        properties.setProperty(SINK_HTTP_BATCH_REQUEST_MAX_SIZE, "10");
+
+        assertThatThrownBy(() -> AdaptiveBatchSize.fromProperties(properties, 500))
+            .isInstanceOf(ConfigException.class);
+    }
+
+    @Test
+    public void shouldGrowWhileLatencyIsBelowTarget() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(10, 1, 100, 200, WINDOW_SIZE);
+
+        recordLatencies(batchSize, 50, 2);
+        assertThat(batchSize.get()).isEqualTo(11);
+
+        recordLatencies(batchSize, 50, 2000);
+        assertThat(batchSize.get()).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldHalveWhenLatencyIsAboveTarget() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 100, 200, WINDOW_SIZE);
+
+        recordLatencies(batchSize, 500, 2);
+        assertThat(batchSize.get()).isEqualTo(50);
+
+        recordLatencies(batchSize, 500, 2000);
+        assertThat(batchSize.get()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldReactToLatencyOutliers() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 1, 100, 200, WINDOW_SIZE);
+
+        recordLatencies(batchSize, 50, 1);
+        batchSize.onLatency(1000);
+
+        assertThat(batchSize.get()).isEqualTo(50);
+    }
+
+    @Test
+    public void shouldHalveOnTransientFailure() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 30, 100, 200, WINDOW_SIZE);
+
+        batchSize.onTransientFailure();
+        assertThat(batchSize.get()).isEqualTo(50);
+
+        batchSize.onTransientFailure();
+        assertThat(batchSize.get()).isEqualTo(30);
+    }
+
+    @Test
+    public void shouldKeepInitialSizeWithinBounds() {
+        assertThat(new AdaptiveBatchSize(1000, 1, 100, 200, WINDOW_SIZE).get()).isEqualTo(100);
+        assertThat(new AdaptiveBatchSize(1, 10, 100, 200, WINDOW_SIZE).get()).isEqualTo(10);
+    }
+
+    private static void recordLatencies(AdaptiveBatchSize batchSize, long latencyMs, int count) {
+        for (int i = 0; i < count; i++) {
+            batchSize.onLatency(latencyMs);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
+
+class BatchRequestSubmitterFactoryTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-1", "two"})
+    public void shouldThrowOnInvalidNumberOfLanes(String numberOfLanes) {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConnectorConfigProperties.SINK_HTTP_REQUEST_LANES, numberOfLanes);
+
+        assertThatThrownBy(
+            () -> new BatchRequestSubmitterFactory(10).createSubmitter(properties, new String[0]))
+            .isInstanceOf(ConfigException.class);
+    }
+
+    @Test
+    public void shouldRequirePartitionKeyForMoreThanOneLane() {
+        Properties properties = new Properties();
+        properties.setProperty(HttpConnectorConfigProperties.SINK_HTTP_REQUEST_LANES, "4");
+
+        assertThatThrownBy(
+            () -> new BatchRequestSubmitterFactory(10).createSubmitter(properties, new String[0]))
+            .isInstanceOf(ConfigException.class)
+            .hasMessageContaining(HttpConnectorConfigProperties.SINK_HTTP_REQUEST_PARTITION_KEY);
+    }
+}
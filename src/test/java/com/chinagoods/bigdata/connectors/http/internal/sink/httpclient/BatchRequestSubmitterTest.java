@@ -0,0 +1,87 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
+import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+
+class BatchRequestSubmitterTest {
+
+    private static final int NUMBER_OF_LANES = 3;
+
+    private WireMockServer wireMockServer;
+
+    private BatchRequestSubmitter submitter;
+
+    @BeforeEach
+    public void setup() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(any(urlPathEqualTo("/myendpoint")).willReturn(ok()));
+
+        Properties properties = new Properties();
+        properties.setProperty(HttpConnectorConfigProperties.SINK_HTTP_BATCH_REQUEST_SIZE, "10");
+
+        // lanes share connection pool of the first client, each has its own dispatcher
+        List<OkHttpClient> laneClients = new ArrayList<>();
+        OkHttpClient firstLaneClient = new OkHttpClient.Builder()
+            .dispatcher(new Dispatcher(Executors.newSingleThreadExecutor()))
+            .build();
+        laneClients.add(firstLaneClient);
+        for (int lane = 1; lane < NUMBER_OF_LANES; lane++) {
+            laneClients.add(firstLaneClient.newBuilder()
+                .dispatcher(new Dispatcher(Executors.newSingleThreadExecutor()))
+                .build());
+        }
+        submitter = new BatchRequestSubmitter(
+            properties, new String[0], laneClients, new JsonFieldRequestPartitioner("id"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        submitter.close();
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void shouldShutDownLaneExecutorsOnClose() throws Exception {
+        List<HttpSinkRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            entries.add(new HttpSinkRequestEntry(
+                "POST", ("{\"id\":" + i + "}").getBytes(StandardCharsets.UTF_8)));
+        }
+        List<CompletableFuture<JavaNetHttpResponseWrapper>> responseFutures = submitter.submit(
+            "http://localhost:" + wireMockServer.port() + "/myendpoint", entries);
+
+        submitter.close();
+
+        assertThat(submitter.getLaneClients()).hasSize(NUMBER_OF_LANES);
+        for (OkHttpClient laneClient : submitter.getLaneClients()) {
+            ExecutorService laneExecutor = laneClient.dispatcher().executorService();
+            assertThat(laneExecutor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+        // calls enqueued before close are still sent
+        for (CompletableFuture<JavaNetHttpResponseWrapper> responseFuture : responseFutures) {
+            assertThat(responseFuture.get(30, TimeUnit.SECONDS).getResponse()).isPresent();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteArraysRequestBodyTest {
+
+    private static final MediaType JSON_MEDIA_TYPE =
+        MediaType.parse("application/json; charset=utf-8");
+
+    @Test
+    public void shouldWriteAllByteArraysInOrder() throws IOException {
+        ByteArraysRequestBody body = new ByteArraysRequestBody(
+            JSON_MEDIA_TYPE,
+            Arrays.asList(
+                bytes("["),
+                bytes("{\"id\":1,\"name\":\"zażółć\"}"),
+                bytes(","),
+                bytes("{\"id\":2}"),
+                bytes("]")
+            )
+        );
+
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertThat(buffer.readUtf8()).isEqualTo("[{\"id\":1,\"name\":\"zażółć\"},{\"id\":2}]");
+        assertThat(body.contentType()).isEqualTo(JSON_MEDIA_TYPE);
+    }
+
+    @Test
+    public void shouldReportExactContentLength() throws IOException {
+        ByteArraysRequestBody body = new ByteArraysRequestBody(
+            JSON_MEDIA_TYPE,
+            Arrays.asList(bytes("["), bytes("\"zażółć\""), bytes("]"))
+        );
+
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertThat(body.contentLength()).isEqualTo(buffer.size()).isEqualTo(14);
+    }
+
+    @Test
+    public void shouldAllowWritingBodyMoreThanOnce() throws IOException {
+        ByteArraysRequestBody body = new ByteArraysRequestBody(
+            JSON_MEDIA_TYPE,
+            Arrays.asList(bytes("["), bytes("1"), bytes("]"))
+        );
+
+        Buffer first = new Buffer();
+        Buffer second = new Buffer();
+        body.writeTo(first);
+        body.writeTo(second);
+
+        assertThat(first.readUtf8()).isEqualTo(second.readUtf8()).isEqualTo("[1]");
+    }
+
+    @Test
+    public void shouldHandleEmptyBody() throws IOException {
+        ByteArraysRequestBody body =
+            new ByteArraysRequestBody(JSON_MEDIA_TYPE, Collections.emptyList());
+
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertThat(body.contentLength()).isZero();
+        assertThat(buffer.size()).isZero();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(ConcurrencyLimiter.fromProperties(new Properties())).isNull();
+    }
+
+    @Test
+    public void shouldThrowIfMaxLimitIsLowerThanMinLimit() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_REQUEST_CONCURRENCY_ADAPTIVE, "true");
+        properties.setProperty(SINK_HTTP_REQUEST_CONCURRENCY_MIN_LIMIT, "10");
+        properties.setProperty(SINK_HTTP_REQUEST_CONCURRENCY_MAX_LIMIT, "5");
+
+        assertThatThrownBy(() -> ConcurrencyLimiter.fromProperties(properties))
+            .isInstanceOf(ConfigException.class);
+    }
+
+    @Test
+    public void shouldQueueCallsOverLimitAndStartThemInOrder() {
+        // min and max limits are equal, so the limit does not change.
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientConcurrencyLimit(2, 2, 2));
+        List<Integer> startedCalls = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            int call = i;
+            limiter.execute(() -> startedCalls.add(call));
+        }
+
+        assertThat(startedCalls).containsExactly(0, 1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueued()).isEqualTo(3);
+
+        limiter.release(1_000_000, false);
+        assertThat(startedCalls).containsExactly(0, 1, 2);
+
+        limiter.release(1_000_000, true);
+        limiter.release(1_000_000, false);
+        assertThat(startedCalls).containsExactly(0, 1, 2, 3, 4);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getQueued()).isZero();
+
+        limiter.release(1_000_000, false);
+        limiter.release(1_000_000, false);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
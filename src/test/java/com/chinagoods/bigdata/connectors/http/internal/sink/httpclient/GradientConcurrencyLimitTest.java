@@ -0,0 +1,61 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientConcurrencyLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void shouldGrowWhileRttIsStable() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(4, 1, 64);
+
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(64);
+    }
+
+    @Test
+    public void shouldNotGrowWhenLimitIsNotUsed() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 1, 64);
+
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(RTT, 2, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    public void shouldShrinkWhenRttGrows() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(32, 1, 64);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+        int limitBeforeSlowdown = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(10 * RTT, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(limitBeforeSlowdown / 2);
+    }
+
+    @Test
+    public void shouldShrinkOnDroppedRequests() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 10, 64);
+
+        limit.onSample(RTT, 50, true);
+        assertThat(limit.getLimit()).isEqualTo(45);
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT, 50, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+}
@@ -0,0 +1,62 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+
+class JsonFieldRequestPartitionerTest {
+
+    private static final int NUMBER_OF_LANES = 8;
+
+    private final JsonFieldRequestPartitioner partitioner =
+        new JsonFieldRequestPartitioner("userId");
+
+    @Test
+    public void shouldAssignSameKeyToSameLane() {
+        int lane = partitioner.partition(entry("{\"userId\":\"u-1\",\"value\":1}"), NUMBER_OF_LANES);
+
+        assertThat(partitioner.partition(entry("{\"value\":2,\"userId\":\"u-1\"}"), NUMBER_OF_LANES))
+            .isEqualTo(lane);
+        assertThat(
+            partitioner.partition(
+                entry("{\"nested\":{\"userId\":\"other\"},\"list\":[1,2],\"userId\":\"u-1\"}"),
+                NUMBER_OF_LANES)
+        ).isEqualTo(lane);
+    }
+
+    @Test
+    public void shouldSpreadKeysBetweenLanes() {
+        boolean[] usedLanes = new boolean[NUMBER_OF_LANES];
+        for (int i = 0; i < 1000; i++) {
+            int lane = partitioner.partition(entry("{\"userId\":" + i + "}"), NUMBER_OF_LANES);
+            assertThat(lane).isBetween(0, NUMBER_OF_LANES - 1);
+            usedLanes[lane] = true;
+        }
+
+        for (boolean usedLane : usedLanes) {
+            assertThat(usedLane).isTrue();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{\"id\":1}",
+        "{\"nested\":{\"userId\":\"u-1\"}}",
+        "{\"userId\":{\"id\":1}}",
+        "[{\"userId\":\"u-1\"}]",
+        "not a json",
+        ""
+    })
+    public void shouldAssignFirstLaneWhenKeyIsMissing(String body) {
+        assertThat(partitioner.partition(entry(body), NUMBER_OF_LANES)).isZero();
+    }
+
+    private static HttpSinkRequestEntry entry(String body) {
+        return new HttpSinkRequestEntry("POST", body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,149 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.chinagoods.bigdata.connectors.http.internal.SinkHttpClientResponse;
+import com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties;
+import com.chinagoods.bigdata.connectors.http.internal.config.SinkRequestEncryptionMode;
+import com.chinagoods.bigdata.connectors.http.internal.sink.HttpSinkRequestEntry;
+import com.chinagoods.bigdata.connectors.http.internal.table.sink.Slf4jHttpPostRequestCallback;
+import com.chinagoods.bigdata.connectors.http.internal.utils.HttpHeaderUtils;
+import com.chinagoods.bigdata.util.Base64Utils;
+import com.chinagoods.bigdata.util.JacksonBuilder;
+
+class PerRequestSubmitterTest {
+
+    private static final int NUMBER_OF_ENTRIES = 20;
+
+    private WireMockServer wireMockServer;
+
+    private Properties properties;
+
+    private PerRequestSubmitter submitter;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(any(urlPathEqualTo("/myendpoint")).willReturn(ok()));
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(1024);
+        String publicKey =
+            Base64Utils.encode(keyPairGenerator.generateKeyPair().getPublic().getEncoded());
+
+        properties = new Properties();
+        properties.setProperty(
+            HttpConnectorConfigProperties.SINK_HTTP_REQUEST_ENCRYPTION_MODE,
+            SinkRequestEncryptionMode.XSYK.getMode());
+        properties.setProperty(
+            HttpConnectorConfigProperties.SINK_HTTP_REQUEST_ENCRYPTION_XSYK_PUB_KEY, publicKey);
+        // a request that cannot be built fails with an IOException in its cause chain
+        properties.setProperty(HttpConnectorConfigProperties.SINK_HTTP_RETRY_IO_ERROR, "true");
+
+        // single thread dispatcher sends requests in the order they were enqueued
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+            .dispatcher(new Dispatcher(Executors.newSingleThreadExecutor()))
+            .build();
+        submitter = new PerRequestSubmitter(properties, new String[0], httpClient);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        submitter.close();
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void shouldSendEncryptedRequestsInOrder() throws Exception {
+        List<HttpSinkRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ENTRIES; i++) {
+            entries.add(entry("{\"id\":" + i + "}"));
+        }
+
+        List<CompletableFuture<JavaNetHttpResponseWrapper>> responseFutures =
+            submitter.submit(endpointUrl(), entries);
+        CompletableFuture.allOf(responseFutures.toArray(new CompletableFuture[0]))
+            .get(30, TimeUnit.SECONDS);
+
+        for (int i = 0; i < NUMBER_OF_ENTRIES; i++) {
+            assertThat(responseFutures.get(i).get().getHttpRequest().getRequestEntries())
+                .containsExactly(entries.get(i));
+        }
+
+        List<Integer> receivedIds = new ArrayList<>();
+        // WireMock returns the most recent requests first
+        List<ServeEvent> serveEvents = new ArrayList<>(wireMockServer.getAllServeEvents());
+        Collections.reverse(serveEvents);
+        for (ServeEvent serveEvent : serveEvents) {
+            JsonNode body = JacksonBuilder.mapper.readTree(serveEvent.getRequest().getBodyAsString());
+            assertThat(body.has("sign")).isTrue();
+            receivedIds.add(body.get("data").get("id").asInt());
+        }
+        assertThat(receivedIds).hasSize(NUMBER_OF_ENTRIES).isSorted();
+    }
+
+    @Test
+    public void shouldShutDownEncryptionThreadPoolOnClose() throws Exception {
+        assertThat(submitter.getEncryptionThreadPool()).isNotNull();
+
+        submitter.close();
+
+        assertThat(submitter.getEncryptionThreadPool().awaitTermination(5, TimeUnit.SECONDS))
+            .isTrue();
+    }
+
+    @Test
+    public void shouldFailOnlyInvalidEntry() throws Exception {
+        JavaNetSinkHttpClient client = new JavaNetSinkHttpClient(
+            properties,
+            new Slf4jHttpPostRequestCallback(),
+            HttpHeaderUtils.createDefaultHeaderPreprocessor(),
+            (props, headersAndValues) -> submitter
+        );
+        HttpSinkRequestEntry invalidEntry = entry("not a json");
+
+        SinkHttpClientResponse response = client.putRequests(
+            Arrays.asList(entry("{\"id\":1}"), invalidEntry, entry("{\"id\":3}")),
+            endpointUrl()
+        ).get(30, TimeUnit.SECONDS);
+
+        assertThat(response.getSuccessfulRequests()).hasSize(2);
+        assertThat(response.getFailedRequests()).hasSize(1);
+        assertThat(response.getFailedRequests().get(0).getRequestEntries())
+            .containsExactly(invalidEntry);
+        assertThat(response.getRetryableRequests()).isEmpty();
+        assertThat(wireMockServer.getAllServeEvents()).hasSize(2);
+    }
+
+    private String endpointUrl() {
+        return "http://localhost:" + wireMockServer.port() + "/myendpoint";
+    }
+
+    private static HttpSinkRequestEntry entry(String body) {
+        return new HttpSinkRequestEntry("POST", body.getBytes(StandardCharsets.UTF_8));
+    }
+}
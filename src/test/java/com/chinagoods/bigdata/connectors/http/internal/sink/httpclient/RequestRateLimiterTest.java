@@ -0,0 +1,140 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import com.chinagoods.bigdata.connectors.http.internal.config.SinkRateLimitScope;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+class RequestRateLimiterTest {
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(RequestRateLimiter.fromProperties(new Properties())).isNull();
+    }
+
+    @Test
+    public void shouldThrowOnUnknownScope() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RATE_LIMIT_REQUESTS_PER_SECOND, "10");
+        properties.setProperty(SINK_HTTP_RATE_LIMIT_SCOPE, "cluster");
+
+        assertThatThrownBy(() -> RequestRateLimiter.fromProperties(properties))
+            .isInstanceOf(ConfigException.class);
+    }
+
+    @Test
+    public void shouldSplitGlobalRateBetweenSubtasks() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RATE_LIMIT_REQUESTS_PER_SECOND, "100");
+        properties.setProperty(SINK_HTTP_RATE_LIMIT_RECORDS_PER_SECOND, "1000");
+        properties.setProperty(SINK_HTTP_RATE_LIMIT_SCOPE, "global");
+
+        RequestRateLimiter limiter = RequestRateLimiter.fromProperties(properties);
+        limiter.open(4);
+
+        assertThat(limiter.getBuckets())
+            .extracting(TokenBucket::getRatePerSecond)
+            .containsExactly(25.0, 250.0);
+    }
+
+    @Test
+    public void shouldNotSplitSubtaskRate() {
+        RequestRateLimiter limiter = new RequestRateLimiter(100, 0, SinkRateLimitScope.SUBTASK);
+        limiter.open(4);
+
+        assertThat(limiter.getBuckets())
+            .extracting(TokenBucket::getRatePerSecond)
+            .containsExactly(100.0);
+    }
+
+    @Test
+    public void shouldDelayCallsAndStartThemInOrder() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(100, 0, SinkRateLimitScope.SUBTASK);
+        List<Integer> startedCalls = new CopyOnWriteArrayList<>();
+        CountDownLatch allStarted = new CountDownLatch(5);
+
+        for (int i = 0; i < 5; i++) {
+            int call = i;
+            limiter.execute(1, () -> {
+                startedCalls.add(call);
+                allStarted.countDown();
+            });
+        }
+
+        assertThat(startedCalls).containsExactly(0);
+        assertThat(limiter.getQueued()).isEqualTo(4);
+
+        assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(startedCalls).containsExactly(0, 1, 2, 3, 4);
+        assertThat(limiter.getQueued()).isZero();
+    }
+
+    @Test
+    public void shouldStopSchedulerOnClose() throws InterruptedException {
+        RequestRateLimiter limiter = new RequestRateLimiter(1, 0, SinkRateLimitScope.SUBTASK);
+        List<Integer> startedCalls = new CopyOnWriteArrayList<>();
+        AtomicReference<Thread> schedulerThread = new AtomicReference<>();
+        CountDownLatch delayedStarted = new CountDownLatch(1);
+
+        for (int i = 0; i < 3; i++) {
+            int call = i;
+            limiter.execute(1, () -> {
+                startedCalls.add(call);
+                if (call == 1) {
+                    schedulerThread.set(Thread.currentThread());
+                    delayedStarted.countDown();
+                }
+            });
+        }
+        assertThat(delayedStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        limiter.close();
+        limiter.execute(1, () -> startedCalls.add(3));
+
+        schedulerThread.get().join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(schedulerThread.get().isAlive()).isFalse();
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(startedCalls).containsExactly(0, 1);
+    }
+
+    @Test
+    public void shouldThrottleOnTooManyRequests() {
+        RequestRateLimiter limiter = new RequestRateLimiter(100, 0, SinkRateLimitScope.SUBTASK);
+
+        limiter.onResponse(response(429, "1"));
+        assertThat(limiter.getBuckets().get(0).getRatePerSecond()).isEqualTo(50);
+
+        long beforeNanos = System.nanoTime();
+        long startAtNanos = limiter.getBuckets().get(0).reserve(1, beforeNanos);
+        assertThat(startAtNanos - beforeNanos)
+            .isGreaterThan(TimeUnit.MILLISECONDS.toNanos(900));
+
+        limiter.onResponse(response(200, null));
+        assertThat(limiter.getBuckets().get(0).getRatePerSecond()).isEqualTo(55);
+    }
+
+    private static Response response(int code, String retryAfter) {
+        Response.Builder builder = new Response.Builder()
+            .request(new Request.Builder().url("http://localhost/").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("");
+        if (retryAfter != null) {
+            builder.header("Retry-After", retryAfter);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.httpclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void shouldSpreadReservationsEvenly() {
+        TokenBucket bucket = new TokenBucket(10, 0);
+
+        assertThat(bucket.reserve(1, 0)).isEqualTo(0);
+        assertThat(bucket.reserve(1, 0)).isEqualTo(100 * MILLISECOND);
+        assertThat(bucket.reserve(1, 0)).isEqualTo(200 * MILLISECOND);
+    }
+
+    @Test
+    public void shouldLetBigReservationThroughAndDelayTheNextOne() {
+        TokenBucket bucket = new TokenBucket(100, 0);
+
+        assertThat(bucket.reserve(500, 0)).isEqualTo(0);
+        assertThat(bucket.reserve(1, 0)).isEqualTo(5 * SECOND);
+    }
+
+    @Test
+    public void shouldStoreUnusedTokensUpToOneSecondOfRate() {
+        TokenBucket bucket = new TokenBucket(10, 0);
+
+        // after 10 idle seconds only 10 tokens are stored
+        long now = 10 * SECOND;
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.reserve(1, now)).isEqualTo(now);
+        }
+        assertThat(bucket.reserve(1, now)).isEqualTo(now);
+        assertThat(bucket.reserve(1, now)).isEqualTo(now + 100 * MILLISECOND);
+    }
+
+    @Test
+    public void shouldHoldTokensAndHalveRateWhenThrottled() {
+        TokenBucket bucket = new TokenBucket(10, 0);
+
+        bucket.throttle(2 * SECOND);
+
+        assertThat(bucket.getRatePerSecond()).isEqualTo(5);
+        assertThat(bucket.reserve(1, 0)).isEqualTo(2 * SECOND);
+        assertThat(bucket.reserve(1, 0)).isEqualTo(2 * SECOND + 200 * MILLISECOND);
+    }
+
+    @Test
+    public void shouldRecoverRateStepByStep() {
+        TokenBucket bucket = new TokenBucket(100, 0);
+        for (int i = 0; i < 20; i++) {
+            bucket.throttle(0);
+        }
+        assertThat(bucket.getRatePerSecond()).isEqualTo(1);
+
+        bucket.recover();
+        assertThat(bucket.getRatePerSecond()).isEqualTo(6);
+
+        for (int i = 0; i < 100; i++) {
+            bucket.recover();
+        }
+        assertThat(bucket.getRatePerSecond()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,155 @@
+package com.chinagoods.bigdata.connectors.http.internal.sink.retry;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Properties;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.connectors.http.internal.config.ConfigException;
+import static com.chinagoods.bigdata.connectors.http.internal.config.HttpConnectorConfigProperties.*;
+
+class SinkRetryPolicyTest {
+
+    @Test
+    public void shouldNotRetryByDefault() {
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(new Properties());
+
+        assertThat(retryPolicy.getMaxAttempts()).isEqualTo(1);
+        assertThat(retryPolicy.canRetry(1)).isFalse();
+    }
+
+    @Test
+    public void shouldAllowRetriesUntilMaxAttempts() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_MAX_ATTEMPTS, "3");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        assertThat(retryPolicy.canRetry(1)).isTrue();
+        assertThat(retryPolicy.canRetry(2)).isTrue();
+        assertThat(retryPolicy.canRetry(3)).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {500, 502, 503, 599, 429})
+    public void shouldRetryServerErrorsAndThrottlingByDefault(int statusCode) {
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(new Properties());
+
+        assertThat(retryPolicy.isRetryable(statusCode)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {400, 401, 404, 413})
+    public void shouldNotRetryClientErrorsByDefault(int statusCode) {
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(new Properties());
+
+        assertThat(retryPolicy.isRetryable(statusCode)).isFalse();
+    }
+
+    @Test
+    public void shouldUseConfiguredRetryCodes() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_CODES_LIST, "5XX,408");
+        properties.setProperty(SINK_HTTP_RETRY_CODE_WHITE_LIST, "501");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        assertThat(retryPolicy.isRetryable(503)).isTrue();
+        assertThat(retryPolicy.isRetryable(408)).isTrue();
+        assertThat(retryPolicy.isRetryable(501)).isFalse();
+        assertThat(retryPolicy.isRetryable(429)).isFalse();
+    }
+
+    @Test
+    public void shouldNotRetryAnyCodeForEmptyRetryCodes() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_CODES_LIST, "");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        assertThat(retryPolicy.isRetryable(503)).isFalse();
+        assertThat(retryPolicy.isRetryable(429)).isFalse();
+    }
+
+    @Test
+    public void shouldRetryIoErrors() {
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(new Properties());
+
+        assertThat(retryPolicy.isRetryable(new IOException("Connection reset"))).isTrue();
+        assertThat(
+            retryPolicy.isRetryable(new CompletionException(new ConnectException("Refused")))
+        ).isTrue();
+        assertThat(retryPolicy.isRetryable(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void shouldNotRetryIoErrorsIfDisabled() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_IO_ERROR, "false");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        assertThat(retryPolicy.isRetryable(new IOException("Connection reset"))).isFalse();
+    }
+
+    @Test
+    public void shouldGrowBackoffExponentiallyUpToLimit() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_INITIAL_BACKOFF_MS, "100");
+        properties.setProperty(SINK_HTTP_RETRY_MAX_BACKOFF_MS, "1000");
+        properties.setProperty(SINK_HTTP_RETRY_BACKOFF_MULTIPLIER, "3");
+        properties.setProperty(SINK_HTTP_RETRY_BACKOFF_JITTER, "0");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        assertThat(retryPolicy.getBackoffMs(1)).isEqualTo(100);
+        assertThat(retryPolicy.getBackoffMs(2)).isEqualTo(300);
+        assertThat(retryPolicy.getBackoffMs(3)).isEqualTo(900);
+        assertThat(retryPolicy.getBackoffMs(4)).isEqualTo(1000);
+        assertThat(retryPolicy.getBackoffMs(100)).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldApplyJitterWithinBounds() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_INITIAL_BACKOFF_MS, "1000");
+        properties.setProperty(SINK_HTTP_RETRY_BACKOFF_JITTER, "0.25");
+
+        SinkRetryPolicy retryPolicy = SinkRetryPolicy.fromProperties(properties);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(retryPolicy.getBackoffMs(1)).isBetween(750L, 1000L);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        SINK_HTTP_RETRY_MAX_ATTEMPTS,
+        SINK_HTTP_RETRY_INITIAL_BACKOFF_MS,
+        SINK_HTTP_RETRY_BACKOFF_MULTIPLIER,
+        SINK_HTTP_RETRY_BACKOFF_JITTER
+    })
+    public void shouldThrowOnInvalidValue(String propertyName) {
+        Properties properties = new Properties();
+        properties.setProperty(propertyName, "-1");
+
+        assertThatThrownBy(() -> SinkRetryPolicy.fromProperties(properties))
+            .isExactlyInstanceOf(ConfigException.class);
+    }
+
+    @Test
+    public void shouldThrowIfMaxBackoffIsLowerThanInitialBackoff() {
+        Properties properties = new Properties();
+        properties.setProperty(SINK_HTTP_RETRY_INITIAL_BACKOFF_MS, "500");
+        properties.setProperty(SINK_HTTP_RETRY_MAX_BACKOFF_MS, "100");
+
+        assertThatThrownBy(() -> SinkRetryPolicy.fromProperties(properties))
+            .isExactlyInstanceOf(ConfigException.class);
+    }
+}
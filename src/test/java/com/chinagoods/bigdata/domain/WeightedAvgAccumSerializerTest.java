@@ -0,0 +1,42 @@
+package com.chinagoods.bigdata.domain;
+
+import java.io.IOException;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedAvgAccumSerializerTest {
+
+    private final WeightedAvgAccumSerializer serializer = WeightedAvgAccumSerializer.INSTANCE;
+
+    @Test
+    public void shouldRoundTripWithFixedLength() throws IOException {
+        WeightedAvgAccum accum = new WeightedAvgAccum();
+        accum.add(Long.MAX_VALUE, 3);
+        accum.add(-7, 2);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+
+        assertThat(out.length()).isEqualTo(serializer.getLength());
+        WeightedAvgAccum restored = serializer.deserialize(new DataInputDeserializer(out.getCopyOfBuffer()));
+        assertThat(restored.sum).isEqualTo(accum.sum);
+        assertThat(restored.sumHigh).isEqualTo(accum.sumHigh);
+        assertThat(restored.count).isEqualTo(accum.count);
+    }
+
+    @Test
+    public void shouldCopySerializedBytes() throws IOException {
+        WeightedAvgAccum accum = new WeightedAvgAccum();
+        accum.add(123, 4);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+        DataOutputSerializer copied = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(out.getCopyOfBuffer()), copied);
+
+        assertThat(copied.getCopyOfBuffer()).isEqualTo(out.getCopyOfBuffer());
+    }
+}
@@ -0,0 +1,54 @@
+package com.chinagoods.bigdata.domain;
+
+import java.io.IOException;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedAvgDecimalAccumSerializerTest {
+
+    private final WeightedAvgDecimalAccumSerializer serializer = WeightedAvgDecimalAccumSerializer.INSTANCE;
+
+    @Test
+    public void shouldRoundTripWithFixedLength() throws IOException {
+        WeightedAvgDecimalAccum accum = new WeightedAvgDecimalAccum();
+        accum.scale = 4;
+        accum.add(Long.MIN_VALUE, 5);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+
+        assertThat(out.length()).isEqualTo(serializer.getLength());
+        WeightedAvgDecimalAccum restored = serializer.deserialize(new DataInputDeserializer(out.getCopyOfBuffer()));
+        assertThat(restored.sum).isEqualTo(accum.sum);
+        assertThat(restored.sumHigh).isEqualTo(accum.sumHigh);
+        assertThat(restored.count).isEqualTo(accum.count);
+        assertThat(restored.scale).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldKeepUnsetScale() throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(new WeightedAvgDecimalAccum(), out);
+
+        WeightedAvgDecimalAccum restored = serializer.deserialize(new DataInputDeserializer(out.getCopyOfBuffer()));
+        assertThat(restored.scale).isEqualTo(-1);
+        assertThat(restored.count).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCopySerializedBytes() throws IOException {
+        WeightedAvgDecimalAccum accum = new WeightedAvgDecimalAccum();
+        accum.scale = 2;
+        accum.add(12345, 6);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+        DataOutputSerializer copied = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(out.getCopyOfBuffer()), copied);
+
+        assertThat(copied.getCopyOfBuffer()).isEqualTo(out.getCopyOfBuffer());
+    }
+}
@@ -0,0 +1,45 @@
+package com.chinagoods.bigdata.domain;
+
+import java.io.IOException;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedAvgDoubleAccumSerializerTest {
+
+    private final WeightedAvgDoubleAccumSerializer serializer = WeightedAvgDoubleAccumSerializer.INSTANCE;
+
+    @Test
+    public void shouldRoundTripWithFixedLength() throws IOException {
+        WeightedAvgDoubleAccum accum = new WeightedAvgDoubleAccum();
+        accum.add(1e16, 1);
+        accum.add(1.0 / 3, 0.1);
+        accum.subtract(2.5, 0.7);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+
+        assertThat(out.length()).isEqualTo(serializer.getLength());
+        WeightedAvgDoubleAccum restored = serializer.deserialize(new DataInputDeserializer(out.getCopyOfBuffer()));
+        assertThat(restored.sum).isEqualTo(accum.sum);
+        assertThat(restored.sumCompensation).isEqualTo(accum.sumCompensation);
+        assertThat(restored.weight).isEqualTo(accum.weight);
+        assertThat(restored.weightCompensation).isEqualTo(accum.weightCompensation);
+        assertThat(restored.count).isEqualTo(accum.count);
+    }
+
+    @Test
+    public void shouldCopySerializedBytes() throws IOException {
+        WeightedAvgDoubleAccum accum = new WeightedAvgDoubleAccum();
+        accum.add(0.1, 0.2);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(accum, out);
+        DataOutputSerializer copied = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(out.getCopyOfBuffer()), copied);
+
+        assertThat(copied.getCopyOfBuffer()).isEqualTo(out.getCopyOfBuffer());
+    }
+}
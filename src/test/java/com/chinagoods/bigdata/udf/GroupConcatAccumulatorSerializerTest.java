@@ -0,0 +1,110 @@
+package com.chinagoods.bigdata.udf;
+
+import java.io.IOException;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupConcatAccumulatorSerializerTest {
+
+    private static final String[] ORDERS = {null, "asc", "desc"};
+
+    private final GroupConcatAccumulatorSerializer serializer = GroupConcatAccumulatorSerializer.INSTANCE;
+
+    private final GroupConcatUDAF function = new GroupConcatUDAF();
+
+    @Test
+    public void shouldRoundTripEveryOrderAndDistinct() throws IOException {
+        for (String order : ORDERS) {
+            for (boolean distinct : new boolean[]{false, true}) {
+                GroupConcatAccumulator acc = accumulator(order, distinct);
+
+                GroupConcatAccumulator restored = roundTrip(acc);
+
+                assertSameState(restored, acc, order, distinct);
+                // 恢复后撤回的仍是同一次出现
+                function.retract(acc, "b", "; ", distinct, order, 10, 100);
+                function.retract(restored, "b", "; ", distinct, order, 10, 100);
+                function.accumulate(acc, "a", "; ", distinct, order, 10, 100);
+                function.accumulate(restored, "a", "; ", distinct, order, 10, 100);
+                assertSameState(restored, acc, order, distinct);
+            }
+        }
+    }
+
+    @Test
+    public void shouldCopyEveryOrderAndDistinct() {
+        for (String order : ORDERS) {
+            for (boolean distinct : new boolean[]{false, true}) {
+                GroupConcatAccumulator acc = accumulator(order, distinct);
+
+                GroupConcatAccumulator copy = serializer.copy(acc);
+                function.accumulate(acc, "z", "; ", distinct, order, 10, 100);
+
+                assertThat(function.getValue(copy))
+                    .as("order %s, distinct %s", order, distinct)
+                    .isEqualTo(function.getValue(accumulator(order, distinct)));
+                function.accumulate(copy, "z", "; ", distinct, order, 10, 100);
+                assertSameState(copy, acc, order, distinct);
+            }
+        }
+    }
+
+    @Test
+    public void shouldCopySerializedBytes() throws IOException {
+        GroupConcatAccumulator acc = accumulator(null, false);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(acc, out);
+        DataOutputSerializer copied = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(out.getCopyOfBuffer()), copied);
+
+        assertThat(copied.getCopyOfBuffer()).isEqualTo(out.getCopyOfBuffer());
+    }
+
+    @Test
+    public void shouldRoundTripEmptyAccumulator() throws IOException {
+        GroupConcatAccumulator restored = roundTrip(new GroupConcatAccumulator());
+
+        assertThat(restored.isEmpty()).isTrue();
+        assertThat(restored.separator).isEqualTo(",");
+        assertThat(function.getValue(restored)).isNull();
+    }
+
+    private GroupConcatAccumulator accumulator(String order, boolean distinct) {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"b", "a", "b", "中文", "c", "a", "b"}) {
+            function.accumulate(acc, value, "; ", distinct, order, 10, 100);
+        }
+        function.retract(acc, "a", "; ", distinct, order, 10, 100);
+        return acc;
+    }
+
+    private GroupConcatAccumulator roundTrip(GroupConcatAccumulator acc) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(acc, out);
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        GroupConcatAccumulator restored = serializer.deserialize(in);
+        assertThat(in.available()).isZero();
+        return restored;
+    }
+
+    private void assertSameState(
+            GroupConcatAccumulator actual,
+            GroupConcatAccumulator expected,
+            String order,
+            boolean distinct) {
+        String description = "order " + order + ", distinct " + distinct;
+        assertThat(function.getValue(actual)).as(description).isEqualTo(function.getValue(expected));
+        assertThat(actual.counts).as(description).containsExactlyEntriesOf(expected.counts);
+        assertThat(actual.separator).isEqualTo(expected.separator);
+        assertThat(actual.distinct).isEqualTo(expected.distinct);
+        assertThat(actual.order).isEqualTo(expected.order);
+        assertThat(actual.maxCount).isEqualTo(expected.maxCount);
+        assertThat(actual.maxBytes).isEqualTo(expected.maxBytes);
+        assertThat(actual.elementCount).as(description).isEqualTo(expected.elementCount);
+        assertThat(actual.valueBytes).as(description).isEqualTo(expected.valueBytes);
+    }
+}
@@ -0,0 +1,174 @@
+package com.chinagoods.bigdata.udf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupConcatAccumulatorTest {
+
+    private static final String[] VALUES = {"a", "b", "c", "d"};
+
+    private final GroupConcatUDAF function = new GroupConcatUDAF();
+
+    @Test
+    public void shouldKeepInsertionOrderOfEveryOccurrence() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"a", "b", "a", "c", "a"}) {
+            function.accumulate(acc, value);
+        }
+
+        assertThat(function.getValue(acc)).isEqualTo("a,b,a,c,a");
+
+        function.retract(acc, "a");
+        assertThat(function.getValue(acc)).isEqualTo("b,a,c,a");
+
+        function.retract(acc, "a");
+        function.retract(acc, "b");
+        assertThat(function.getValue(acc)).isEqualTo("c,a");
+    }
+
+    @Test
+    public void shouldMatchListSemantics() {
+        Random random = new Random(7);
+        GroupConcatAccumulator acc = function.createAccumulator();
+        List<String> model = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            String value = VALUES[random.nextInt(VALUES.length)];
+            if (random.nextInt(3) == 0) {
+                function.retract(acc, value);
+                model.remove(value);
+            } else {
+                function.accumulate(acc, value);
+                model.add(value);
+            }
+            assertThat(function.getValue(acc))
+                .as("step %s", i)
+                .isEqualTo(model.isEmpty() ? null : String.join(",", model));
+        }
+    }
+
+    @Test
+    public void shouldMatchCountingSemanticsWhenDistinct() {
+        Random random = new Random(11);
+        GroupConcatAccumulator acc = function.createAccumulator();
+        // 去重时值按第一次加入的顺序输出, 全部撤回后再加入排在最后
+        Map<String, Integer> model = new LinkedHashMap<>();
+
+        for (int i = 0; i < 10000; i++) {
+            String value = VALUES[random.nextInt(VALUES.length)];
+            if (random.nextInt(3) == 0) {
+                function.retract(acc, value, ",", true);
+                Integer count = model.get(value);
+                if (count != null && count == 1) {
+                    model.remove(value);
+                } else if (count != null) {
+                    model.put(value, count - 1);
+                }
+            } else {
+                function.accumulate(acc, value, ",", true);
+                model.merge(value, 1, Integer::sum);
+            }
+            assertThat(function.getValue(acc))
+                .as("step %s", i)
+                .isEqualTo(model.isEmpty() ? null : String.join(",", model.keySet()));
+        }
+    }
+
+    @Test
+    public void shouldSortValues() {
+        GroupConcatAccumulator asc = function.createAccumulator();
+        GroupConcatAccumulator desc = function.createAccumulator();
+        for (String value : new String[]{"b", "c", "a", "b"}) {
+            function.accumulate(asc, value, ",", false, "asc");
+            function.accumulate(desc, value, ",", true, "desc");
+        }
+
+        assertThat(function.getValue(asc)).isEqualTo("a,b,b,c");
+        assertThat(function.getValue(desc)).isEqualTo("c,b,a");
+    }
+
+    @Test
+    public void shouldKeepMergedOrder() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        GroupConcatAccumulator other = function.createAccumulator();
+        function.accumulate(acc, "z");
+        for (String value : new String[]{"b", "a", "b"}) {
+            function.accumulate(other, value);
+        }
+
+        function.merge(acc, Collections.singletonList(other));
+
+        assertThat(function.getValue(acc)).isEqualTo("z,b,a,b");
+    }
+
+    @Test
+    public void shouldDropValuesThatDoNotFitWithoutOrder() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"a", "b", "c"}) {
+            function.accumulate(acc, value, ",", false, null, 2);
+        }
+        assertThat(function.getValue(acc)).isEqualTo("a,b");
+
+        function.retract(acc, "c", ",", false, null, 2);
+        function.retract(acc, "a", ",", false, null, 2);
+        function.accumulate(acc, "c", ",", false, null, 2);
+        assertThat(function.getValue(acc)).isEqualTo("b,c");
+    }
+
+    @Test
+    public void shouldNotEvictForValueLongerThanMaxBytes() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        function.accumulate(acc, "b", ",", false, "asc", null, 5);
+        function.accumulate(acc, "aaaaaaaaa", ",", false, "asc", null, 5);
+
+        assertThat(function.getValue(acc)).isEqualTo("b");
+    }
+
+    @Test
+    public void shouldNotEvictForValueThatWouldEvictItself() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"a", "b", "abcd"}) {
+            function.accumulate(acc, value, ",", false, "asc", null, 5);
+        }
+
+        assertThat(function.getValue(acc)).isEqualTo("a,b");
+    }
+
+    @Test
+    public void shouldEvictLastValuesOverMaxCount() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"a", "c", "b", "d", "b"}) {
+            function.accumulate(acc, value, ",", false, "asc", 3);
+        }
+
+        assertThat(function.getValue(acc)).isEqualTo("a,b,b");
+    }
+
+    @Test
+    public void shouldEvictLastValuesOverMaxBytesWhenDistinctDescending() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        for (String value : new String[]{"a", "c", "b", "d", "e"}) {
+            function.accumulate(acc, value, ",", true, "desc", null, 5);
+        }
+
+        assertThat(function.getValue(acc)).isEqualTo("e,d,c");
+    }
+
+    @Test
+    public void shouldCountUtf8BytesAndSeparators() {
+        GroupConcatAccumulator acc = function.createAccumulator();
+        // "中" is 3 bytes, "中;;中" is 8 bytes
+        for (String value : new String[]{"中", "中", "中"}) {
+            function.accumulate(acc, value, ";;", false, null, null, 8);
+        }
+
+        assertThat(function.getValue(acc)).isEqualTo("中;;中");
+    }
+}
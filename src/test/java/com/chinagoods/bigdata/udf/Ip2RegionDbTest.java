@@ -0,0 +1,208 @@
+package com.chinagoods.bigdata.udf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Ip2RegionDbTest {
+
+    private static final String REGION_LOCAL = "0|0|0|内网IP|内网IP";
+    private static final String REGION_A = "中国|0|浙江省|金华市|电信";
+    private static final String REGION_B = "中国|0|江苏省|苏州市|联通";
+    private static final String REGION_C = "美国|0|0|0|0";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldConvertValidIps() {
+        assertThat(Ip2RegionDb.ip2long("0.0.0.0")).isEqualTo(0L);
+        assertThat(Ip2RegionDb.ip2long("1.2.3.4")).isEqualTo(0x01020304L);
+        assertThat(Ip2RegionDb.ip2long("001.002.003.004")).isEqualTo(0x01020304L);
+        assertThat(Ip2RegionDb.ip2long("192.168.0.255")).isEqualTo(0xC0A800FFL);
+        assertThat(Ip2RegionDb.ip2long("255.255.255.255")).isEqualTo(0xFFFFFFFFL);
+        assertThat(Ip2RegionDb.ip2long("ip=10.0.0.1;", 3, 11)).isEqualTo(0x0A000001L);
+    }
+
+    @Test
+    public void shouldRejectMalformedIps() {
+        String[] ips = {
+            "", ".", "...", ".1.2.3", "1.2.3.4.", "1.2.3.", "1..2.3", "1.2.3", "1.2.3.4.5",
+            "1234.1.1.1", "1.2.3.0004", "0001.1.1.1", "256.1.1.1", "1.2.3.256", "1.300.3.4", "999.1.1.1",
+            " 1.2.3.4", "1.2.3.4 ", "a.b.c.d", "-1.2.3.4", "1.2.3.4/24", "::1"
+        };
+        for (String ip : ips) {
+            assertThat(Ip2RegionDb.ip2long(ip)).as("'%s'", ip).isEqualTo(-1L);
+        }
+    }
+
+    @Test
+    public void shouldSearchRangeBoundaries() throws IOException {
+        Ip2RegionDb.Index index = Ip2RegionDb.Index.load(new ByteArrayInputStream(db(REGION_A)));
+        try {
+            assertThat(region(index, "0.0.0.0")).isEqualTo(REGION_LOCAL);
+            assertThat(region(index, "0.0.0.1")).isNull();
+            assertThat(region(index, "0.255.255.255")).isNull();
+            assertThat(region(index, "1.0.0.0")).isEqualTo(REGION_A);
+            assertThat(region(index, "1.0.0.255")).isEqualTo(REGION_A);
+            assertThat(region(index, "1.0.1.0")).isEqualTo(REGION_B);
+            assertThat(region(index, "1.0.3.255")).isEqualTo(REGION_B);
+            assertThat(region(index, "1.0.4.0")).isNull();
+            assertThat(region(index, "1.255.255.255")).isNull();
+            assertThat(region(index, "2.0.0.0")).isEqualTo(REGION_A);
+            assertThat(region(index, "2.0.0.1")).isNull();
+            assertThat(region(index, "255.255.254.255")).isNull();
+            assertThat(region(index, "255.255.255.0")).isEqualTo(REGION_C);
+            assertThat(region(index, "255.255.255.255")).isEqualTo(REGION_C);
+
+            // 相同数据指针的地区只存一份
+            assertThat(index.getRegionNum()).isEqualTo(4);
+            assertThat(index.search(Ip2RegionDb.ip2long("2.0.0.0")))
+                .isEqualTo(index.search(Ip2RegionDb.ip2long("1.0.0.0")));
+        } finally {
+            index.delete();
+        }
+    }
+
+    @Test
+    public void shouldBatchSearchLikeSingleSearch() throws IOException {
+        Ip2RegionDb.Index index = Ip2RegionDb.Index.load(new ByteArrayInputStream(db(REGION_A)));
+        try {
+            long[] ips = {
+                0L, 1L, 0x00FFFFFFL, 0x01000000L, 0x01000000L, 0x010000FFL, 0x01000100L, 0x010003FFL,
+                0x01000400L, 0x02000000L, 0x02000001L, 0xFFFFFEFFL, 0xFFFFFF00L, 0xFFFFFFFFL
+            };
+            long[] sortedKeys = new long[ips.length + 1];
+            for (int i = 0; i < ips.length; i++) {
+                sortedKeys[i] = (ips[i] << 31) | i;
+            }
+            Arrays.sort(sortedKeys, 0, ips.length);
+            int[] regionIds = new int[sortedKeys.length];
+            index.search(sortedKeys, ips.length, regionIds);
+
+            for (int k = 0; k < ips.length; k++) {
+                long ip = sortedKeys[k] >>> 31;
+                assertThat(regionIds[k]).as("ip %s", ip).isEqualTo(index.search(ip));
+            }
+        } finally {
+            index.delete();
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidDb() {
+        ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(8).putInt(40);
+
+        assertThatThrownBy(() -> Ip2RegionDb.Index.load(new ByteArrayInputStream(header.array())))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldShareDbUntilLastRelease() throws IOException {
+        Path dbFile = tempDir.resolve("ip2region.db");
+        Files.write(dbFile, db(REGION_A));
+
+        Ip2RegionDb<Ip2RegionDb.Index> first = Ip2RegionDb.acquire(dbFile.toString(), 0);
+        Ip2RegionDb<Ip2RegionDb.Index> second = Ip2RegionDb.acquire(dbFile.toString(), 0);
+        Path mapped = first.getIndex().getPath();
+
+        assertThat(second).isSameAs(first);
+        assertThat(mapped).exists().isNotEqualTo(dbFile);
+
+        Ip2RegionDb.release(first);
+        assertThat(mapped).exists();
+        assertThat(region(second.getIndex(), "1.0.1.0")).isEqualTo(REGION_B);
+
+        Ip2RegionDb.release(second);
+        assertThat(mapped).doesNotExist();
+        assertThat(dbFile).exists();
+
+        // 多余的释放被忽略, 不影响之后重新获取的数据库
+        Ip2RegionDb<Ip2RegionDb.Index> third = Ip2RegionDb.acquire(dbFile.toString(), 0);
+        Ip2RegionDb.release(second);
+        try {
+            assertThat(third).isNotSameAs(first);
+            assertThat(third.getIndex().getPath()).exists().isNotEqualTo(mapped);
+        } finally {
+            Ip2RegionDb.release(third);
+        }
+        assertThat(third.getIndex().getPath()).doesNotExist();
+    }
+
+    @Test
+    public void shouldReloadChangedDb() throws Exception {
+        Path dbFile = tempDir.resolve("reload.db");
+        Files.write(dbFile, db(REGION_A));
+
+        Ip2RegionDb<Ip2RegionDb.Index> db = Ip2RegionDb.acquire(dbFile.toString(), 20);
+        try {
+            Ip2RegionDb.Index oldIndex = db.getIndex();
+            Files.write(dbFile, db(REGION_C));
+            assertThat(dbFile.toFile().setLastModified(dbFile.toFile().lastModified() + 2000)).isTrue();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (db.getIndex() == oldIndex && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(db.getIndex()).isNotSameAs(oldIndex);
+            assertThat(region(db.getIndex(), "1.0.0.0")).isEqualTo(REGION_C);
+            assertThat(oldIndex.getPath()).doesNotExist();
+        } finally {
+            Ip2RegionDb.release(db);
+        }
+        assertThat(db.getIndex().getPath()).doesNotExist();
+    }
+
+    private static String region(Ip2RegionDb.Index index, String ip) {
+        int regionId = index.search(Ip2RegionDb.ip2long(ip));
+        return regionId < 0 ? null : String.join("|", index.getRegionFields(regionId));
+    }
+
+    /**
+     * 构建ip2region db: 头部为第一个及最后一个索引块的位置, 之后为地区数据, 最后为索引块
+     * (起始ip, 结束ip, 数据长度 << 24 | 数据位置)
+     *
+     * @param firstRegion 1.0.0.0-1.0.0.255及2.0.0.0的地区
+     */
+    private static byte[] db(String firstRegion) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(new byte[8]);
+        Map<String, Integer> dataPtrs = new LinkedHashMap<>();
+        for (String region : new String[]{REGION_LOCAL, firstRegion, REGION_B, REGION_C}) {
+            byte[] bytes = region.getBytes(StandardCharsets.UTF_8);
+            dataPtrs.put(region, ((bytes.length + 4) << 24) | data.size());
+            data.write(new byte[4]);
+            data.write(bytes);
+        }
+        long[][] blocks = {
+            {0x00000000L, 0x00000000L, dataPtrs.get(REGION_LOCAL)},
+            {0x01000000L, 0x010000FFL, dataPtrs.get(firstRegion)},
+            {0x01000100L, 0x010003FFL, dataPtrs.get(REGION_B)},
+            {0x02000000L, 0x02000000L, dataPtrs.get(firstRegion)},
+            {0xFFFFFF00L, 0xFFFFFFFFL, dataPtrs.get(REGION_C)},
+        };
+        int firstIndexPtr = data.size();
+        ByteBuffer buffer = ByteBuffer.allocate(firstIndexPtr + blocks.length * 12).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(data.toByteArray());
+        buffer.putInt(0, firstIndexPtr).putInt(4, firstIndexPtr + (blocks.length - 1) * 12);
+        for (long[] block : blocks) {
+            buffer.putInt((int) block[0]).putInt((int) block[1]).putInt((int) block[2]);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,188 @@
+package com.chinagoods.bigdata.udf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Ip6RegionTrieTest {
+
+    @Test
+    public void shouldParseValidAddresses() throws Exception {
+        String[] addresses = {
+            "::", "::1", "1::", "::ffff:1.2.3.4", "::1.2.3.4", "1:2:3:4:5:6:7:8",
+            "1:2:3:4:5:6:1.2.3.4", "2001:DB8::8:800:200c:417A", "fe80::1:2", "1::8",
+            "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "0:0::0:0"
+        };
+        for (String address : addresses) {
+            assertThat(parse(address)).as(address).isEqualTo(expected(address));
+        }
+    }
+
+    @Test
+    public void shouldParseAddressInsideText() {
+        String text = "x2400:3200::1/32";
+        long[] out = new long[2];
+
+        assertThat(Ip6RegionTrie.parseIpv6(text, 1, text.indexOf('/'), out)).isTrue();
+        assertThat(out).containsExactly(0x2400320000000000L, 1L);
+    }
+
+    @Test
+    public void shouldRejectInvalidAddresses() {
+        String[] addresses = {
+            "", ":", ":::", ":1", "1:", "1:2", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "::1:2:3:4:5:6:7:8",
+            "1::2::3", "::1::", "12345::", "1:23456::", "g::", "1:2:3:4:5:6:7:8 ", "::1.2.3", "::1.2.3.256",
+            "::01.2.3.4.5", "1.2.3.4::", "1:2:3:4:5:6:7:1.2.3.4", "::ffff:1.2.3.4:1", "1::2:"
+        };
+        for (String address : addresses) {
+            assertThat(Ip6RegionTrie.parseIpv6(address, 0, address.length(), new long[2]))
+                .as("'%s'", address)
+                .isFalse();
+        }
+    }
+
+    @Test
+    public void shouldMatchLongestPrefix() throws IOException {
+        Ip6RegionTrie trie = load(
+            "# comment",
+            "",
+            "::/0 DEFAULT|0|0|0|0",
+            "2400::/16, A|0|0|0|0",
+            "2400:3200::/32 B|0|0|0|0",
+            "2400:3200:1::/48 C|0|0|0|0",
+            "2400:3200:1::1/128 D|0|0|0|0",
+            "2400:3200:8000::/33 E|0|0|0|0");
+
+        assertThat(search(trie, "2400:3200:1::1")).isEqualTo("D");
+        assertThat(search(trie, "2400:3200:1::2")).isEqualTo("C");
+        assertThat(search(trie, "2400:3200:2::")).isEqualTo("B");
+        assertThat(search(trie, "2400:3200:8000::1")).isEqualTo("E");
+        assertThat(search(trie, "2400:3201::")).isEqualTo("A");
+        assertThat(search(trie, "2401::")).isEqualTo("DEFAULT");
+        assertThat(search(trie, "::")).isEqualTo("DEFAULT");
+    }
+
+    @Test
+    public void shouldSplitNodesInAnyInsertionOrder() throws IOException {
+        Ip6RegionTrie trie = load(
+            "2400:3200:1::1/128 D|0|0|0|0",
+            "2400:3200:8000::/33 E|0|0|0|0",
+            "2400:3200::/32 B|0|0|0|0",
+            "2400:3200:1::/48 C|0|0|0|0");
+
+        assertThat(search(trie, "2400:3200:1::1")).isEqualTo("D");
+        assertThat(search(trie, "2400:3200:1::2")).isEqualTo("C");
+        assertThat(search(trie, "2400:3200:2::")).isEqualTo("B");
+        assertThat(search(trie, "2400:3200:8000::1")).isEqualTo("E");
+        assertThat(search(trie, "2400:3201::")).isNull();
+        assertThat(search(trie, "::")).isNull();
+    }
+
+    @Test
+    public void shouldLetLaterDuplicateWin() throws IOException {
+        Ip6RegionTrie trie = load(
+            "240e::/20 A|0|0|0|0",
+            "240e::/20 B|0|0|0|0",
+            "::1/128 L|0|0|0|0",
+            "::1/128 M|0|0|0|0");
+
+        assertThat(search(trie, "240e:fff::")).isEqualTo("B");
+        assertThat(search(trie, "::1")).isEqualTo("M");
+        assertThat(trie.getRegionNum()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldMatchBruteForceForRandomPrefixes() throws IOException {
+        Random random = new Random(5);
+        List<String> lines = new ArrayList<>();
+        List<BigInteger[]> prefixes = new ArrayList<>();
+        BigInteger base = new BigInteger("24003200000000000000000000000000", 16);
+        for (int i = 0; i < 300; i++) {
+            int prefixLength = 16 + random.nextInt(113);
+            BigInteger address = base.add(new BigInteger(96, random).shiftRight(random.nextInt(96)));
+            BigInteger network = mask(address, prefixLength);
+            BigInteger[] prefix = {network, BigInteger.valueOf(prefixLength), BigInteger.valueOf(i)};
+            // 重复的网段以后出现的为准, 模型中后加入的放在前面
+            prefixes.removeIf(p -> p[0].equals(network) && p[1].intValue() == prefixLength);
+            prefixes.add(0, prefix);
+            lines.add(toAddress(network) + "/" + prefixLength + " R" + i + "|0|0|0|0");
+        }
+        Ip6RegionTrie trie = load(lines.toArray(new String[0]));
+
+        for (int i = 0; i < 5000; i++) {
+            BigInteger[] prefix = prefixes.get(random.nextInt(prefixes.size()));
+            int flip = random.nextInt(129);
+            BigInteger address = flip == 128 ? prefix[0] : prefix[0].flipBit(flip);
+            String expected = null;
+            int longest = -1;
+            for (BigInteger[] candidate : prefixes) {
+                int length = candidate[1].intValue();
+                if (length > longest && mask(address, length).equals(candidate[0])) {
+                    longest = length;
+                    expected = "R" + candidate[2];
+                }
+            }
+            assertThat(search(trie, toAddress(address))).as(toAddress(address)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidLines() {
+        for (String line : Arrays.asList("2400::/129 A|0|0|0|0", "2400::/x A|0|0|0|0", "2400:: A|0|0|0|0",
+                "2400::/16", "24000::/16 A|0|0|0|0")) {
+            assertThatThrownBy(() -> load(line)).as(line).isInstanceOf(IOException.class);
+        }
+    }
+
+    private static long[] parse(String address) {
+        long[] out = new long[2];
+        assertThat(Ip6RegionTrie.parseIpv6(address, 0, address.length(), out)).as(address).isTrue();
+        return out;
+    }
+
+    private static long[] expected(String address) throws Exception {
+        byte[] bytes = InetAddress.getByName(address).getAddress();
+        if (bytes.length == 4) {
+            // IPv4映射地址被InetAddress转换为IPv4
+            bytes = new BigInteger(1, bytes).or(BigInteger.valueOf(0xFFFFL).shiftLeft(32)).toByteArray();
+        }
+        BigInteger value = new BigInteger(1, bytes);
+        return new long[]{value.shiftRight(64).longValue(), value.longValue()};
+    }
+
+    private static BigInteger mask(BigInteger address, int prefixLength) {
+        return address.shiftRight(128 - prefixLength).shiftLeft(128 - prefixLength);
+    }
+
+    private static String toAddress(BigInteger value) {
+        StringBuilder sb = new StringBuilder();
+        for (int group = 7; group >= 0; group--) {
+            sb.append(Integer.toHexString(value.shiftRight(group * 16).intValue() & 0xFFFF));
+            if (group > 0) {
+                sb.append(':');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Ip6RegionTrie load(String... lines) throws IOException {
+        byte[] bytes = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return Ip6RegionTrie.load(new ByteArrayInputStream(bytes));
+    }
+
+    private static String search(Ip6RegionTrie trie, String address) {
+        long[] ip = parse(address);
+        int regionId = trie.search(ip[0], ip[1]);
+        return regionId < 0 ? null : trie.getRegionFields(regionId)[0];
+    }
+}
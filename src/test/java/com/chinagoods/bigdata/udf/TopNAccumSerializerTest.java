@@ -0,0 +1,95 @@
+package com.chinagoods.bigdata.udf;
+
+import java.io.IOException;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopNAccumSerializerTest {
+
+    private final TopNAccumSerializer serializer = TopNAccumSerializer.INSTANCE;
+
+    @Test
+    public void shouldRoundTripEmptyAccumulator() throws IOException {
+        TopNAccum restored = roundTrip(new TopNAccum());
+
+        assertThat(restored.kind).isEqualTo(TopNAccum.KIND_NONE);
+        assertThat(restored.size).isZero();
+        assertThat(restored.ranked()).isNull();
+    }
+
+    @Test
+    public void shouldRoundTripNegativeAndExtremeLongs() throws IOException {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_LONG, 6);
+        for (long value : new long[]{-1, 0, 1, Long.MIN_VALUE, Long.MAX_VALUE, -300}) {
+            acc.offer(value);
+        }
+
+        TopNAccum restored = roundTrip(acc);
+
+        assertThat(restored.n).isEqualTo(6);
+        assertThat(restored.size).isEqualTo(6);
+        assertThat(restored.longs).containsExactly(acc.longs);
+        assertThat((long[]) restored.ranked()).containsExactly(Long.MAX_VALUE, 1, 0, -1, -300, Long.MIN_VALUE);
+    }
+
+    @Test
+    public void shouldRoundTripDoubles() throws IOException {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_DOUBLE, 4);
+        for (double value : new double[]{-0.5, Double.NaN, Double.NEGATIVE_INFINITY}) {
+            acc.offer(value);
+        }
+
+        TopNAccum restored = roundTrip(acc);
+
+        assertThat(restored.n).isEqualTo(4);
+        assertThat(restored.size).isEqualTo(3);
+        assertThat((double[]) restored.ranked()).containsExactly(Double.NaN, -0.5, Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void shouldRoundTripStrings() throws IOException {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_STRING, 2);
+        for (String value : new String[]{"", "义乌", "b", "a"}) {
+            acc.offer(value);
+        }
+
+        TopNAccum restored = roundTrip(acc);
+
+        assertThat((String[]) restored.ranked()).containsExactly("义乌", "b");
+        // 恢复后仍是有效的堆
+        restored.offer("c");
+        assertThat((String[]) restored.ranked()).containsExactly("义乌", "c");
+    }
+
+    @Test
+    public void shouldCopy() {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_LONG, 2);
+        acc.offer(3);
+
+        TopNAccum copy = serializer.copy(acc);
+        acc.offer(5);
+
+        assertThat((long[]) copy.ranked()).containsExactly(3);
+        assertThat((long[]) acc.ranked()).containsExactly(5, 3);
+    }
+
+    private TopNAccum roundTrip(TopNAccum acc) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        serializer.serialize(acc, out);
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        TopNAccum restored = serializer.deserialize(in);
+        assertThat(in.available()).isZero();
+
+        DataOutputSerializer copied = new DataOutputSerializer(64);
+        serializer.copy(new DataInputDeserializer(out.getCopyOfBuffer()), copied);
+        assertThat(copied.getCopyOfBuffer()).isEqualTo(out.getCopyOfBuffer());
+        return restored;
+    }
+}
@@ -0,0 +1,138 @@
+package com.chinagoods.bigdata.udf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopNAccumTest {
+
+    private static final int N = 5;
+
+    @Test
+    public void shouldKeepLargestLongs() {
+        Random random = new Random(1);
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_LONG, N);
+        List<Long> offered = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            // 值的范围很小, 有大量重复
+            long value = random.nextInt(50) - 25;
+            acc.offer(value);
+            offered.add(value);
+            assertThat(toList((long[]) acc.ranked())).as("step %s", i).isEqualTo(top(offered));
+        }
+    }
+
+    @Test
+    public void shouldKeepLargestDoubles() {
+        Random random = new Random(2);
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_DOUBLE, N);
+        List<Double> offered = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            double value = random.nextInt(40) / 4.0 - 5;
+            acc.offer(value);
+            offered.add(value);
+            assertThat(toList((double[]) acc.ranked())).as("step %s", i).isEqualTo(top(offered));
+        }
+    }
+
+    @Test
+    public void shouldKeepLargestStrings() {
+        Random random = new Random(3);
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_STRING, N);
+        List<String> offered = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            String value = Integer.toString(random.nextInt(100), 36);
+            acc.offer(value);
+            offered.add(value);
+            assertThat((String[]) acc.ranked()).as("step %s", i).containsExactlyElementsOf(top(offered));
+        }
+    }
+
+    @Test
+    public void shouldMergeHeaps() {
+        Random random = new Random(4);
+        TopNAccum acc = new TopNAccum();
+        List<Long> offered = new ArrayList<>();
+
+        for (int part = 0; part < 10; part++) {
+            TopNAccum other = new TopNAccum();
+            other.init(TopNAccum.KIND_LONG, N);
+            for (int i = 0; i < 20; i++) {
+                long value = random.nextLong();
+                other.offer(value);
+                offered.add(value);
+            }
+            acc.offerAll(other);
+        }
+        acc.offerAll(new TopNAccum());
+
+        assertThat(acc.n).isEqualTo(N);
+        assertThat(toList((long[]) acc.ranked())).isEqualTo(top(offered));
+    }
+
+    @Test
+    public void shouldRankFewerValuesThanN() {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_LONG, N);
+        acc.offer(Long.MIN_VALUE);
+        acc.offer(Long.MAX_VALUE);
+
+        assertThat((long[]) acc.ranked()).containsExactly(Long.MAX_VALUE, Long.MIN_VALUE);
+        assertThat(new TopNAccum().ranked()).isNull();
+    }
+
+    @Test
+    public void shouldNotChangeHeapWhenRanking() {
+        TopNAccum acc = new TopNAccum();
+        acc.init(TopNAccum.KIND_DOUBLE, 3);
+        for (double value : new double[]{1, 5, 3, 4}) {
+            acc.offer(value);
+        }
+        double[] heap = acc.doubles.clone();
+
+        acc.ranked();
+
+        assertThat(acc.doubles).containsExactly(heap);
+        // 堆顶仍为第N名
+        assertThat(acc.doubles[0]).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldRejectNonPositiveN() {
+        assertThatThrownBy(() -> new TopNAccum().init(TopNAccum.KIND_LONG, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static <T extends Comparable<T>> List<T> top(List<T> offered) {
+        List<T> sorted = new ArrayList<>(offered);
+        sorted.sort(Collections.reverseOrder());
+        return sorted.subList(0, Math.min(N, sorted.size()));
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static List<Double> toList(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chinagoods.bigdata.udf;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.apache.flink.table.data.DecimalData;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.chinagoods.bigdata.domain.WeightedAvgDecimalAccum;
+
+class WeightedAvgDecimalUDAFTest {
+
+    private final WeightedAvgDecimalUDAF function = new WeightedAvgDecimalUDAF();
+
+    @Test
+    public void shouldKeepScaleWhenGroupStartsWithRetraction() {
+        WeightedAvgDecimalAccum acc = function.createAccumulator();
+        function.retract(acc, decimal("1.50"), 1L);
+
+        assertThat(function.getValue(acc).toBigDecimal()).isEqualTo(new BigDecimal("1.500000"));
+
+        WeightedAvgDecimalAccum merged = function.createAccumulator();
+        function.merge(merged, Collections.singletonList(acc));
+
+        assertThat(function.getValue(merged).toBigDecimal()).isEqualTo(new BigDecimal("1.500000"));
+    }
+
+    @Test
+    public void shouldRoundHalfUp() {
+        WeightedAvgDecimalAccum acc = function.createAccumulator();
+        function.accumulate(acc, decimal("1.00"), 1L);
+        function.accumulate(acc, decimal("2.00"), 2L);
+
+        assertThat(function.getValue(acc).toBigDecimal()).isEqualTo(new BigDecimal("1.666667"));
+    }
+
+    private static DecimalData decimal(String value) {
+        BigDecimal decimal = new BigDecimal(value);
+        return DecimalData.fromBigDecimal(decimal, 10, decimal.scale());
+    }
+}
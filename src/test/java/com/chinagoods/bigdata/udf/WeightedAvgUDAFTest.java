@@ -0,0 +1,48 @@
+package com.chinagoods.bigdata.udf;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.chinagoods.bigdata.domain.WeightedAvgAccum;
+
+class WeightedAvgUDAFTest {
+
+    private final WeightedAvgUDAF function = new WeightedAvgUDAF();
+
+    @Test
+    public void shouldAverageSumBeyondLong() {
+        WeightedAvgAccum acc = function.createAccumulator();
+        function.accumulate(acc, Long.MAX_VALUE, 4);
+        function.accumulate(acc, Long.MAX_VALUE - 4, 4);
+
+        assertThat(function.getValue(acc)).isEqualTo(Long.MAX_VALUE - 2);
+    }
+
+    @Test
+    public void shouldAverageNegativeSumBeyondLong() {
+        WeightedAvgAccum acc = function.createAccumulator();
+        function.accumulate(acc, Long.MIN_VALUE, 3);
+        function.accumulate(acc, 0, 1);
+
+        assertThat(function.getValue(acc)).isEqualTo(Long.MIN_VALUE / 4 * 3);
+    }
+
+    @Test
+    public void shouldFailWhenAverageExceedsLong() {
+        WeightedAvgAccum acc = function.createAccumulator();
+        function.accumulate(acc, Long.MAX_VALUE, 2);
+        function.accumulate(acc, 1, -1);
+
+        assertThatThrownBy(() -> function.getValue(acc)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void shouldReturnNullWithoutWeight() {
+        WeightedAvgAccum acc = function.createAccumulator();
+        function.accumulate(acc, 10, 2);
+        function.retract(acc, 10, 2);
+
+        assertThat(function.getValue(acc)).isNull();
+    }
+}
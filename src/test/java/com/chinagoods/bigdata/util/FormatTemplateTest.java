@@ -0,0 +1,113 @@
+package com.chinagoods.bigdata.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FormatTemplateTest {
+
+    private static final FormatSpecifiers UA = SpecifierParseFormat.PARSEUSERAGENT_SPECIFIERS;
+    private static final FormatSpecifiers IP = SpecifierParseFormat.IP2REGION_SPECIFIERS;
+    private static final FormatSpecifiers PHONE = SpecifierParseFormat.PHONE2REGION_SPECIFIERS;
+
+    @Test
+    public void shouldMatchLongestSpecifier() {
+        String[] values = fieldNamesAsValues(UA);
+
+        assertThat(UA.compile("%AN|%ANV|%ANVM|%AV|%AVM|%AC").render(values))
+            .isEqualTo("AgentName|AgentNameVersion|AgentNameVersionMajor|AgentVersion|AgentVersionMajor|AgentClass");
+        assertThat(UA.compile("%OSN %OSNV %OSV %OSVB %OSC").render(values))
+            .isEqualTo("OperatingSystemName OperatingSystemNameVersion OperatingSystemVersion "
+                + "OperatingSystemVersionBuild OperatingSystemClass");
+        assertThat(UA.compile("%LEN%LENV%LENVM%LEV%LEVM").render(values))
+            .isEqualTo("LayoutEngineNameLayoutEngineNameVersionLayoutEngineNameVersionMajor"
+                + "LayoutEngineVersionLayoutEngineVersionMajor");
+        // 最长匹配之后剩余的字符为字面量
+        assertThat(UA.compile("%ANVMx %ANVx %DNB").render(values))
+            .isEqualTo("AgentNameVersionMajorx AgentNameVersionx DeviceNameB");
+    }
+
+    @Test
+    public void shouldDistinguishSpecifierCase() {
+        String[] values = fieldNamesAsValues(IP);
+
+        assertThat(IP.compile("%c-%C-%A-%P-%I").render(values)).isEqualTo("country-city-area-province-isp");
+        assertThat(IP.compile("%p%i%a").render(values)).isEqualTo("%p%i%a");
+    }
+
+    @Test
+    public void shouldKeepLiteralPercent() {
+        String[] values = fieldNamesAsValues(IP);
+
+        assertThat(IP.compile("%").render(values)).isEqualTo("%");
+        assertThat(IP.compile("100%").render(values)).isEqualTo("100%");
+        assertThat(IP.compile("%%P%").render(values)).isEqualTo("%province%");
+        assertThat(IP.compile("% P %X %json %JSO").render(values)).isEqualTo("% P %X %json %JSO");
+        assertThat(IP.compile("").render(values)).isEmpty();
+        assertThat(IP.compile("中国").render(values)).isEqualTo("中国");
+    }
+
+    @Test
+    public void shouldRenderNullAsEmpty() {
+        String[] values = {"中国", null, "浙江省", null, "电信"};
+
+        assertThat(IP.compile("%C").render(values)).isEmpty();
+        assertThat(IP.compile("%c|%A|%P|%C|%I").render(values)).isEqualTo("中国||浙江省||电信");
+
+        Map<String, String> fieldAndValue = new HashMap<>();
+        fieldAndValue.put("province", "浙江省");
+        fieldAndValue.put("unknown", "x");
+        assertThat(IP.compile("%P %C").render(fieldAndValue)).isEqualTo("浙江省 ");
+    }
+
+    @Test
+    public void shouldRenderJsonInFieldOrder() {
+        String[] values = {"中国", "0", "浙江省", null, "电信"};
+
+        assertThat(IP.compile("%JSON").render(values))
+            .isEqualTo("{\"country\":\"中国\",\"area\":\"0\",\"province\":\"浙江省\",\"city\":null,\"isp\":\"电信\"}");
+        assertThat(IP.compile("[%JSON]%P").render(values))
+            .isEqualTo("[{\"country\":\"中国\",\"area\":\"0\",\"province\":\"浙江省\",\"city\":null,\"isp\":\"电信\"}]浙江省");
+        assertThat(PHONE.compile("%JSON").render(new String[]{"贵州", "贵阳", "中国移动", "550000", "0851"}))
+            .isEqualTo("{\"province\":\"贵州\",\"city\":\"贵阳\",\"isp\":\"中国移动\","
+                + "\"zipcode\":\"550000\",\"areacode\":\"0851\"}");
+    }
+
+    @Test
+    public void shouldReturnUsedFieldIndexes() {
+        assertThat(IP.compile("%I %P %I").getUsedFieldIndexes()).containsExactly(2, 4);
+        assertThat(IP.compile("%c").getUsedFieldIndexes()).containsExactly(0);
+        assertThat(IP.compile("no field %").getUsedFieldIndexes()).isEmpty();
+        assertThat(IP.compile("").getUsedFieldIndexes()).isEmpty();
+        assertThat(IP.compile("%C %JSON").getUsedFieldIndexes()).containsExactly(0, 1, 2, 3, 4);
+        assertThat(UA.compile("%ANV %AN %DC").getUsedFieldIndexes())
+            .containsExactly(UA.indexOf("DeviceClass"), UA.indexOf("AgentName"), UA.indexOf("AgentNameVersion"));
+    }
+
+    @Test
+    public void shouldCacheCompiledTemplates() {
+        assertThat(IP.compile("%P-%C")).isSameAs(IP.compile(new String("%P-%C")));
+        assertThat(PHONE.compile("%P-%C")).isNotSameAs(IP.compile("%P-%C"));
+    }
+
+    @Test
+    public void shouldFormatPhoneZipCodeAndAreaCode() {
+        String[] values = {"贵州", "贵阳", "中国移动", "550000", "0851"};
+
+        assertThat(PHONE.compile("%P %C %I %zc %ac").render(values)).isEqualTo("贵州 贵阳 中国移动 550000 0851");
+        assertThat(PHONE.compile("%ac-%zc").render(values)).isEqualTo("0851-550000");
+
+        Map<String, String> fieldAndValue = new HashMap<>();
+        fieldAndValue.put("province", "贵州");
+        fieldAndValue.put("zipcode", "550000");
+        fieldAndValue.put("areacode", "0851");
+        assertThat(new SpecifierParseFormat().phone2regionParseFormat("%P,%zc,%ac", fieldAndValue))
+            .isEqualTo("贵州,550000,0851");
+    }
+
+    private static String[] fieldNamesAsValues(FormatSpecifiers specifiers) {
+        return specifiers.getFieldNames().clone();
+    }
+}
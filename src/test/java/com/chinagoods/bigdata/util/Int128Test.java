@@ -0,0 +1,84 @@
+package com.chinagoods.bigdata.util;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Int128Test {
+
+    private static final long[] EDGE_VALUES = {
+        0, 1, -1, 2, -2, 0xFFFFFFFFL, 0x100000000L, -0x100000000L,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE - 1, Long.MIN_VALUE + 1
+    };
+
+    @Test
+    public void shouldMultiplyHighLikeBigInteger() {
+        for (long x : EDGE_VALUES) {
+            for (long y : EDGE_VALUES) {
+                assertMultiplyHigh(x, y);
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            assertMultiplyHigh(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Test
+    public void shouldCarryIntoHighBitsOnAdd() {
+        // 2^64 - 1 + 1 = 2^64
+        long low = -1L;
+        long high = Int128.addHigh(0, low, 0, 1);
+
+        assertThat(high).isEqualTo(1);
+        assertThat(low + 1).isEqualTo(0);
+        assertThat(Int128.toBigInteger(high, low + 1)).isEqualTo(BigInteger.ONE.shiftLeft(64));
+    }
+
+    @Test
+    public void shouldAddNegativeValues() {
+        // -1 + -1 = -2
+        assertThat(Int128.addHigh(-1, -1, -1, -1)).isEqualTo(-1);
+        assertThat(Int128.toBigInteger(-1, -2)).isEqualTo(BigInteger.valueOf(-2));
+    }
+
+    @Test
+    public void shouldBorrowFromHighBitsOnSubtract() {
+        // 2^64 - 1 = 2^64 - 1
+        long high = Int128.subtractHigh(1, 0, 0, 1);
+
+        assertThat(high).isEqualTo(0);
+        assertThat(Int128.toBigInteger(high, 0 - 1))
+            .isEqualTo(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+        // 0 - 1 = -1
+        assertThat(Int128.subtractHigh(0, 0, 0, 1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldFailWhenLeaving128Bits() {
+        assertThatThrownBy(() -> Int128.addHigh(Long.MAX_VALUE, -1, 0, 1))
+            .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Int128.subtractHigh(Long.MIN_VALUE, 0, 0, 1))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void shouldTellWhetherValueFitsLong() {
+        assertThat(Int128.fitsLong(0, Long.MAX_VALUE)).isTrue();
+        assertThat(Int128.fitsLong(-1, Long.MIN_VALUE)).isTrue();
+        assertThat(Int128.fitsLong(0, Long.MIN_VALUE)).isFalse();
+        assertThat(Int128.fitsLong(-1, 0)).isFalse();
+    }
+
+    private static void assertMultiplyHigh(long x, long y) {
+        BigInteger product = BigInteger.valueOf(x).multiply(BigInteger.valueOf(y));
+        assertThat(Int128.multiplyHigh(x, y))
+            .as("multiplyHigh(%s, %s)", x, y)
+            .isEqualTo(product.shiftRight(64).longValue());
+        assertThat(Int128.toBigInteger(Int128.multiplyHigh(x, y), x * y)).isEqualTo(product);
+    }
+}